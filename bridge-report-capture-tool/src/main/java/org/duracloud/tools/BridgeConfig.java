@@ -0,0 +1,196 @@
+package org.duracloud.tools;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import org.duracloud.common.util.EncryptionUtil;
+
+/*
+ * Bridge Config - The connection details of one bridge from which reports
+ *                 are captured, and the prefix of the keys under which its
+ *                 reports are stored.
+ *
+ *                 Many bridges can be listed in the properties file, with
+ *                 encrypted credentials:
+ *
+ *                 bridge-names=east,west
+ *                 bridge.east.url=https://east.example.org/bridge/snapshot
+ *                 bridge.east.username=<encrypted>
+ *                 bridge.east.password=<encrypted>
+ *                 bridge.east.key-prefix=east/dcv-snapshot-report-   (optional)
+ *                 bridge.west.url=...
+ *
+ *                 The single bridge of earlier properties files (bridge-url,
+ *                 bridge-username and bridge-password) is still read, as
+ *                 the bridge named "default", whose reports keep their
+ *                 original keys.
+ */
+public class BridgeConfig {
+
+    public static final String DEFAULT_NAME = "default";
+    public static final String REPORT_PREFIX = "dcv-snapshot-report-";
+
+    protected static final String BRIDGE_NAMES_PROP = "bridge-names";
+    protected static final String BRIDGE_PREFIX = "bridge.";
+    protected static final String URL_PROP = "url";
+    protected static final String USERNAME_PROP = "username";
+    protected static final String PASSWORD_PROP = "password";
+    protected static final String KEY_PREFIX_PROP = "key-prefix";
+
+    private String name;
+    private String url;
+    private String username;
+    private String password;
+    private String keyPrefix;
+
+    /**
+     * @param name      - the name of the bridge
+     * @param url       - the URL from which the report is retrieved
+     * @param username  - the bridge username
+     * @param password  - the bridge password
+     * @param keyPrefix - the prefix of the keys of stored reports, or null
+     *                    for the default
+     */
+    public BridgeConfig(String name, String url, String username, String password,
+                        String keyPrefix) {
+        this.name = name;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.keyPrefix = (null == keyPrefix) ? defaultKeyPrefix(name) : keyPrefix;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public String getKeyPrefix() {
+        return keyPrefix;
+    }
+
+    /**
+     * Reads the bridges in a set of properties, decrypting their credentials.
+     *
+     * @param props - the properties
+     * @param enc   - used to decrypt credentials
+     * @return the bridges: the single bridge of an earlier properties file,
+     *         if there is one, followed by the named bridges in the order in
+     *         which they are named
+     */
+    public static List<BridgeConfig> load(Properties props, EncryptionUtil enc) {
+        List<BridgeConfig> bridges = new ArrayList<>();
+
+        String legacyUrl = props.getProperty(BridgeReportCaptureTool.BRIDGE_URL_PROP);
+        if (null != legacyUrl) {
+            String username = props.getProperty(BridgeReportCaptureTool.BRIDGE_USERNAME_PROP);
+            String password = props.getProperty(BridgeReportCaptureTool.BRIDGE_PASSWORD_PROP);
+            if (null == username || null == password) {
+                throw new RuntimeException("Properties file is incomplete.");
+            }
+            bridges.add(new BridgeConfig(DEFAULT_NAME, legacyUrl, enc.decrypt(username),
+                                         enc.decrypt(password), null));
+        }
+
+        for (String name : getNames(props)) {
+            String url = getProperty(props, name, URL_PROP, true);
+            String username = getProperty(props, name, USERNAME_PROP, true);
+            String password = getProperty(props, name, PASSWORD_PROP, true);
+            String keyPrefix = getProperty(props, name, KEY_PREFIX_PROP, false);
+            bridges.add(new BridgeConfig(name, url, enc.decrypt(username),
+                                         enc.decrypt(password), keyPrefix));
+        }
+
+        Set<String> names = new HashSet<>();
+        Set<String> keyPrefixes = new HashSet<>();
+        for (BridgeConfig bridge : bridges) {
+            if (!names.add(bridge.getName())) {
+                throw new RuntimeException("Bridge " + bridge.getName() +
+                                           " is listed more than once.");
+            }
+            if (!keyPrefixes.add(bridge.getKeyPrefix())) {
+                throw new RuntimeException("Bridge " + bridge.getName() + " has the same " +
+                                           "key prefix as another bridge: " +
+                                           bridge.getKeyPrefix());
+            }
+        }
+        return bridges;
+    }
+
+    /**
+     * Adds this bridge to a set of properties, encrypting its credentials.
+     * A bridge of the same name already in the properties is replaced.
+     *
+     * @param props - the properties
+     * @param enc   - used to encrypt credentials
+     */
+    public void addTo(Properties props, EncryptionUtil enc) {
+        List<String> names = getNames(props);
+        if (!names.contains(name)) {
+            names.add(name);
+        }
+        StringBuilder nameList = new StringBuilder();
+        for (String bridgeName : names) {
+            nameList.append(nameList.length() == 0 ? "" : ",").append(bridgeName);
+        }
+        props.setProperty(BRIDGE_NAMES_PROP, nameList.toString());
+
+        props.setProperty(key(name, URL_PROP), url);
+        props.setProperty(key(name, USERNAME_PROP), enc.encrypt(username));
+        props.setProperty(key(name, PASSWORD_PROP), enc.encrypt(password));
+        props.setProperty(key(name, KEY_PREFIX_PROP), keyPrefix);
+    }
+
+    private static String defaultKeyPrefix(String name) {
+        return DEFAULT_NAME.equals(name) ? REPORT_PREFIX : REPORT_PREFIX + name + "-";
+    }
+
+    private static List<String> getNames(Properties props) {
+        List<String> names = new ArrayList<>();
+        String nameList = props.getProperty(BRIDGE_NAMES_PROP);
+        if (null != nameList) {
+            for (String name : nameList.split(",")) {
+                name = name.trim();
+                if (!name.isEmpty()) {
+                    names.add(name);
+                }
+            }
+        }
+        return names;
+    }
+
+    private static String key(String name, String property) {
+        return BRIDGE_PREFIX + name + "." + property;
+    }
+
+    private static String getProperty(Properties props,
+                                      String name,
+                                      String property,
+                                      boolean required) {
+        String key = key(name, property);
+        String value = props.getProperty(key);
+        if (null == value || value.trim().isEmpty()) {
+            if (required) {
+                throw new RuntimeException("Properties file is incomplete, " + key +
+                                           " is missing.");
+            }
+            return null;
+        }
+        return value;
+    }
+
+}
@@ -4,18 +4,39 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
 
-import com.amazonaws.AmazonClientException;
 import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.model.ObjectMetadata;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.HelpFormatter;
@@ -23,6 +44,8 @@ import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.cli.PosixParser;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.binary.Hex;
 import org.duracloud.common.model.Credential;
 import org.duracloud.common.util.DateUtil;
 import org.duracloud.common.util.EncryptionUtil;
@@ -47,10 +70,29 @@ public class BridgeReportCaptureTool {
     protected static final String S3_ACCESS_KEY_PROP = "s3-access-key";
     protected static final String S3_SECRET_KEY_PROP = "s3-secret-key";
     protected static final String S3_BUCKET_NAME_PROP = "s3-bucket-name";
+    protected static final String COMPRESS_REPORT_PROP = "compress-report";
+    protected static final String BRIDGE_TIMEOUT_PROP = "bridge-timeout-minutes";
+
+    public static final long DEFAULT_BRIDGE_TIMEOUT_MINUTES = 60;
+
+    // User metadata set on each stored report
+    protected static final String MD5_METADATA = "md5";
+    protected static final String SHA256_METADATA = "sha256";
+    protected static final String REPORT_SIZE_METADATA = "report-size";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
 
     private static Options cmdOptions;
     private static EncryptionUtil encUtil = new EncryptionUtil();
 
+    private List<BridgeConfig> bridges;
+    private Map<String, RestHttpHelper> httpHelpers;
+    private AmazonS3 s3Client;
+    private String s3BucketName;
+    private boolean compress;
+    private boolean timestampedKeys = false;
+    private long bridgeTimeoutMillis = TimeUnit.MINUTES.toMillis(DEFAULT_BRIDGE_TIMEOUT_MINUTES);
+
     /**
      * Kicks off the execution of the tool. Handles retrieving the bridge report and
      * storing that report in S3.
@@ -58,55 +100,373 @@ public class BridgeReportCaptureTool {
      * @throws IOException
      */
     public void run(Properties props) throws IOException {
+        configure(props);
+        CaptureResult result = capture();
+        if (!result.isSuccess()) {
+            throw new RuntimeException("Failed to capture bridge report for " +
+                                       result.getFailureSummary());
+        }
+    }
+
+    /**
+     * Reads the tool configuration, decrypting where needed, and creates the
+     * bridge and S3 clients. These are reused by every capture.
+     *
+     * @param props - the tool configuration
+     */
+    public void configure(Properties props) {
         EncryptionUtil enc = new EncryptionUtil();
 
         // Pull config details from properties, decrypt where needed
-        String bridgeUrl = props.getProperty(BRIDGE_URL_PROP);
-        String bridgeUsername = enc.decrypt(props.getProperty(BRIDGE_USERNAME_PROP));
-        String bridgePassword = enc.decrypt(props.getProperty(BRIDGE_PASSWORD_PROP));
+        List<BridgeConfig> bridges = BridgeConfig.load(props, enc);
         String s3AccessKey = enc.decrypt(props.getProperty(S3_ACCESS_KEY_PROP));
         String s3SecretKey = enc.decrypt(props.getProperty(S3_SECRET_KEY_PROP));
         String s3BucketName = props.getProperty(S3_BUCKET_NAME_PROP);
 
-        if (null == bridgeUrl ||
-            null == bridgeUsername ||
-            null == bridgePassword ||
+        if (bridges.isEmpty() ||
             null == s3AccessKey ||
             null == s3SecretKey ||
             null == s3BucketName) {
             throw new RuntimeException("Properties file is incomplete.");
         }
 
-        Credential bridgeCredential = new Credential(bridgeUsername, bridgePassword);
-        RestHttpHelper httpHelper = new RestHttpHelper(bridgeCredential);
+        String timeoutMinutes = props.getProperty(BRIDGE_TIMEOUT_PROP);
+        if (null != timeoutMinutes) {
+            try {
+                setBridgeTimeoutMillis(
+                    TimeUnit.MINUTES.toMillis(Long.parseLong(timeoutMinutes.trim())));
+            } catch (NumberFormatException e) {
+                throw new RuntimeException(BRIDGE_TIMEOUT_PROP + " must be a number of " +
+                                           "minutes: " + timeoutMinutes);
+            }
+        }
+
+        this.bridges = bridges;
+        this.httpHelpers = new LinkedHashMap<>();
+        for (BridgeConfig bridge : bridges) {
+            Credential bridgeCredential =
+                new Credential(bridge.getUsername(), bridge.getPassword());
+            httpHelpers.put(bridge.getName(), new RestHttpHelper(bridgeCredential));
+        }
+        this.s3Client = createS3Client(s3AccessKey, s3SecretKey);
+        this.s3BucketName = s3BucketName;
+        this.compress = Boolean.parseBoolean(props.getProperty(COMPRESS_REPORT_PROP));
+    }
 
+    protected AmazonS3 createS3Client(String s3AccessKey, String s3SecretKey) {
         BasicAWSCredentials awsCredentials =
             new BasicAWSCredentials(s3AccessKey, s3SecretKey);
-        AmazonS3Client client = new AmazonS3Client(awsCredentials);
+        return new AmazonS3Client(awsCredentials);
+    }
 
-        InputStream bridgeReport;
+    /**
+     * @param bridgeTimeoutMillis - the longest time the capture of one
+     *                              bridge's report may take
+     */
+    public void setBridgeTimeoutMillis(long bridgeTimeoutMillis) {
+        if (bridgeTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("The bridge timeout must be positive");
+        }
+        this.bridgeTimeoutMillis = bridgeTimeoutMillis;
+    }
+
+    /**
+     * @param timestampedKeys - true to include the time of day in the keys of
+     *                          stored reports, so that reports captured more
+     *                          than once a day do not replace each other
+     */
+    public void setTimestampedKeys(boolean timestampedKeys) {
+        this.timestampedKeys = timestampedKeys;
+    }
+
+    /**
+     * @return the names of the configured bridges
+     */
+    public List<String> getBridgeNames() {
+        List<String> names = new ArrayList<>();
+        for (BridgeConfig bridge : bridges) {
+            names.add(bridge.getName());
+        }
+        return names;
+    }
+
+    /**
+     * Captures the report of every configured bridge.
+     *
+     * @return the outcome for each bridge
+     */
+    public CaptureResult capture() {
+        return capture(getBridgeNames());
+    }
+
+    /**
+     * Captures the reports of the given bridges concurrently, using the
+     * clients created by configure(). A bridge whose capture takes longer
+     * than the bridge timeout is abandoned, without holding up the others;
+     * its thread is left to finish on its own, and does not keep the
+     * process from exiting.
+     *
+     * @param bridgeNames - the names of the bridges to capture
+     * @return the outcome for each bridge
+     */
+    public CaptureResult capture(Collection<String> bridgeNames) {
+        CaptureResult result = new CaptureResult();
+        if (bridgeNames.isEmpty()) {
+            return result;
+        }
+
+        // A capture abandoned while waiting on the bridge cannot be stopped,
+        // so its thread must not keep the process running
+        ExecutorService executor =
+            Executors.newFixedThreadPool(bridgeNames.size(), new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread =
+                        new Thread(runnable, "bridge-capture-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        Map<String, BridgeCapture> captures = new LinkedHashMap<>();
+        Map<String, Future<StoredReport>> futures = new LinkedHashMap<>();
         try {
-            RestHttpHelper.HttpResponse bridgeReportResponse = httpHelper.get(bridgeUrl);
-            bridgeReport = bridgeReportResponse.getResponseStream();
-            if (null == bridgeReport) {
-                throw new RuntimeException("Call to bridge to request report failed.");
+            for (String bridgeName : bridgeNames) {
+                BridgeCapture capture = new BridgeCapture(getBridge(bridgeName));
+                captures.put(bridgeName, capture);
+                futures.put(bridgeName, executor.submit(capture));
             }
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to retrieve bridge report due to: " +
-                                       e.getMessage());
+
+            // All captures start together, so share one deadline
+            long deadline = System.currentTimeMillis() + bridgeTimeoutMillis;
+            for (Map.Entry<String, Future<StoredReport>> entry : futures.entrySet()) {
+                String bridgeName = entry.getKey();
+                Future<StoredReport> future = entry.getValue();
+                try {
+                    long remaining = Math.max(0, deadline - System.currentTimeMillis());
+                    result.addStored(bridgeName,
+                                     future.get(remaining, TimeUnit.MILLISECONDS));
+                } catch (TimeoutException e) {
+                    future.cancel(true);
+                    captures.get(bridgeName).abandon();
+                    String error = "Capture did not finish within " +
+                                   TimeUnit.MILLISECONDS.toSeconds(bridgeTimeoutMillis) +
+                                   " seconds";
+                    log.error("Failed to capture report of bridge " + bridgeName + ": " +
+                              error);
+                    result.addFailure(bridgeName, error);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    String error = (null == cause.getMessage()) ? cause.toString()
+                                                                : cause.getMessage();
+                    log.error("Failed to capture report of bridge " + bridgeName + ": " +
+                              error);
+                    result.addFailure(bridgeName, error);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    future.cancel(true);
+                    captures.get(bridgeName).abandon();
+                    result.addFailure(bridgeName, "Capture was interrupted");
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return result;
+    }
+
+    private BridgeConfig getBridge(String bridgeName) {
+        for (BridgeConfig bridge : bridges) {
+            if (bridge.getName().equals(bridgeName)) {
+                return bridge;
+            }
+        }
+        throw new IllegalArgumentException("No bridge is named " + bridgeName);
+    }
+
+    /**
+     * Requests the report of a bridge.
+     *
+     * @param bridge - the bridge
+     * @return the report stream
+     * @throws Exception
+     */
+    protected InputStream openReport(BridgeConfig bridge) throws Exception {
+        RestHttpHelper.HttpResponse bridgeReportResponse =
+            httpHelpers.get(bridge.getName()).get(bridge.getUrl());
+        return getReportStream(bridgeReportResponse);
+    }
+
+    /**
+     * Checks that a bridge responded with its report, rather than an error.
+     *
+     * @param response - the bridge response
+     * @return the report stream, or null if there was no response
+     * @throws IOException if the response status is not 2xx
+     */
+    protected static InputStream getReportStream(RestHttpHelper.HttpResponse response)
+        throws IOException {
+        if (null == response) {
+            return null;
+        }
+        InputStream stream = response.getResponseStream();
+        int status = response.getStatusCode();
+        if (status < 200 || status > 299) {
+            if (null != stream) {
+                stream.close();
+            }
+            throw new IOException("Bridge responded with HTTP status " + status);
+        }
+        return stream;
+    }
+
+    /*
+     * Captures the report of one bridge. The report stream is kept so that
+     * an abandoned capture can be stopped by closing it, which aborts the
+     * upload.
+     */
+    private class BridgeCapture implements Callable<StoredReport> {
+        private final BridgeConfig bridge;
+        private volatile InputStream bridgeReport;
+        private volatile boolean abandoned = false;
+
+        private BridgeCapture(BridgeConfig bridge) {
+            this.bridge = bridge;
         }
 
-        String reportName = "dcv-snapshot-report-" + DateUtil.nowShort() + ".json";
+        @Override
+        public StoredReport call() {
+            try {
+                bridgeReport = openReport(bridge);
+                if (null == bridgeReport) {
+                    throw new RuntimeException("Call to bridge to request report failed.");
+                }
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to retrieve bridge report due to: " +
+                                           e.getMessage());
+            }
+            if (abandoned) {
+                closeReport();
+                throw new RuntimeException("Capture was abandoned");
+            }
 
+            String date = timestampedKeys ? DateUtil.nowPlain() : DateUtil.nowShort();
+            String reportName = bridge.getKeyPrefix() + date + ".json";
+            if (compress) {
+                reportName += ".gz";
+            }
+
+            StoredReport stored;
+            try {
+                stored = storeReport(bridgeReport, s3Client, s3BucketName, reportName, compress);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to write bridge report to S3 due to: " +
+                                           e.getMessage());
+            }
+
+            log.info("Successfully wrote report of bridge " + bridge.getName() + " as " +
+                     reportName + " (" + stored.getReportBytes() + " bytes, " +
+                     stored.getStoredBytes() + " stored, SHA-256 " + stored.getSha256() +
+                     ") to S3 bucket " + s3BucketName);
+            return stored;
+        }
+
+        private void abandon() {
+            abandoned = true;
+            closeReport();
+        }
+
+        private void closeReport() {
+            InputStream report = bridgeReport;
+            if (null != report) {
+                try {
+                    report.close();
+                } catch (IOException e) {
+                    log.debug("Unable to close report of bridge " + bridge.getName() +
+                              ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Streams a report to S3 as it is read, so that the report never needs
+     * to be held in memory, optionally compressing it on the way. The MD5
+     * and SHA-256 digests of the stored bytes are computed in the same pass
+     * and added to the metadata of the stored report. If the report cannot
+     * be read in full, nothing is stored.
+     *
+     * @param report     - the report
+     * @param client     - the S3 client
+     * @param bucketName - the bucket in which to store the report
+     * @param reportName - the key of the stored report
+     * @param compress   - true to store the report gzip compressed
+     * @return the sizes and digests of the stored report
+     * @throws IOException
+     */
+    protected static StoredReport storeReport(InputStream report, AmazonS3 client,
+                                              String bucketName, String reportName,
+                                              boolean compress)
+        throws IOException {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType("application/json");
+        if (compress) {
+            metadata.setContentEncoding("gzip");
+        }
+
+        MessageDigest md5Digest;
+        MessageDigest sha256Digest;
         try {
-            client.putObject(s3BucketName, reportName, bridgeReport, null);
-        } catch (AmazonClientException e) {
-            throw new RuntimeException("Failed to write bridge report to S3 due to: " +
-                                       e.getMessage());
+            md5Digest = MessageDigest.getInstance("MD5");
+            sha256Digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
         }
 
-        log.info("Successfully wrote bridge report " + reportName +
-                 " to S3 bucket " + s3BucketName);
+        S3UploadStream upload = new S3UploadStream(client, bucketName, reportName, metadata);
+        OutputStream digestOut =
+            new DigestOutputStream(new DigestOutputStream(upload, md5Digest), sha256Digest);
+        // Closing the report output releases the compressor, but leaves the
+        // upload open so that the digests can be added to its metadata
+        OutputStream uploadOut = new FilterOutputStream(digestOut) {
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                out.write(bytes, offset, length);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+        long reportBytes = 0;
+        try (OutputStream reportOut =
+                 compress ? new GZIPOutputStream(uploadOut, BUFFER_SIZE) : uploadOut) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = report.read(buffer)) != -1) {
+                reportOut.write(buffer, 0, read);
+                reportBytes += read;
+            }
+        } catch (IOException | RuntimeException e) {
+            upload.abort();
+            throw e;
+        } finally {
+            report.close();
+        }
+
+        byte[] md5 = md5Digest.digest();
+        StoredReport stored =
+            new StoredReport(reportName, reportBytes, upload.getTotalBytes(),
+                             Hex.encodeHexString(md5),
+                             Hex.encodeHexString(sha256Digest.digest()));
+        upload.addUserMetadata(MD5_METADATA, stored.getMd5());
+        upload.addUserMetadata(SHA256_METADATA, stored.getSha256());
+        upload.addUserMetadata(REPORT_SIZE_METADATA, String.valueOf(reportBytes));
+        upload.setContentMd5(Base64.encodeBase64String(md5));
+        upload.close();
+        return stored;
     }
 
     /*
@@ -153,6 +513,42 @@ public class BridgeReportCaptureTool {
             new Option("b", "s3-bucket-name", true, "the S3 bucket name");
         s3BucketNameOption.setRequired(false);
         cmdOptions.addOption(s3BucketNameOption);
+
+        Option compressOption =
+            new Option("z", "compress", false,
+                       "store reports gzip compressed; when writing a properties " +
+                       "file, this is saved as the default for captures");
+        compressOption.setRequired(false);
+        cmdOptions.addOption(compressOption);
+
+        Option daemonIntervalOption =
+            new Option("d", "daemon-interval", true,
+                       "keep running and capture a report every given number of " +
+                       "minutes, starting right away; with an interval of less " +
+                       "than a day, the time of day is added to report names");
+        daemonIntervalOption.setRequired(false);
+        cmdOptions.addOption(daemonIntervalOption);
+
+        Option statusFileOption =
+            new Option("t", "status-file", true,
+                       "the path of a file to which the status of the last capture " +
+                       "is written when running with -d");
+        statusFileOption.setRequired(false);
+        cmdOptions.addOption(statusFileOption);
+
+        Option bridgeNameOption =
+            new Option("n", "bridge-name", true,
+                       "when writing a properties file, adds the bridge given by -r, -u " +
+                       "and -p under this name to the bridges already in the file");
+        bridgeNameOption.setRequired(false);
+        cmdOptions.addOption(bridgeNameOption);
+
+        Option keyPrefixOption =
+            new Option("k", "key-prefix", true,
+                       "the prefix of the S3 keys of the named bridge's reports " +
+                       "(default: " + BridgeConfig.REPORT_PREFIX + "<name>-)");
+        keyPrefixOption.setRequired(false);
+        cmdOptions.addOption(keyPrefixOption);
     }
 
     /*
@@ -167,6 +563,19 @@ public class BridgeReportCaptureTool {
         }
     }
 
+    /*
+     * Determines whether the arguments describe a properties file to be
+     * written, which is the case when any of the values it holds are given
+     */
+    protected static boolean isWritePropsMode(CommandLine cmd) {
+        for (String option : new String[] {"r", "u", "p", "a", "s", "b", "n", "k"}) {
+            if (cmd.hasOption(option)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /*
      * Reads tool configuration properties from a file
      */
@@ -206,14 +615,25 @@ public class BridgeReportCaptureTool {
         try {
             createArgsParser();
 
-            if (args.length == 2) { // Capture report mode
-                CommandLine cmd = parseArgs(args);
+            if (args.length == 0) {
+                usage();
+            }
+
+            CommandLine cmd = parseArgs(args);
+            if (!isWritePropsMode(cmd)) { // Capture report mode
                 String propsFilePath = cmd.getOptionValue("f");
                 Properties props = readProps(propsFilePath);
+                if (cmd.hasOption("z")) {
+                    props.put(COMPRESS_REPORT_PROP, String.valueOf(true));
+                }
                 BridgeReportCaptureTool tool = new BridgeReportCaptureTool();
-                tool.run(props);
-            } else if (args.length > 2) { // Write properties mode
-                CommandLine cmd = parseArgs(args);
+                if (cmd.hasOption("d")) { // Daemon mode
+                    tool.configure(props);
+                    runDaemon(tool, cmd.getOptionValue("d"), cmd.getOptionValue("t"));
+                } else {
+                    tool.run(props);
+                }
+            } else { // Write properties mode
                 String propsFilePath = cmd.getOptionValue("f");
                 String bridgeUrl = cmd.getOptionValue("r");
                 String bridgeUsername = cmd.getOptionValue("u");
@@ -221,14 +641,24 @@ public class BridgeReportCaptureTool {
                 String s3AccessKey = cmd.getOptionValue("a");
                 String s3SecretKey = cmd.getOptionValue("s");
                 String s3BucketName = cmd.getOptionValue("b");
+                String bridgeName = cmd.getOptionValue("n");
+
+                // A named bridge is added to an existing file, which may
+                // already hold the S3 details
+                Properties props = new Properties();
+                if (null != bridgeName && null != propsFilePath &&
+                    new File(propsFilePath).exists()) {
+                    props = readProps(propsFilePath);
+                }
+                boolean hasS3 = null != s3AccessKey &&
+                                null != s3SecretKey &&
+                                null != s3BucketName;
 
                 if (null == propsFilePath ||
                     null == bridgeUrl ||
                     null == bridgeUsername ||
                     null == bridgePassword ||
-                    null == s3AccessKey ||
-                    null == s3SecretKey ||
-                    null == s3BucketName) {
+                    (!hasS3 && !props.containsKey(S3_ACCESS_KEY_PROP))) {
                     System.out.println("To write properties file, " +
                                        "all parameters are required.");
                     usage();
@@ -236,19 +666,28 @@ public class BridgeReportCaptureTool {
 
                 EncryptionUtil enc = new EncryptionUtil();
 
-                Properties props = new Properties();
-                props.put(BRIDGE_URL_PROP, bridgeUrl);
-                props.put(BRIDGE_USERNAME_PROP, enc.encrypt(bridgeUsername));
-                props.put(BRIDGE_PASSWORD_PROP, enc.encrypt(bridgePassword));
-                props.put(S3_ACCESS_KEY_PROP, enc.encrypt(s3AccessKey));
-                props.put(S3_SECRET_KEY_PROP, enc.encrypt(s3SecretKey));
-                props.put(S3_BUCKET_NAME_PROP, s3BucketName);
+                if (null == bridgeName) {
+                    props.put(BRIDGE_URL_PROP, bridgeUrl);
+                    props.put(BRIDGE_USERNAME_PROP, enc.encrypt(bridgeUsername));
+                    props.put(BRIDGE_PASSWORD_PROP, enc.encrypt(bridgePassword));
+                } else {
+                    new BridgeConfig(bridgeName, bridgeUrl, bridgeUsername, bridgePassword,
+                                     cmd.getOptionValue("k")).addTo(props, enc);
+                }
+                if (hasS3) {
+                    props.put(S3_ACCESS_KEY_PROP, enc.encrypt(s3AccessKey));
+                    props.put(S3_SECRET_KEY_PROP, enc.encrypt(s3SecretKey));
+                    props.put(S3_BUCKET_NAME_PROP, s3BucketName);
+                }
+                if (cmd.hasOption("z")) {
+                    props.put(COMPRESS_REPORT_PROP, String.valueOf(true));
+                }
 
+                // Fails if the bridges could not be read back
+                BridgeConfig.load(props, enc);
                 writeProps(propsFilePath, props);
                 System.out.println("Successfully wrote properties file to: " +
                                    propsFilePath);
-            } else {
-                usage();
             }
         } catch (Exception e) {
             System.out.println(e.getMessage());
@@ -256,6 +695,43 @@ public class BridgeReportCaptureTool {
         }
     }
 
+    /*
+     * Captures reports on a schedule until the process is stopped
+     */
+    private static void runDaemon(BridgeReportCaptureTool tool, String intervalMinutes,
+                                  String statusFilePath) throws InterruptedException {
+        long interval;
+        try {
+            interval = Long.parseLong(intervalMinutes);
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("The daemon interval must be a number of minutes: " +
+                                       intervalMinutes);
+        }
+        if (interval <= 0) {
+            throw new RuntimeException("The daemon interval must be at least one minute");
+        }
+
+        // Reports named by date alone would replace each other within a day
+        tool.setTimestampedKeys(interval < TimeUnit.DAYS.toMinutes(1));
+
+        File statusFile = (null == statusFilePath) ? null : new File(statusFilePath);
+        final CaptureScheduler scheduler =
+            new CaptureScheduler(tool, TimeUnit.MINUTES.toMillis(interval), statusFile);
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                try {
+                    // Give a capture in progress the chance to finish
+                    scheduler.stop(TimeUnit.MINUTES.toMillis(1));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        scheduler.start();
+        scheduler.awaitStop();
+    }
+
     /**
      * Called when the command line arguments are not valid. Prints information
      * about how the tool should be used and exits.
@@ -265,9 +741,15 @@ public class BridgeReportCaptureTool {
         formatter.printHelp("The Bridge Report Capture Tool can be run in one of two " +
                             "modes. The first takes all parameters and creates an " +
                             "encrypted properties file; the second takes only the " +
-                            "-f parameter to specify the properties file. It is the " +
+                            "-f parameter to specify the properties file (and " +
+                            "optionally -z to compress the report). It is the " +
                             "second mode in which calls are made to the bridge app to " +
-                            "retrieve a report and store that report in S3.", cmdOptions);
+                            "retrieve a report and store that report in S3. Adding -d " +
+                            "to the second mode keeps the tool running to capture a " +
+                            "report at that interval. Adding -n to the first mode adds " +
+                            "a named bridge to an existing properties file; the " +
+                            "reports of all bridges in the file are captured " +
+                            "concurrently.", cmdOptions);
         System.exit(1);
     }
 
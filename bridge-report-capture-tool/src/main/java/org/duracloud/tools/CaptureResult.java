@@ -0,0 +1,58 @@
+package org.duracloud.tools;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Capture Result - The outcome of capturing the reports of one or more
+ *                  bridges: the report stored for each bridge which
+ *                  succeeded, and the reason for each which failed.
+ */
+public class CaptureResult {
+
+    private Map<String, StoredReport> stored = new LinkedHashMap<>();
+    private Map<String, String> failures = new LinkedHashMap<>();
+
+    public void addStored(String bridgeName, StoredReport report) {
+        stored.put(bridgeName, report);
+    }
+
+    public void addFailure(String bridgeName, String error) {
+        failures.put(bridgeName, error);
+    }
+
+    /**
+     * @return the stored reports, by bridge name
+     */
+    public Map<String, StoredReport> getStored() {
+        return Collections.unmodifiableMap(stored);
+    }
+
+    /**
+     * @return the reasons captures failed, by bridge name
+     */
+    public Map<String, String> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * @return true if every bridge's report was stored
+     */
+    public boolean isSuccess() {
+        return failures.isEmpty();
+    }
+
+    /**
+     * @return the failures as "bridge: reason" separated by "; "
+     */
+    public String getFailureSummary() {
+        StringBuilder summary = new StringBuilder();
+        for (Map.Entry<String, String> failure : failures.entrySet()) {
+            summary.append(summary.length() == 0 ? "" : "; ")
+                   .append(failure.getKey()).append(": ").append(failure.getValue());
+        }
+        return summary.toString();
+    }
+
+}
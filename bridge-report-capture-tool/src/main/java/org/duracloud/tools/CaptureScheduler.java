@@ -0,0 +1,239 @@
+package org.duracloud.tools;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Capture Scheduler - Captures bridge reports at a fixed interval within a
+ *                     single long-running process, so that configuration is
+ *                     decrypted once and the bridge and S3 clients (with their
+ *                     connection pools) are reused by every capture.
+ *
+ *                     When any bridge fails, its capture (and only its) is
+ *                     retried after a delay which doubles with each failure,
+ *                     up to a limit on retries, after which the next capture
+ *                     of all bridges happens at its usual time. Captures run
+ *                     one at a time on a single thread, and each run schedules
+ *                     the next, so a slow capture or retry never overlaps
+ *                     another.
+ *
+ *                     The outcome of the last run is logged, available from
+ *                     getStatus(), and optionally written to a status file.
+ */
+public class CaptureScheduler {
+
+    public static final int DEFAULT_MAX_RETRIES = 5;
+    public static final long DEFAULT_INITIAL_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final Logger log = LoggerFactory.getLogger(CaptureScheduler.class);
+
+    private final BridgeReportCaptureTool tool;
+    private final long intervalMillis;
+    private final long initialBackoffMillis;
+    private final int maxRetries;
+    private final File statusFile;
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final CaptureStatus status = new CaptureStatus();
+
+    // Accessed only by the scheduler thread
+    private long cycleStart;
+    private int retries = 0;
+    private List<String> pendingBridges;
+
+    /**
+     * @param tool           - the configured tool with which to capture reports
+     * @param intervalMillis - the time between the start of each capture
+     * @param statusFile     - the file to which the status is written after
+     *                         each run, or null
+     */
+    public CaptureScheduler(BridgeReportCaptureTool tool, long intervalMillis, File statusFile) {
+        this(tool, intervalMillis, DEFAULT_INITIAL_BACKOFF_MILLIS, DEFAULT_MAX_RETRIES,
+             statusFile);
+    }
+
+    /**
+     * @param tool                 - the configured tool with which to capture
+     *                               reports
+     * @param intervalMillis       - the time between the start of each capture
+     * @param initialBackoffMillis - the delay before the first retry of a
+     *                               failed capture, doubled for each retry
+     *                               after it but never more than the interval
+     * @param maxRetries           - the number of times a failed capture is
+     *                               retried
+     * @param statusFile           - the file to which the status is written
+     *                               after each run, or null
+     */
+    public CaptureScheduler(BridgeReportCaptureTool tool, long intervalMillis,
+                            long initialBackoffMillis, int maxRetries, File statusFile) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("The capture interval must be positive");
+        }
+        this.tool = tool;
+        this.intervalMillis = intervalMillis;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxRetries = maxRetries;
+        this.statusFile = statusFile;
+        this.executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable, "bridge-report-capture");
+            }
+        });
+        // A capture waiting for its time is dropped when capturing stops
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Starts capturing, with the first capture right away.
+     */
+    public void start() {
+        log.info("Capturing bridge reports every " +
+                 TimeUnit.MILLISECONDS.toMinutes(intervalMillis) + " minutes");
+        synchronized (status) {
+            status.setNextRun(new Date());
+        }
+        schedule(0);
+    }
+
+    /**
+     * Stops capturing, waiting for a capture in progress to finish.
+     *
+     * @param timeoutMillis - the longest time to wait for a capture in
+     *                        progress
+     * @return true if no capture was left in progress
+     * @throws InterruptedException
+     */
+    public boolean stop(long timeoutMillis) throws InterruptedException {
+        executor.shutdown();
+        return executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Waits until capturing is stopped.
+     *
+     * @throws InterruptedException
+     */
+    public void awaitStop() throws InterruptedException {
+        while (!executor.awaitTermination(1, TimeUnit.DAYS)) {
+            // Keep waiting
+        }
+    }
+
+    /**
+     * @return a copy of the status of the last run
+     */
+    public CaptureStatus getStatus() {
+        synchronized (status) {
+            return new CaptureStatus(status);
+        }
+    }
+
+    private void schedule(long delayMillis) {
+        try {
+            executor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    runCapture();
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.debug("Capturing stopped; no further captures scheduled");
+        }
+    }
+
+    /*
+     * Makes one attempt to capture a report, then schedules either a retry
+     * or the next capture
+     */
+    private void runCapture() {
+        Date attempt = new Date();
+        if (retries == 0) {
+            cycleStart = attempt.getTime();
+            pendingBridges = tool.getBridgeNames();
+        }
+
+        CaptureResult result;
+        try {
+            result = tool.capture(pendingBridges);
+        } catch (Exception e) {
+            result = new CaptureResult();
+            String error = (null == e.getMessage()) ? e.toString() : e.getMessage();
+            for (String bridgeName : pendingBridges) {
+                result.addFailure(bridgeName, error);
+            }
+        }
+        String error = result.getFailureSummary();
+
+        long delayMillis;
+        if (result.isSuccess()) {
+            retries = 0;
+            delayMillis = cycleStart + intervalMillis - System.currentTimeMillis();
+        } else if (retries < maxRetries) {
+            delayMillis = Math.min(initialBackoffMillis * (1L << Math.min(retries, 30)),
+                                   intervalMillis);
+            retries++;
+            pendingBridges = new ArrayList<>(result.getFailures().keySet());
+            log.warn("Bridge report capture failed due to: " + error + "; retry " +
+                     retries + " of " + maxRetries + " in " + delayMillis + " ms");
+        } else {
+            log.error("Bridge report capture failed due to: " + error + "; giving up " +
+                      "after " + maxRetries + " retries until the next scheduled capture");
+            retries = 0;
+            delayMillis = cycleStart + intervalMillis - System.currentTimeMillis();
+        }
+        delayMillis = Math.max(0, delayMillis);
+
+        // Record the outcome and the next run together
+        synchronized (status) {
+            status.recordResult(attempt, result);
+            status.setNextRun(executor.isShutdown() ? null :
+                              new Date(System.currentTimeMillis() + delayMillis));
+        }
+        writeStatus();
+        log.info("Bridge report capture status: " + getStatus());
+
+        if (!executor.isShutdown()) {
+            schedule(delayMillis);
+        }
+    }
+
+    /*
+     * Writes the status to a temporary file which then replaces the status
+     * file, so that readers never see a partial status
+     */
+    private void writeStatus() {
+        if (null == statusFile) {
+            return;
+        }
+        File tempFile = new File(statusFile.getAbsolutePath() + ".tmp");
+        try {
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile),
+                                                        StandardCharsets.UTF_8)) {
+                getStatus().toProperties().store(writer, "Bridge report capture status");
+            }
+            Files.move(tempFile.toPath(), statusFile.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Unable to write capture status to " + statusFile + " due to: " +
+                     e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,173 @@
+package org.duracloud.tools;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TimeZone;
+
+/*
+ * Capture Status - The outcome of the most recent bridge report captures made
+ *                  by a CaptureScheduler. An attempt fails if the capture of
+ *                  any bridge it includes fails.
+ */
+public class CaptureStatus {
+
+    public enum Result {NONE, SUCCESS, FAILURE}
+
+    private Result lastResult = Result.NONE;
+    private Date lastAttempt;
+    private Date lastSuccess;
+    // The latest report stored for each bridge, by bridge name
+    private Map<String, String> lastReportNames = new LinkedHashMap<>();
+    private String lastError;
+    private int consecutiveFailures = 0;
+    private int totalCaptures = 0;
+    private int totalFailures = 0;
+    private Date nextRun;
+
+    protected CaptureStatus() {
+    }
+
+    protected CaptureStatus(CaptureStatus status) {
+        this.lastResult = status.lastResult;
+        this.lastAttempt = status.lastAttempt;
+        this.lastSuccess = status.lastSuccess;
+        this.lastReportNames = new LinkedHashMap<>(status.lastReportNames);
+        this.lastError = status.lastError;
+        this.consecutiveFailures = status.consecutiveFailures;
+        this.totalCaptures = status.totalCaptures;
+        this.totalFailures = status.totalFailures;
+        this.nextRun = status.nextRun;
+    }
+
+    protected void recordResult(Date attempt, CaptureResult result) {
+        lastAttempt = attempt;
+        if (!result.getStored().isEmpty()) {
+            lastSuccess = attempt;
+            for (Map.Entry<String, StoredReport> stored : result.getStored().entrySet()) {
+                lastReportNames.put(stored.getKey(), stored.getValue().getReportName());
+            }
+        }
+        totalCaptures += result.getStored().size();
+        totalFailures += result.getFailures().size();
+
+        if (result.isSuccess()) {
+            lastResult = Result.SUCCESS;
+            lastError = null;
+            consecutiveFailures = 0;
+        } else {
+            lastResult = Result.FAILURE;
+            lastError = result.getFailureSummary();
+            consecutiveFailures++;
+        }
+    }
+
+    protected void setNextRun(Date nextRun) {
+        this.nextRun = nextRun;
+    }
+
+    public Result getLastResult() {
+        return lastResult;
+    }
+
+    public Date getLastAttempt() {
+        return lastAttempt;
+    }
+
+    public Date getLastSuccess() {
+        return lastSuccess;
+    }
+
+    /**
+     * @return the latest report stored for each bridge, so that a retry of
+     *         some bridges leaves the reports of the others listed
+     */
+    public List<String> getLastReportNames() {
+        return new ArrayList<>(lastReportNames.values());
+    }
+
+    /**
+     * @return the reason the last attempt failed, or null if it did not
+     */
+    public String getLastError() {
+        return lastError;
+    }
+
+    /**
+     * @return the number of attempts which have failed since the last
+     *         attempt which succeeded for all bridges
+     */
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * @return the number of reports stored
+     */
+    public int getTotalCaptures() {
+        return totalCaptures;
+    }
+
+    /**
+     * @return the number of bridge captures which failed
+     */
+    public int getTotalFailures() {
+        return totalFailures;
+    }
+
+    public Date getNextRun() {
+        return nextRun;
+    }
+
+    /**
+     * @return the status as properties, with times in ISO 8601 UTC
+     */
+    public Properties toProperties() {
+        Properties props = new Properties();
+        props.setProperty("last-result", lastResult.name());
+        putIfSet(props, "last-attempt", format(lastAttempt));
+        putIfSet(props, "last-success", format(lastSuccess));
+        if (!lastReportNames.isEmpty()) {
+            StringBuilder reports = new StringBuilder();
+            for (String reportName : lastReportNames.values()) {
+                reports.append(reports.length() == 0 ? "" : ",").append(reportName);
+            }
+            props.setProperty("last-reports", reports.toString());
+        }
+        putIfSet(props, "last-error", lastError);
+        props.setProperty("consecutive-failures", String.valueOf(consecutiveFailures));
+        props.setProperty("total-captures", String.valueOf(totalCaptures));
+        props.setProperty("total-failures", String.valueOf(totalFailures));
+        putIfSet(props, "next-run", format(nextRun));
+        return props;
+    }
+
+    @Override
+    public String toString() {
+        return "last result " + lastResult +
+               (null == lastAttempt ? "" : " at " + format(lastAttempt)) +
+               (null == lastError ? "" : " (" + lastError + ")") +
+               ", consecutive failures " + consecutiveFailures +
+               (null == nextRun ? "" : ", next run at " + format(nextRun));
+    }
+
+    private static void putIfSet(Properties props, String name, String value) {
+        if (null != value) {
+            props.setProperty(name, value);
+        }
+    }
+
+    private static String format(Date date) {
+        if (null == date) {
+            return null;
+        }
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(date);
+    }
+
+}
@@ -0,0 +1,380 @@
+package org.duracloud.tools;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CopyObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * S3 Upload Stream - Writes an object of unknown length to S3 without holding
+ *                    all of it in memory.
+ *
+ *                    Bytes are collected into fixed-size parts. Once the first
+ *                    part fills, a multipart upload is started and each full
+ *                    part is uploaded on a background thread while the next
+ *                    is filled. At most concurrentParts parts are in flight;
+ *                    writes block until one finishes, so no more than
+ *                    concurrentParts + 1 part buffers are ever allocated.
+ *                    An object smaller than one part is stored with a single
+ *                    put, with its length set.
+ *
+ *                    If a part fails, or abort() is called, the multipart
+ *                    upload is aborted so no partial object is left behind.
+ *
+ *                    Values known only once all bytes are written, such as
+ *                    checksums, can be added with addUserMetadata() before
+ *                    close(). They are part of the single put, or, as a
+ *                    multipart upload fixes its metadata when it starts, are
+ *                    applied by copying the completed object onto itself.
+ */
+public class S3UploadStream extends OutputStream {
+
+    // The smallest part size S3 accepts for all but the last part
+    public static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+    public static final int DEFAULT_PART_SIZE = 8 * 1024 * 1024;
+    public static final int DEFAULT_CONCURRENT_PARTS = 4;
+    // The largest object S3 can copy with a single request
+    public static final long MAX_COPY_SIZE = 5L * 1024 * 1024 * 1024;
+
+    private final Logger log = LoggerFactory.getLogger(S3UploadStream.class);
+
+    private final AmazonS3 s3Client;
+    private final String bucketName;
+    private final String key;
+    private final ObjectMetadata metadata;
+    private final int partSize;
+
+    private final ExecutorService executor;
+    private final Semaphore partsInFlight;
+    private final ConcurrentLinkedQueue<byte[]> freeBuffers = new ConcurrentLinkedQueue<>();
+    private final List<Future<PartETag>> parts = new ArrayList<>();
+    private final Map<String, String> lateMetadata = new LinkedHashMap<>();
+    private String contentMd5;
+
+    private byte[] buffer;
+    private int count = 0;
+    private long totalBytes = 0;
+    private String uploadId;
+    private boolean closed = false;
+
+    /**
+     * Creates a stream which uploads with the default part size and
+     * concurrency.
+     *
+     * @param s3Client   - the S3 client
+     * @param bucketName - the bucket in which to store the object
+     * @param key        - the key of the object
+     * @param metadata   - metadata to set on the object, or null
+     */
+    public S3UploadStream(AmazonS3 s3Client, String bucketName, String key,
+                          ObjectMetadata metadata) {
+        this(s3Client, bucketName, key, metadata,
+             DEFAULT_PART_SIZE, DEFAULT_CONCURRENT_PARTS);
+    }
+
+    /**
+     * @param s3Client        - the S3 client
+     * @param bucketName      - the bucket in which to store the object
+     * @param key             - the key of the object
+     * @param metadata        - metadata to set on the object, or null
+     * @param partSize        - the size in bytes of each part, at least
+     *                          MIN_PART_SIZE
+     * @param concurrentParts - the number of parts which may be uploading at
+     *                          one time
+     */
+    public S3UploadStream(AmazonS3 s3Client, String bucketName, String key,
+                          ObjectMetadata metadata, int partSize, int concurrentParts) {
+        if (partSize < MIN_PART_SIZE) {
+            throw new IllegalArgumentException("Part size must be at least " +
+                                               MIN_PART_SIZE + " bytes");
+        }
+        if (concurrentParts < 1) {
+            throw new IllegalArgumentException("At least one part must be " +
+                                               "allowed to upload at a time");
+        }
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+        this.key = key;
+        this.metadata = (null == metadata) ? new ObjectMetadata() : metadata;
+        this.partSize = partSize;
+        this.executor = Executors.newFixedThreadPool(concurrentParts);
+        this.partsInFlight = new Semaphore(concurrentParts);
+        this.buffer = new byte[partSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        checkOpen();
+        buffer[count++] = (byte) b;
+        if (count == partSize) {
+            uploadPart();
+        }
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        checkOpen();
+        while (length > 0) {
+            int copied = Math.min(length, partSize - count);
+            System.arraycopy(bytes, offset, buffer, count, copied);
+            count += copied;
+            offset += copied;
+            length -= copied;
+            if (count == partSize) {
+                uploadPart();
+            }
+        }
+    }
+
+    /**
+     * @return the number of bytes written to the stream
+     */
+    public long getTotalBytes() {
+        return totalBytes + count;
+    }
+
+    /**
+     * Adds user metadata to the object once all bytes are written.
+     *
+     * @param name  - the metadata name
+     * @param value - the metadata value
+     */
+    public void addUserMetadata(String name, String value) {
+        lateMetadata.put(name, value);
+    }
+
+    /**
+     * Sets the base64 encoded MD5 of the object, which S3 checks when the
+     * object is stored with a single put. Multipart uploads are not checked.
+     *
+     * @param contentMd5 - the base64 encoded MD5 digest of the object
+     */
+    public void setContentMd5(String contentMd5) {
+        this.contentMd5 = contentMd5;
+    }
+
+    /**
+     * @return true if the object is being stored with a multipart upload
+     */
+    public boolean isMultipart() {
+        return null != uploadId;
+    }
+
+    /**
+     * Completes the upload: stores the object with a single put if it fits in
+     * one part, otherwise uploads the last part, waits for all parts and
+     * completes the multipart upload.
+     *
+     * @throws IOException if the object could not be stored, in which case
+     *                     any multipart upload has been aborted
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (null == uploadId) {
+                ObjectMetadata putMetadata = withLateMetadata();
+                putMetadata.setContentLength(count);
+                if (null != contentMd5) {
+                    putMetadata.setContentMD5(contentMd5);
+                }
+                s3Client.putObject(new PutObjectRequest(bucketName, key,
+                                                        new ByteArrayInputStream(buffer, 0, count),
+                                                        putMetadata));
+            } else {
+                if (count > 0) {
+                    submitPart();
+                }
+                List<PartETag> partETags = new ArrayList<>();
+                for (Future<PartETag> part : parts) {
+                    partETags.add(part.get());
+                }
+                s3Client.completeMultipartUpload(
+                    new CompleteMultipartUploadRequest(bucketName, key, uploadId, partETags));
+                log.debug("Completed upload of {} in {} parts", key, partETags.size());
+                if (!lateMetadata.isEmpty()) {
+                    updateMetadata();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abortUpload();
+            throw new IOException("Interrupted while uploading " + key, e);
+        } catch (ExecutionException | AmazonClientException e) {
+            abortUpload();
+            Throwable cause = (e instanceof ExecutionException) ? e.getCause() : e;
+            throw new IOException("Failed to upload " + key + " due to: " +
+                                  cause.getMessage(), cause);
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Discards the object: no further bytes are accepted and any multipart
+     * upload is aborted. Used when the source of the object fails part way.
+     */
+    public void abort() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        abortUpload();
+        release();
+    }
+
+    /*
+     * Starts the multipart upload if needed and submits the filled buffer as
+     * the next part, then takes a free buffer to fill
+     */
+    private void uploadPart() throws IOException {
+        try {
+            if (null == uploadId) {
+                uploadId = s3Client.initiateMultipartUpload(
+                    new InitiateMultipartUploadRequest(bucketName, key, metadata)).getUploadId();
+                log.debug("Started multipart upload of {}", key);
+            }
+            submitPart();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort();
+            throw new IOException("Interrupted while uploading " + key, e);
+        } catch (ExecutionException | AmazonClientException e) {
+            abort();
+            Throwable cause = (e instanceof ExecutionException) ? e.getCause() : e;
+            throw new IOException("Failed to upload " + key + " due to: " +
+                                  cause.getMessage(), cause);
+        }
+
+        byte[] free = freeBuffers.poll();
+        buffer = (null == free) ? new byte[partSize] : free;
+    }
+
+    private void submitPart() throws InterruptedException, ExecutionException {
+        // Wait for a part to finish if the limit is in flight
+        partsInFlight.acquire();
+        checkParts();
+
+        final byte[] partBuffer = buffer;
+        final int partLength = count;
+        final int partNumber = parts.size() + 1;
+        final UploadPartRequest request = new UploadPartRequest()
+            .withBucketName(bucketName)
+            .withKey(key)
+            .withUploadId(uploadId)
+            .withPartNumber(partNumber)
+            .withPartSize(partLength)
+            .withInputStream(new ByteArrayInputStream(partBuffer, 0, partLength));
+        if (partLength < partSize) {
+            request.setLastPart(true);
+        }
+
+        parts.add(executor.submit(new Callable<PartETag>() {
+            @Override
+            public PartETag call() {
+                try {
+                    return s3Client.uploadPart(request).getPartETag();
+                } finally {
+                    freeBuffers.add(partBuffer);
+                    partsInFlight.release();
+                }
+            }
+        }));
+        totalBytes += partLength;
+        buffer = null;
+        count = 0;
+    }
+
+    /*
+     * Fails fast when a part which has already finished failed
+     */
+    private void checkParts() throws InterruptedException, ExecutionException {
+        for (Future<PartETag> part : parts) {
+            if (part.isDone()) {
+                part.get();
+            }
+        }
+    }
+
+    /*
+     * Replaces the metadata of the completed object with the metadata it
+     * started with plus that added since
+     */
+    private void updateMetadata() throws IOException {
+        if (totalBytes > MAX_COPY_SIZE) {
+            log.warn("Metadata {} not added to {}, as it is too large to copy",
+                     lateMetadata, key);
+            return;
+        }
+        try {
+            s3Client.copyObject(new CopyObjectRequest(bucketName, key, bucketName, key)
+                                    .withNewObjectMetadata(withLateMetadata()));
+        } catch (AmazonClientException e) {
+            throw new IOException("Stored " + key + " but failed to add metadata " +
+                                  lateMetadata + " due to: " + e.getMessage(), e);
+        }
+    }
+
+    private ObjectMetadata withLateMetadata() {
+        ObjectMetadata fullMetadata = metadata.clone();
+        for (Map.Entry<String, String> entry : lateMetadata.entrySet()) {
+            fullMetadata.addUserMetadata(entry.getKey(), entry.getValue());
+        }
+        return fullMetadata;
+    }
+
+    private void abortUpload() {
+        for (Future<PartETag> part : parts) {
+            part.cancel(true);
+        }
+        if (null != uploadId) {
+            try {
+                s3Client.abortMultipartUpload(
+                    new AbortMultipartUploadRequest(bucketName, key, uploadId));
+                log.debug("Aborted multipart upload of {}", key);
+            } catch (AmazonClientException e) {
+                log.warn("Unable to abort multipart upload of " + key +
+                         " (upload ID " + uploadId + ") due to: " + e.getMessage());
+            }
+        }
+    }
+
+    private void release() {
+        executor.shutdownNow();
+        freeBuffers.clear();
+        buffer = null;
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Upload of " + key + " is closed");
+        }
+    }
+
+}
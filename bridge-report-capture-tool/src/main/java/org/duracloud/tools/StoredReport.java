@@ -0,0 +1,51 @@
+package org.duracloud.tools;
+
+/*
+ * Stored Report - The size and digests of a bridge report stored in S3.
+ */
+public class StoredReport {
+
+    private String reportName;
+    private long reportBytes;
+    private long storedBytes;
+    private String md5;
+    private String sha256;
+
+    /**
+     * @param reportName  - the key of the stored report
+     * @param reportBytes - the size of the report as retrieved from the bridge
+     * @param storedBytes - the size of the report as stored, after any
+     *                      compression
+     * @param md5         - the hex encoded MD5 digest of the stored bytes
+     * @param sha256      - the hex encoded SHA-256 digest of the stored bytes
+     */
+    public StoredReport(String reportName, long reportBytes, long storedBytes,
+                        String md5, String sha256) {
+        this.reportName = reportName;
+        this.reportBytes = reportBytes;
+        this.storedBytes = storedBytes;
+        this.md5 = md5;
+        this.sha256 = sha256;
+    }
+
+    public String getReportName() {
+        return reportName;
+    }
+
+    public long getReportBytes() {
+        return reportBytes;
+    }
+
+    public long getStoredBytes() {
+        return storedBytes;
+    }
+
+    public String getMd5() {
+        return md5;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+}
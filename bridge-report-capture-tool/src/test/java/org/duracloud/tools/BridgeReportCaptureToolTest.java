@@ -10,15 +10,48 @@ package org.duracloud.tools;
 import static org.duracloud.tools.BridgeReportCaptureTool.BRIDGE_PASSWORD_PROP;
 import static org.duracloud.tools.BridgeReportCaptureTool.BRIDGE_URL_PROP;
 import static org.duracloud.tools.BridgeReportCaptureTool.BRIDGE_USERNAME_PROP;
+import static org.duracloud.tools.BridgeReportCaptureTool.MD5_METADATA;
+import static org.duracloud.tools.BridgeReportCaptureTool.REPORT_SIZE_METADATA;
 import static org.duracloud.tools.BridgeReportCaptureTool.S3_ACCESS_KEY_PROP;
 import static org.duracloud.tools.BridgeReportCaptureTool.S3_BUCKET_NAME_PROP;
 import static org.duracloud.tools.BridgeReportCaptureTool.S3_SECRET_KEY_PROP;
+import static org.duracloud.tools.BridgeReportCaptureTool.SHA256_METADATA;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
 
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.duracloud.common.util.DateUtil;
+import org.duracloud.common.util.EncryptionUtil;
+import org.duracloud.common.web.RestHttpHelper;
+import org.easymock.Capture;
+import org.easymock.CaptureType;
+import org.easymock.EasyMock;
 import org.junit.Test;
 
 /**
@@ -75,4 +108,269 @@ public class BridgeReportCaptureToolTest {
 
     }
 
+    /**
+     * Tests storing a compressed report, along with the digests of the
+     * stored bytes
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testStoreCompressedReport() throws Exception {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 10000; i++) {
+            json.append(i == 0 ? "" : ",")
+                .append("{\"snapshotId\": \"snapshot-").append(i)
+                .append("\", \"status\": \"SNAPSHOT_COMPLETE\"}");
+        }
+        byte[] report = json.append("]").toString().getBytes(StandardCharsets.UTF_8);
+
+        AmazonS3 s3Client = EasyMock.createMock(AmazonS3.class);
+        Capture<PutObjectRequest> putCapture = Capture.newInstance();
+        EasyMock.expect(s3Client.putObject(EasyMock.capture(putCapture)))
+                .andReturn(new PutObjectResult());
+        EasyMock.replay(s3Client);
+
+        StoredReport stored =
+            BridgeReportCaptureTool.storeReport(new ByteArrayInputStream(report), s3Client,
+                                                "bucket", "report.json.gz", true);
+        EasyMock.verify(s3Client);
+
+        byte[] storedBytes = IOUtils.toByteArray(putCapture.getValue().getInputStream());
+        assertArrayEquals(report,
+                          IOUtils.toByteArray(new GZIPInputStream(
+                              new ByteArrayInputStream(storedBytes))));
+        assertEquals(report.length, stored.getReportBytes());
+        assertEquals(storedBytes.length, stored.getStoredBytes());
+        assertTrue(stored.getStoredBytes() < report.length / 10);
+
+        byte[] md5Bytes = MessageDigest.getInstance("MD5").digest(storedBytes);
+        String md5 = Hex.encodeHexString(md5Bytes);
+        String sha256 =
+            Hex.encodeHexString(MessageDigest.getInstance("SHA-256").digest(storedBytes));
+        assertEquals(md5, stored.getMd5());
+        assertEquals(sha256, stored.getSha256());
+
+        ObjectMetadata metadata = putCapture.getValue().getMetadata();
+        assertEquals("gzip", metadata.getContentEncoding());
+        assertEquals("application/json", metadata.getContentType());
+        assertEquals(storedBytes.length, metadata.getContentLength());
+        assertEquals(md5, metadata.getUserMetaDataOf(MD5_METADATA));
+        assertEquals(sha256, metadata.getUserMetaDataOf(SHA256_METADATA));
+        assertEquals(String.valueOf(report.length),
+                     metadata.getUserMetaDataOf(REPORT_SIZE_METADATA));
+        assertEquals(Base64.encodeBase64String(md5Bytes), metadata.getContentMD5());
+    }
+
+    /**
+     * Tests reading the bridges of an earlier properties file along with
+     * named bridges, and adding a named bridge
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testBridgeConfig() throws Exception {
+        EncryptionUtil enc = new EncryptionUtil();
+        Properties props = new Properties();
+        props.put(BRIDGE_URL_PROP, "http://legacy/bridge");
+        props.put(BRIDGE_USERNAME_PROP, enc.encrypt("legacy-user"));
+        props.put(BRIDGE_PASSWORD_PROP, enc.encrypt("legacy-pass"));
+        new BridgeConfig("east", "http://east/bridge", "east-user", "east-pass", null)
+            .addTo(props, enc);
+        new BridgeConfig("west", "http://west/bridge", "west-user", "west-pass", "west/")
+            .addTo(props, enc);
+
+        List<BridgeConfig> bridges = BridgeConfig.load(props, enc);
+        assertEquals(3, bridges.size());
+        assertEquals(BridgeConfig.DEFAULT_NAME, bridges.get(0).getName());
+        assertEquals("http://legacy/bridge", bridges.get(0).getUrl());
+        assertEquals("dcv-snapshot-report-", bridges.get(0).getKeyPrefix());
+        assertEquals("east", bridges.get(1).getName());
+        assertEquals("east-user", bridges.get(1).getUsername());
+        assertEquals("east-pass", bridges.get(1).getPassword());
+        assertEquals("dcv-snapshot-report-east-", bridges.get(1).getKeyPrefix());
+        assertEquals("west/", bridges.get(2).getKeyPrefix());
+
+        // Re-adding a bridge replaces it
+        new BridgeConfig("east", "http://east2/bridge", "east-user", "east-pass", null)
+            .addTo(props, enc);
+        assertEquals("east,west", props.getProperty(BridgeConfig.BRIDGE_NAMES_PROP));
+        assertEquals("http://east2/bridge", BridgeConfig.load(props, enc).get(1).getUrl());
+
+        // Bridges may not store reports under the same keys
+        props.setProperty("bridge.west.key-prefix", "dcv-snapshot-report-east-");
+        try {
+            BridgeConfig.load(props, enc);
+            fail("Exception expected");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().contains("same key prefix"));
+        }
+    }
+
+    /**
+     * Tests that bridges are captured concurrently, and that a bridge which
+     * does not finish within the timeout is abandoned without holding up the
+     * others or the exit of the process
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCaptureBridges() throws Exception {
+        EncryptionUtil enc = new EncryptionUtil();
+        Properties props = new Properties();
+        props.put(BRIDGE_URL_PROP, "http://legacy/bridge");
+        props.put(BRIDGE_USERNAME_PROP, enc.encrypt("user"));
+        props.put(BRIDGE_PASSWORD_PROP, enc.encrypt("pass"));
+        new BridgeConfig("east", "http://east/bridge", "user", "pass", null).addTo(props, enc);
+        new BridgeConfig("slow", "http://slow/bridge", "user", "pass", null).addTo(props, enc);
+        props.put(S3_ACCESS_KEY_PROP, enc.encrypt("access"));
+        props.put(S3_SECRET_KEY_PROP, enc.encrypt("secret"));
+        props.put(S3_BUCKET_NAME_PROP, "bucket");
+
+        final AmazonS3 s3Client = EasyMock.createMock(AmazonS3.class);
+        Capture<PutObjectRequest> putCapture = Capture.newInstance(CaptureType.ALL);
+        EasyMock.expect(s3Client.putObject(EasyMock.capture(putCapture)))
+                .andReturn(new PutObjectResult()).times(2);
+        EasyMock.replay(s3Client);
+
+        // Each fast bridge waits for the other, so they must run together
+        final CountDownLatch fastOpened = new CountDownLatch(2);
+        final CountDownLatch slowClosed = new CountDownLatch(1);
+        BridgeReportCaptureTool tool = new BridgeReportCaptureTool() {
+            @Override
+            protected AmazonS3 createS3Client(String s3AccessKey, String s3SecretKey) {
+                return s3Client;
+            }
+
+            @Override
+            protected InputStream openReport(BridgeConfig bridge) throws Exception {
+                if ("slow".equals(bridge.getName())) {
+                    return new InputStream() {
+                        @Override
+                        public int read() throws IOException {
+                            try {
+                                slowClosed.await();
+                            } catch (InterruptedException e) {
+                                // Wait for the close
+                            }
+                            throw new IOException("Stream closed");
+                        }
+
+                        @Override
+                        public void close() {
+                            slowClosed.countDown();
+                        }
+                    };
+                }
+                if (!Thread.currentThread().isDaemon()) {
+                    throw new IllegalStateException("Bridge captured on a non-daemon thread");
+                }
+                fastOpened.countDown();
+                if (!fastOpened.await(5, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("Bridges captured one at a time");
+                }
+                return new ByteArrayInputStream(("{\"bridge\": \"" + bridge.getName() +
+                                                 "\"}").getBytes(StandardCharsets.UTF_8));
+            }
+        };
+        tool.configure(props);
+        tool.setBridgeTimeoutMillis(500);
+        assertEquals(Arrays.asList("default", "east", "slow"), tool.getBridgeNames());
+
+        CaptureResult result = tool.capture();
+        EasyMock.verify(s3Client);
+
+        assertEquals(2, result.getStored().size());
+        assertTrue(result.getStored().get("default").getReportName()
+                         .startsWith("dcv-snapshot-report-"));
+        assertTrue(result.getStored().get("east").getReportName()
+                         .startsWith("dcv-snapshot-report-east-"));
+        assertEquals(1, result.getFailures().size());
+        assertTrue(result.getFailures().get("slow").contains("did not finish"));
+        assertTrue(slowClosed.await(1, TimeUnit.SECONDS));
+
+        Set<String> keys = new HashSet<>();
+        for (PutObjectRequest request : putCapture.getValues()) {
+            keys.add(request.getKey());
+        }
+        assertEquals(2, keys.size());
+    }
+
+    /**
+     * Tests that the time of day is added to the names of reports when
+     * they are captured more than once a day
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testTimestampedKeys() throws Exception {
+        EncryptionUtil enc = new EncryptionUtil();
+        Properties props = new Properties();
+        props.put(BRIDGE_URL_PROP, "http://legacy/bridge");
+        props.put(BRIDGE_USERNAME_PROP, enc.encrypt("user"));
+        props.put(BRIDGE_PASSWORD_PROP, enc.encrypt("pass"));
+        props.put(S3_ACCESS_KEY_PROP, enc.encrypt("access"));
+        props.put(S3_SECRET_KEY_PROP, enc.encrypt("secret"));
+        props.put(S3_BUCKET_NAME_PROP, "bucket");
+
+        final AmazonS3 s3Client = EasyMock.createMock(AmazonS3.class);
+        EasyMock.expect(s3Client.putObject(EasyMock.<PutObjectRequest>anyObject()))
+                .andReturn(new PutObjectResult()).times(2);
+        EasyMock.replay(s3Client);
+
+        BridgeReportCaptureTool tool = new BridgeReportCaptureTool() {
+            @Override
+            protected AmazonS3 createS3Client(String s3AccessKey, String s3SecretKey) {
+                return s3Client;
+            }
+
+            @Override
+            protected InputStream openReport(BridgeConfig bridge) {
+                return new ByteArrayInputStream("{}".getBytes(StandardCharsets.UTF_8));
+            }
+        };
+        tool.configure(props);
+
+        String dailyName = BridgeConfig.REPORT_PREFIX + DateUtil.nowShort() + ".json";
+        assertEquals(dailyName,
+                     tool.capture().getStored().get("default").getReportName());
+
+        tool.setTimestampedKeys(true);
+        String reportName = tool.capture().getStored().get("default").getReportName();
+        assertTrue(reportName.startsWith(BridgeConfig.REPORT_PREFIX));
+        assertTrue(reportName.endsWith(".json"));
+        assertNotEquals(dailyName, reportName);
+        EasyMock.verify(s3Client);
+    }
+
+    /**
+     * Tests that an error response from a bridge is not stored as a report
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testBridgeErrorResponse() throws Exception {
+        RestHttpHelper.HttpResponse ok = EasyMock.createMock(RestHttpHelper.HttpResponse.class);
+        InputStream report = new ByteArrayInputStream("{}".getBytes(StandardCharsets.UTF_8));
+        EasyMock.expect(ok.getStatusCode()).andReturn(200).anyTimes();
+        EasyMock.expect(ok.getResponseStream()).andReturn(report).anyTimes();
+
+        RestHttpHelper.HttpResponse error =
+            EasyMock.createMock(RestHttpHelper.HttpResponse.class);
+        InputStream errorBody = EasyMock.createMock(InputStream.class);
+        EasyMock.expect(error.getStatusCode()).andReturn(503).anyTimes();
+        EasyMock.expect(error.getResponseStream()).andReturn(errorBody).anyTimes();
+        errorBody.close();
+        EasyMock.expectLastCall();
+        EasyMock.replay(ok, error, errorBody);
+
+        assertSame(report, BridgeReportCaptureTool.getReportStream(ok));
+        try {
+            BridgeReportCaptureTool.getReportStream(error);
+            fail("Exception expected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("503"));
+        }
+        EasyMock.verify(ok, error, errorBody);
+    }
+
 }
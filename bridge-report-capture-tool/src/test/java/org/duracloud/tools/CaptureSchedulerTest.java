@@ -0,0 +1,196 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Performs tests on the scheduling of bridge report captures.
+ */
+public class CaptureSchedulerTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private CaptureScheduler scheduler;
+
+    @After
+    public void teardown() throws Exception {
+        if (null != scheduler) {
+            scheduler.stop(1000);
+        }
+    }
+
+    /*
+     * Stands in for the tool, failing the given number of captures of the
+     * last of its bridges before succeeding
+     */
+    private static class TestTool extends BridgeReportCaptureTool {
+        private final List<String> bridgeNames;
+        private final int failures;
+        private final CountDownLatch done;
+        private final AtomicInteger attempts = new AtomicInteger();
+        private final List<String> captured = new CopyOnWriteArrayList<>();
+
+        TestTool(int failures, int expectedAttempts, String... bridgeNames) {
+            this.bridgeNames = Arrays.asList(bridgeNames);
+            this.failures = failures;
+            this.done = new CountDownLatch(expectedAttempts);
+        }
+
+        @Override
+        public List<String> getBridgeNames() {
+            return bridgeNames;
+        }
+
+        @Override
+        public CaptureResult capture(Collection<String> names) {
+            try {
+                int attempt = attempts.incrementAndGet();
+                CaptureResult result = new CaptureResult();
+                for (String name : names) {
+                    captured.add(name);
+                    if (name.equals(bridgeNames.get(bridgeNames.size() - 1)) &&
+                        attempt <= failures) {
+                        result.addFailure(name, "bridge unavailable " + attempt);
+                    } else {
+                        result.addStored(name, new StoredReport("report-" + name + "-" +
+                                                                attempt + ".json",
+                                                                10, 10, "", ""));
+                    }
+                }
+                return result;
+            } finally {
+                done.countDown();
+            }
+        }
+
+        void await() throws InterruptedException {
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    /*
+     * Waits for the scheduler to finish recording the last attempt
+     */
+    private CaptureStatus awaitStatus(int records) throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000;
+        CaptureStatus status = scheduler.getStatus();
+        while (status.getTotalCaptures() + status.getTotalFailures() < records &&
+               System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+            status = scheduler.getStatus();
+        }
+        return status;
+    }
+
+    /**
+     * Verifies that failed captures are retried until one succeeds, after
+     * which the next capture waits for the interval, and that the status is
+     * written to the status file.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRetryUntilSuccess() throws Exception {
+        File statusFile = File.createTempFile("capture-status", ".properties");
+        try {
+            TestTool tool = new TestTool(2, 3, "default");
+            scheduler = new CaptureScheduler(tool, HOUR, 10, 5, statusFile);
+            long start = System.currentTimeMillis();
+            scheduler.start();
+            tool.await();
+
+            CaptureStatus status = awaitStatus(3);
+            assertEquals(CaptureStatus.Result.SUCCESS, status.getLastResult());
+            assertEquals(Arrays.asList("report-default-3.json"), status.getLastReportNames());
+            assertEquals(0, status.getConsecutiveFailures());
+            assertEquals(1, status.getTotalCaptures());
+            assertEquals(2, status.getTotalFailures());
+            assertNull(status.getLastError());
+            // The next capture is an interval after the first attempt
+            assertTrue(status.getNextRun().getTime() >= start + HOUR);
+            assertTrue(status.getNextRun().getTime() <= System.currentTimeMillis() + HOUR);
+
+            // Written after the run, so wait for it to settle
+            Thread.sleep(100);
+            Properties written = BridgeReportCaptureTool.readProps(statusFile.getAbsolutePath());
+            assertEquals("SUCCESS", written.getProperty("last-result"));
+            assertEquals("report-default-3.json", written.getProperty("last-reports"));
+            assertEquals("2", written.getProperty("total-failures"));
+            assertTrue(written.containsKey("next-run"));
+            assertEquals(3, tool.attempts.get());
+        } finally {
+            FileUtils.deleteQuietly(statusFile);
+        }
+    }
+
+    /**
+     * Verifies that retries stop after the limit, leaving the next capture
+     * at its usual time.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGiveUpAfterRetries() throws Exception {
+        TestTool tool = new TestTool(Integer.MAX_VALUE, 3, "default");
+        scheduler = new CaptureScheduler(tool, HOUR, 10, 2, null);
+        long start = System.currentTimeMillis();
+        scheduler.start();
+        tool.await();
+
+        CaptureStatus status = awaitStatus(3);
+        assertEquals(CaptureStatus.Result.FAILURE, status.getLastResult());
+        assertEquals("default: bridge unavailable 3", status.getLastError());
+        assertEquals(3, status.getConsecutiveFailures());
+        assertEquals(0, status.getTotalCaptures());
+        assertTrue(status.getNextRun().getTime() >= start + HOUR);
+
+        // No further attempts are made before the next capture
+        Thread.sleep(200);
+        assertEquals(3, tool.attempts.get());
+    }
+
+    /**
+     * Verifies that only the bridges which failed are retried, and that the
+     * reports stored before the retry are still listed after it.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRetryFailedBridges() throws Exception {
+        TestTool tool = new TestTool(1, 2, "east", "west");
+        scheduler = new CaptureScheduler(tool, HOUR, 10, 5, null);
+        scheduler.start();
+        tool.await();
+
+        CaptureStatus status = awaitStatus(3);
+        assertEquals(Arrays.asList("east", "west", "west"), tool.captured);
+        assertEquals(CaptureStatus.Result.SUCCESS, status.getLastResult());
+        assertEquals(Arrays.asList("report-east-1.json", "report-west-2.json"),
+                     status.getLastReportNames());
+        assertEquals(2, status.getTotalCaptures());
+        assertEquals(1, status.getTotalFailures());
+    }
+
+}
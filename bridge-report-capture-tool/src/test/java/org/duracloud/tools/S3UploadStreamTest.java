@@ -0,0 +1,302 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.tools;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.CopyObjectRequest;
+import com.amazonaws.services.s3.model.CopyObjectResult;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Performs tests on the streaming upload of objects to S3.
+ */
+public class S3UploadStreamTest {
+
+    private static final int PART_SIZE = S3UploadStream.MIN_PART_SIZE;
+    private static final String BUCKET = "bucket";
+    private static final String KEY = "report.json";
+    private static final String UPLOAD_ID = "upload-id";
+
+    private AmazonS3 s3Client;
+    private Map<Integer, byte[]> uploadedParts;
+
+    @Before
+    public void setup() {
+        s3Client = EasyMock.createMock(AmazonS3.class);
+        uploadedParts = new ConcurrentHashMap<>();
+    }
+
+    @After
+    public void teardown() {
+        EasyMock.verify(s3Client);
+    }
+
+    private byte[] createContent(int size) {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+
+    private static byte[] read(InputStream stream) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = stream.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void expectInitiate() {
+        InitiateMultipartUploadResult initResult = new InitiateMultipartUploadResult();
+        initResult.setUploadId(UPLOAD_ID);
+        EasyMock.expect(s3Client.initiateMultipartUpload(
+            EasyMock.isA(InitiateMultipartUploadRequest.class))).andReturn(initResult);
+    }
+
+    /*
+     * Records the content of each part as it is uploaded, failing the given
+     * part number (or none, if 0)
+     */
+    private void expectParts(int partCount, int failingPart) {
+        expectParts(partCount, partCount, failingPart);
+    }
+
+    private void expectParts(int minCount, int maxCount, final int failingPart) {
+        EasyMock.expect(s3Client.uploadPart(EasyMock.isA(UploadPartRequest.class)))
+                .andAnswer(new IAnswer<UploadPartResult>() {
+                    @Override
+                    public UploadPartResult answer() throws Throwable {
+                        UploadPartRequest request =
+                            (UploadPartRequest) EasyMock.getCurrentArguments()[0];
+                        assertEquals(UPLOAD_ID, request.getUploadId());
+                        if (request.getPartNumber() == failingPart) {
+                            throw new AmazonClientException("part failed");
+                        }
+                        byte[] content = read(request.getInputStream());
+                        assertEquals(request.getPartSize(), content.length);
+                        uploadedParts.put(request.getPartNumber(), content);
+
+                        UploadPartResult result = new UploadPartResult();
+                        result.setPartNumber(request.getPartNumber());
+                        result.setETag("etag-" + request.getPartNumber());
+                        return result;
+                    }
+                }).times(minCount, maxCount);
+    }
+
+    /**
+     * Verifies that an object smaller than one part is stored with a single
+     * put which includes the length of the object.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSmallObject() throws Exception {
+        byte[] content = createContent(1000);
+        Capture<PutObjectRequest> putCapture = Capture.newInstance();
+        EasyMock.expect(s3Client.putObject(EasyMock.capture(putCapture)))
+                .andReturn(new PutObjectResult());
+        EasyMock.replay(s3Client);
+
+        S3UploadStream upload = new S3UploadStream(s3Client, BUCKET, KEY, null);
+        upload.write(content);
+        upload.close();
+
+        PutObjectRequest request = putCapture.getValue();
+        assertEquals(BUCKET, request.getBucketName());
+        assertEquals(KEY, request.getKey());
+        assertEquals(content.length, request.getMetadata().getContentLength());
+        assertArrayEquals(content, read(request.getInputStream()));
+        assertEquals(content.length, upload.getTotalBytes());
+    }
+
+    /**
+     * Verifies that a larger object is uploaded in parts, which are
+     * reassembled in order when the upload is completed.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMultipartObject() throws Exception {
+        byte[] content = createContent(2 * PART_SIZE + 12345);
+        expectInitiate();
+        expectParts(3, 0);
+        Capture<CompleteMultipartUploadRequest> completeCapture = Capture.newInstance();
+        EasyMock.expect(s3Client.completeMultipartUpload(EasyMock.capture(completeCapture)))
+                .andReturn(new CompleteMultipartUploadResult());
+        EasyMock.replay(s3Client);
+
+        S3UploadStream upload =
+            new S3UploadStream(s3Client, BUCKET, KEY, null, PART_SIZE, 2);
+        // Write in uneven pieces so that writes straddle part boundaries
+        int offset = 0;
+        while (offset < content.length) {
+            int length = Math.min(1000003, content.length - offset);
+            upload.write(content, offset, length);
+            offset += length;
+        }
+        upload.close();
+
+        List<PartETag> partETags = completeCapture.getValue().getPartETags();
+        assertEquals(3, partETags.size());
+        ByteArrayOutputStream reassembled = new ByteArrayOutputStream();
+        for (int i = 0; i < partETags.size(); i++) {
+            assertEquals(i + 1, partETags.get(i).getPartNumber());
+            assertEquals("etag-" + (i + 1), partETags.get(i).getETag());
+            reassembled.write(uploadedParts.get(i + 1));
+        }
+        assertEquals(PART_SIZE, uploadedParts.get(1).length);
+        assertEquals(12345, uploadedParts.get(3).length);
+        assertArrayEquals(content, reassembled.toByteArray());
+        assertEquals(content.length, upload.getTotalBytes());
+    }
+
+    /**
+     * Verifies that metadata added once all bytes are written is included
+     * in a single put, and applied to a multipart object by copying it.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testLateMetadata() throws Exception {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentEncoding("gzip");
+
+        Capture<PutObjectRequest> putCapture = Capture.newInstance();
+        EasyMock.expect(s3Client.putObject(EasyMock.capture(putCapture)))
+                .andReturn(new PutObjectResult());
+        expectInitiate();
+        expectParts(2, 0);
+        EasyMock.expect(s3Client.completeMultipartUpload(
+            EasyMock.isA(CompleteMultipartUploadRequest.class)))
+                .andReturn(new CompleteMultipartUploadResult());
+        Capture<CopyObjectRequest> copyCapture = Capture.newInstance();
+        EasyMock.expect(s3Client.copyObject(EasyMock.capture(copyCapture)))
+                .andReturn(new CopyObjectResult());
+        EasyMock.replay(s3Client);
+
+        S3UploadStream upload = new S3UploadStream(s3Client, BUCKET, KEY, metadata);
+        assertFalse(upload.isMultipart());
+        upload.write(createContent(10));
+        upload.addUserMetadata("sha256", "abc");
+        upload.setContentMd5("bWQ1");
+        upload.close();
+        ObjectMetadata putMetadata = putCapture.getValue().getMetadata();
+        assertEquals("gzip", putMetadata.getContentEncoding());
+        assertEquals("abc", putMetadata.getUserMetaDataOf("sha256"));
+        assertEquals("bWQ1", putMetadata.getContentMD5());
+
+        upload = new S3UploadStream(s3Client, BUCKET, KEY, metadata, PART_SIZE, 2);
+        upload.write(createContent(PART_SIZE + 10));
+        assertTrue(upload.isMultipart());
+        upload.addUserMetadata("sha256", "def");
+        upload.close();
+        CopyObjectRequest copy = copyCapture.getValue();
+        assertEquals(KEY, copy.getSourceKey());
+        assertEquals(KEY, copy.getDestinationKey());
+        assertEquals("gzip", copy.getNewObjectMetadata().getContentEncoding());
+        assertEquals("def", copy.getNewObjectMetadata().getUserMetaDataOf("sha256"));
+        // The metadata given when the stream was created is left unchanged
+        assertNull(metadata.getUserMetaDataOf("sha256"));
+    }
+
+    /**
+     * Verifies that the multipart upload is aborted when a part fails.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testFailedPart() throws Exception {
+        byte[] content = createContent(2 * PART_SIZE + 10);
+        expectInitiate();
+        // The third part is never sent, as the failure is found first
+        expectParts(2, 2);
+        Capture<AbortMultipartUploadRequest> abortCapture = Capture.newInstance();
+        s3Client.abortMultipartUpload(EasyMock.capture(abortCapture));
+        EasyMock.expectLastCall();
+        EasyMock.replay(s3Client);
+
+        S3UploadStream upload =
+            new S3UploadStream(s3Client, BUCKET, KEY, null, PART_SIZE, 1);
+        try {
+            upload.write(content);
+            upload.close();
+            fail("Exception expected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("part failed"));
+        }
+        assertEquals(UPLOAD_ID, abortCapture.getValue().getUploadId());
+    }
+
+    /**
+     * Verifies that a report which cannot be read in full is not stored.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testFailedReport() throws Exception {
+        final byte[] content = createContent(S3UploadStream.DEFAULT_PART_SIZE + 10);
+        expectInitiate();
+        // The first part may be cancelled before it is sent
+        expectParts(0, 1, 0);
+        s3Client.abortMultipartUpload(EasyMock.isA(AbortMultipartUploadRequest.class));
+        EasyMock.expectLastCall();
+        EasyMock.replay(s3Client);
+
+        InputStream report = new ByteArrayInputStream(content) {
+            @Override
+            public synchronized int read(byte[] bytes, int offset, int length) {
+                if (available() == 0) {
+                    throw new IllegalStateException("connection reset");
+                }
+                return super.read(bytes, offset, length);
+            }
+        };
+        try {
+            BridgeReportCaptureTool.storeReport(report, s3Client, BUCKET, KEY, false);
+            fail("Exception expected");
+        } catch (IllegalStateException e) {
+            assertEquals("connection reset", e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+package org.duracloud.tools;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/*
+ * Content ID Set - A read-only set of content IDs which share a common prefix,
+ *                  held compactly in memory. The prefix is dropped and the
+ *                  remainder of each ID is stored as UTF-8 bytes, sorted and
+ *                  packed into a single array. Lookups use a binary search.
+ *
+ *                  Compared to a HashSet of Strings, this avoids the object
+ *                  and hash table overhead of each entry, which dominates for
+ *                  the short IDs typical of a space listing.
+ */
+public class ContentIdSet {
+
+    private static final Comparator<byte[]> UNSIGNED_ORDER = new Comparator<byte[]>() {
+        @Override
+        public int compare(byte[] a, byte[] b) {
+            return ContentIdSet.compare( a, 0, a.length, b );
+        }
+    };
+
+    private final String prefix;
+    private final byte[] data;
+    private final int[] offsets;
+
+    private ContentIdSet(String prefix, byte[] data, int[] offsets) {
+        this.prefix = prefix;
+        this.data = data;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Builds a set from a listing of content IDs. IDs which do not begin with
+     * the prefix are left out, as they could never be matched.
+     *
+     * @param contentIds - the content IDs to include
+     * @param prefix     - the prefix shared by the content IDs
+     * @return the set
+     */
+    public static ContentIdSet build(Iterator<String> contentIds, String prefix) {
+        List<byte[]> suffixes = new ArrayList<>();
+        long totalSize = 0;
+        while (contentIds.hasNext()) {
+            String contentId = contentIds.next();
+            if (contentId.startsWith( prefix )) {
+                byte[] suffix =
+                    contentId.substring( prefix.length() ).getBytes( StandardCharsets.UTF_8 );
+                suffixes.add( suffix );
+                totalSize += suffix.length;
+            }
+        }
+        if (totalSize > Integer.MAX_VALUE) {
+            throw new IllegalStateException( "Content listing is too large to hold in memory" );
+        }
+
+        Collections.sort( suffixes, UNSIGNED_ORDER );
+
+        byte[] data = new byte[(int) totalSize];
+        int[] offsets = new int[suffixes.size() + 1];
+        int position = 0;
+        for (int i = 0; i < suffixes.size(); i++) {
+            byte[] suffix = suffixes.get( i );
+            offsets[i] = position;
+            System.arraycopy( suffix, 0, data, position, suffix.length );
+            position += suffix.length;
+            suffixes.set( i, null );
+        }
+        offsets[suffixes.size()] = position;
+        return new ContentIdSet( prefix, data, offsets );
+    }
+
+    /**
+     * @param contentId - the content ID to look for
+     * @return true if the content ID is in the set
+     */
+    public boolean contains(String contentId) {
+        if (!contentId.startsWith( prefix )) {
+            return false;
+        }
+        byte[] target = contentId.substring( prefix.length() ).getBytes( StandardCharsets.UTF_8 );
+
+        int low = 0;
+        int high = size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int result = compare( data, offsets[mid], offsets[mid + 1], target );
+            if (result < 0) {
+                low = mid + 1;
+            } else if (result > 0) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    /*
+     * Compares bytes [start, end) of the source with the target, treating
+     * bytes as unsigned values (which matches the ordering of the characters)
+     */
+    private static int compare(byte[] source, int start, int end, byte[] target) {
+        int length = end - start;
+        int common = Math.min( length, target.length );
+        for (int i = 0; i < common; i++) {
+            int diff = (source[start + i] & 0xff) - (target[i] & 0xff);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length - target.length;
+    }
+
+}
@@ -1,16 +1,17 @@
 package org.duracloud.tools;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.text.MessageFormat;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -25,6 +26,7 @@ import org.duracloud.client.ContentStoreManagerImpl;
 import org.duracloud.common.model.Credential;
 import org.duracloud.common.util.IOUtil;
 import org.duracloud.error.ContentStoreException;
+import org.duracloud.error.NotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,6 +40,8 @@ public class CopyContentTool {
     private static Logger LOGGER = LoggerFactory.getLogger( CopyContentTool.class );
     private static final String DEFAULT_PORT = "443";
     private static final String DEFAULT_CONTEXT = "durastore";
+    private static final int DEFAULT_SPACE_THREADS = 1;
+    private static final int DEFAULT_ITEM_THREADS = 1;
 
     private String host;
     private String port;
@@ -45,10 +49,21 @@ public class CopyContentTool {
     private String password;
     private String storeId;
     private String spaceListFilePath;
-    private String inputSpaceRegex = "^(.*)-(open|campus|closed)$";
-    private String destinationSpaceFormat = "${2}";
-    private String destinationContentFormat = "${1}/${contentId}";
+    private SpaceMapping spaceMapping = SpaceMapping.getDefault();
     private boolean dryRun;
+    private int spaceThreads = DEFAULT_SPACE_THREADS;
+    private int itemThreads = DEFAULT_ITEM_THREADS;
+    private int maxCopies = DEFAULT_SPACE_THREADS * DEFAULT_ITEM_THREADS;
+    private boolean skipExisting;
+    private boolean compareChecksums;
+
+    // Destination spaces known to exist, shared by all space copies
+    private final Set<String> destinationSpaces =
+        Collections.newSetFromMap( new ConcurrentHashMap<String, Boolean>() );
+
+    private final AtomicLong copiedCount = new AtomicLong();
+    private final AtomicLong skippedCount = new AtomicLong();
+    private final Queue<String> failures = new ConcurrentLinkedQueue<>();
 
     private static Options cmdOptions;
 
@@ -69,7 +84,45 @@ public class CopyContentTool {
     }
 
     /**
-     * Kicks off the execution of the tool.
+     * Sets the limits on how much copying happens at once.
+     *
+     * @param spaceThreads - the number of spaces which may be copied at once
+     * @param itemThreads  - the number of items which may be copied at once
+     *                       within each space
+     * @param maxCopies    - the number of item copies which may be in progress
+     *                       at once across all spaces
+     */
+    public void setConcurrency(int spaceThreads, int itemThreads, int maxCopies) {
+        this.spaceThreads = spaceThreads;
+        this.itemThreads = itemThreads;
+        this.maxCopies = maxCopies;
+    }
+
+    /**
+     * Sets how source spaces are selected and where their content is copied.
+     *
+     * @param spaceMapping - the source regex and destination formats
+     */
+    public void setSpaceMapping(SpaceMapping spaceMapping) {
+        this.spaceMapping = spaceMapping;
+    }
+
+    /**
+     * Sets how items which were copied by an earlier run are handled.
+     *
+     * @param skipExisting     - when true, the destination space is listed once
+     *                           and items already found there are not copied
+     * @param compareChecksums - when true, an item found in the destination is
+     *                           only skipped if its checksum matches the source
+     */
+    public void setIncremental(boolean skipExisting, boolean compareChecksums) {
+        this.skipExisting = skipExisting;
+        this.compareChecksums = compareChecksums;
+    }
+
+    /**
+     * Kicks off the execution of the tool. Every item is attempted, then the
+     * run fails if any space or item could not be copied.
      *
      * @throws ContentStoreException
      * @throws IOException
@@ -80,10 +133,48 @@ public class CopyContentTool {
                       "\nhost={}" + host +
                       "\nport={}" + port +
                       "\nspaces list file path={}" + spaceListFilePath +
+                      "\ninput space regex=" + spaceMapping.getInputSpaceRegex() +
+                      "\ndestination space format=" + spaceMapping.getDestinationSpaceFormat() +
+                      "\ndestination content format=" + spaceMapping.getDestinationContentFormat() +
                       (dryRun ? "\nThis execution is a DRY RUN - no changes will be made!" : "") +
                       "\n-----------------------------------------", host, port, spaceListFilePath );
 
         LOGGER.info( "Setting up tool..." );
+        final ContentStore store = connect();
+
+        if (null == spaceListFilePath) {
+            LOGGER.info( "No spaces list file provided, all spaces in store {} will be considered",
+                         storeId );
+            copySpaces( store, store.getSpaces().iterator() );
+        } else {
+            final File file = new File( this.spaceListFilePath );
+            if (!file.exists()) {
+                throw new FileNotFoundException( "The spaces list file does not exist at " +
+                                                 this.spaceListFilePath );
+            }
+            try (SpaceListReader spaces =
+                     new SpaceListReader( new InputStreamReader( IOUtil.getFileStream( file ) ) )) {
+                copySpaces( store, spaces );
+            }
+        }
+
+        logSummary();
+        if (!failures.isEmpty()) {
+            // Fails the process, as a failed copy did before copies were concurrent
+            throw new RuntimeException( "Copy Content Tool process completed with " +
+                                        failures.size() + " failures" );
+        }
+        LOGGER.info( "Copy Content Tool process complete." );
+    }
+
+    /**
+     * Logs in to DuraCloud and connects to the store from which content is
+     * copied, which is the primary store when no store ID is given.
+     *
+     * @return the store client
+     * @throws ContentStoreException
+     */
+    protected ContentStore connect() throws ContentStoreException {
         final ContentStoreManager storeManager =
             new ContentStoreManagerImpl( host, port, DEFAULT_CONTEXT );
         final Credential credential = new Credential( username, password );
@@ -96,85 +187,282 @@ public class CopyContentTool {
         } else {
             store = storeManager.getContentStore( storeId );
         }
+        return store;
+    }
 
-        final List<String> spaces = new LinkedList<>();
-
-        final File file = new File( this.spaceListFilePath );
-        if (!file.exists()) {
-            throw new FileNotFoundException( "The spaces list file does not exist at " + this.spaceListFilePath );
-        }
-
-        try (BufferedReader is = new BufferedReader( new InputStreamReader( IOUtil.getFileStream( file ) ) )) {
-            String line = null;
-            while ((line = is.readLine()) != null) {
-                final String spaceId = line.trim();
-                spaces.add( spaceId );
+    /**
+     * Copies the contents of each space as its ID is read. Reading blocks while
+     * all space threads are busy, so only the spaces being copied are held in
+     * memory, however long the list.
+     *
+     * @param store    - DuraCloud storage client
+     * @param spaceIds - the spaces to copy
+     * @return the number of spaces read
+     */
+    protected long copySpaces(final ContentStore store, Iterator<String> spaceIds) {
+        LOGGER.info( "Copying spaces using " + spaceThreads + " space threads, " + itemThreads +
+                     " item threads per space, and at most " + maxCopies + " concurrent copies..." );
+        final CopyScheduler scheduler = new CopyScheduler( spaceThreads, itemThreads, maxCopies );
+        long spaceCount = 0;
+        try {
+            try {
+                while (spaceIds.hasNext()) {
+                    final String spaceId = spaceIds.next();
+                    spaceCount++;
+                    scheduler.submitSpace( new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                doCopy( store, spaceId, scheduler.newSpaceCopy() );
+                            } catch (ContentStoreException | RuntimeException e) {
+                                // The content listing fails part way through a
+                                // space with a RuntimeException
+                                failures.add( "space " + spaceId + " (" + e.getMessage() + ")" );
+                                LOGGER.error( "Unable to copy space {} due to: {}", spaceId, e.getMessage() );
+                            }
+                        }
+                    } );
+                }
+            } finally {
+                // Allow the spaces already started to complete
+                scheduler.finish();
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException( "Interrupted while copying content" );
         }
-
-        LOGGER.info( "Ready to copy " + spaces.size() + " spaces..." );
-        for (String spaceId : spaces) {
-            doCopy( store, spaceId );
-        }
-        LOGGER.info( "Copy Content Tool process complete." );
+        LOGGER.info( "Read {} spaces", spaceCount );
+        return spaceCount;
     }
 
+    /**
+     * Copies the contents of a space, one item at a time.
+     *
+     * @param store   - DuraCloud storage client
+     * @param spaceId - the space to copy
+     * @throws ContentStoreException
+     */
     protected void doCopy(ContentStore store,
                           String spaceId)
         throws ContentStoreException {
+        doCopy( store, spaceId, null );
+    }
+
+    /**
+     * Copies the contents of a space.
+     *
+     * @param store     - DuraCloud storage client
+     * @param spaceId   - the space to copy
+     * @param spaceCopy - schedules item copies to run concurrently, when null
+     *                    items are copied one at a time on the calling thread
+     * @throws ContentStoreException
+     */
+    protected void doCopy(final ContentStore store,
+                          final String spaceId,
+                          CopyScheduler.SpaceCopy spaceCopy)
+        throws ContentStoreException {
 
-        final Pattern inputSpacePattern = Pattern.compile( inputSpaceRegex );
-        final Matcher matcher = inputSpacePattern.matcher( spaceId );
-        if (!matcher.find()) {
+        final SpaceMapping.Destination destination = spaceMapping.map( spaceId );
+        if (null == destination) {
             LOGGER.info(
                 "Space {} does not match the input space regular expression: \"{}\". Skipping.",
-                spaceId, inputSpaceRegex );
+                spaceId, spaceMapping.getInputSpaceRegex() );
             return;
         }
 
-        String destinationSpaceId = destinationSpaceFormat;
+        final String destinationSpaceId = destination.getSpaceId();
+        final DestinationTemplate.Binding contentTemplate = destination.getContentTemplate();
+
+        LOGGER.info( "Beginning copy of contents of {} to {}", spaceId, destinationSpaceId );
 
-        for (int i = 0; i <= matcher.groupCount(); i++) {
-            destinationSpaceId = destinationSpaceId.replace( "${" + i + "}", matcher.group( i ) );
+        ensureSpaceExists( store, destinationSpaceId );
+
+        ContentIdSet existingIds = null;
+        if (skipExisting) {
+            existingIds = listExisting( store, destinationSpaceId, contentTemplate.getPrefix() );
         }
+        final ContentIdSet existing = existingIds;
 
-        LOGGER.info( "Beginning copy of contents of {} to {}", spaceId, destinationSpaceId );
+        Iterator<String> contentIterator = store.getSpaceContents( spaceId );
+        while (contentIterator.hasNext()) {
+            final String contentId = contentIterator.next();
+            final String destContentId = contentTemplate.render( contentId );
 
-        if (!store.spaceExists( destinationSpaceId )) {
-            if (dryRun) {
-                LOGGER.info( "DRY RUN: destination space to be created: {}", destinationSpaceId );
+            if (null == spaceCopy) {
+                copyItem( store, spaceId, contentId, destinationSpaceId, destContentId, existing );
             } else {
-                LOGGER.info( "Creating space if does not already exist: {}", destinationSpaceId );
-                store.createSpace( destinationSpaceId );
-                LOGGER.info( "Space created: {}", destinationSpaceId );
+                try {
+                    spaceCopy.submitItem( new Runnable() {
+                        @Override
+                        public void run() {
+                            copyItem( store, spaceId, contentId, destinationSpaceId,
+                                      destContentId, existing );
+                        }
+                    } );
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException( "Interrupted while copying content" );
+                }
             }
-        } else {
-            LOGGER.info( "Space already exists - no space created: {}", destinationSpaceId );
         }
 
-        Iterator<String> contentIterator = store.getSpaceContents( spaceId );
-        while (contentIterator.hasNext()) {
-            String contentId = contentIterator.next();
-            String destinationContentId = destinationContentFormat;
-            destinationContentId = destinationContentId.replace( "${contentId}", contentId );
-            for (int i = 1; i < matcher.groupCount(); i++) {
-                destinationContentId = destinationContentId.replace( "${" + i + "}", matcher.group( i ) );
+        if (null != spaceCopy) {
+            try {
+                spaceCopy.awaitCompletion();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException( "Interrupted while copying content" );
             }
+        }
+        LOGGER.info( "Completed copy of contents of {} to {}", spaceId, destinationSpaceId );
+    }
 
-            String message = MessageFormat.format( "Copying {0} from {1} to {2} in {3}",
-                                                   contentId, spaceId, destinationContentId, destinationSpaceId );
-            if (this.dryRun) {
-                LOGGER.info( "DRY RUN -- NO COPY : {}", message );
+    /*
+     * Creates the destination space if it does not already exist. Several
+     * source spaces may share a destination, so the check is made under a lock
+     * and its result remembered.
+     */
+    private void ensureSpaceExists(ContentStore store, String destinationSpaceId)
+        throws ContentStoreException {
+        if (destinationSpaces.contains( destinationSpaceId )) {
+            return;
+        }
+
+        synchronized (destinationSpaces) {
+            if (destinationSpaces.contains( destinationSpaceId )) {
+                return;
+            }
+            if (!store.spaceExists( destinationSpaceId )) {
+                if (dryRun) {
+                    LOGGER.info( "DRY RUN: destination space to be created: {}", destinationSpaceId );
+                } else {
+                    LOGGER.info( "Creating space if does not already exist: {}", destinationSpaceId );
+                    store.createSpace( destinationSpaceId );
+                    LOGGER.info( "Space created: {}", destinationSpaceId );
+                }
             } else {
-                LOGGER.info( message );
-                store.copyContent( spaceId, contentId, destinationSpaceId, destinationContentId );
-                LOGGER.info( "Content successfully copied: {} in {} was copied to {} in {}",
-                             contentId, spaceId, destinationContentId, destinationSpaceId );
+                LOGGER.info( "Space already exists - no space created: {}", destinationSpaceId );
+            }
+            destinationSpaces.add( destinationSpaceId );
+        }
+    }
+
+    /*
+     * Lists the items in the destination space which have the given prefix,
+     * which covers every item this space copy could have written
+     */
+    private ContentIdSet listExisting(ContentStore store,
+                                      String destinationSpaceId,
+                                      String destinationPrefix)
+        throws ContentStoreException {
+        Iterator<String> destinationIds;
+        try {
+            if (destinationPrefix.isEmpty()) {
+                destinationIds = store.getSpaceContents( destinationSpaceId );
+            } else {
+                destinationIds = store.getSpaceContents( destinationSpaceId, destinationPrefix );
+            }
+        } catch (NotFoundException e) {
+            // Only expected on a dry run, where the space is not created
+            destinationIds = Collections.<String>emptyIterator();
+        }
+        ContentIdSet existing = ContentIdSet.build( destinationIds, destinationPrefix );
+        LOGGER.info( "Found {} items already in {} with prefix \"{}\"",
+                     existing.size(), destinationSpaceId, destinationPrefix );
+        return existing;
+    }
+
+    /*
+     * Determines if an item needs to be copied, based on whether it was
+     * found in the destination listing and, optionally, whether its checksum
+     * matches that of the existing copy
+     */
+    private boolean needsCopy(ContentStore store,
+                              String spaceId,
+                              String contentId,
+                              String destinationSpaceId,
+                              String destinationContentId,
+                              ContentIdSet existing)
+        throws ContentStoreException {
+        if (null != existing && !existing.contains( destinationContentId )) {
+            return true;
+        }
+        if (!compareChecksums) {
+            return null == existing;
+        }
+
+        Map<String, String> destinationProps;
+        try {
+            destinationProps = store.getContentProperties( destinationSpaceId, destinationContentId );
+        } catch (NotFoundException e) {
+            return true;
+        }
+        Map<String, String> sourceProps = store.getContentProperties( spaceId, contentId );
+        String sourceChecksum = sourceProps.get( ContentStore.CONTENT_CHECKSUM );
+        String destinationChecksum = destinationProps.get( ContentStore.CONTENT_CHECKSUM );
+        return null == sourceChecksum || !sourceChecksum.equals( destinationChecksum );
+    }
 
+    /*
+     * Copies a single content item, recording the outcome. A failure is
+     * logged and counted rather than stopping the other copies.
+     */
+    private void copyItem(ContentStore store,
+                          String spaceId,
+                          String contentId,
+                          String destinationSpaceId,
+                          String destinationContentId,
+                          ContentIdSet existing) {
+        try {
+            if (!needsCopy( store, spaceId, contentId, destinationSpaceId,
+                            destinationContentId, existing )) {
+                skippedCount.incrementAndGet();
+                LOGGER.debug( "Skipping {} in {}, already copied to {} in {}",
+                              contentId, spaceId, destinationContentId, destinationSpaceId );
+                return;
             }
+        } catch (ContentStoreException e) {
+            failures.add( contentId + " in " + spaceId + " (" + e.getMessage() + ")" );
+            LOGGER.error( "Unable to compare {} in {} with {} in {} due to: {}",
+                          contentId, spaceId, destinationContentId, destinationSpaceId, e.getMessage() );
+            return;
+        }
 
+        if (this.dryRun) {
+            LOGGER.info( "DRY RUN -- NO COPY : Copying {} from {} to {} in {}",
+                         contentId, spaceId, destinationContentId, destinationSpaceId );
+            return;
         }
 
+        try {
+            LOGGER.info( "Copying {} from {} to {} in {}",
+                         contentId, spaceId, destinationContentId, destinationSpaceId );
+            store.copyContent( spaceId, contentId, destinationSpaceId, destinationContentId );
+            copiedCount.incrementAndGet();
+            LOGGER.info( "Content successfully copied: {} in {} was copied to {} in {}",
+                         contentId, spaceId, destinationContentId, destinationSpaceId );
+        } catch (ContentStoreException e) {
+            failures.add( contentId + " in " + spaceId + " (" + e.getMessage() + ")" );
+            LOGGER.error( "Content copy FAILED: {} in {} to {} in {} due to: {}",
+                          contentId, spaceId, destinationContentId, destinationSpaceId, e.getMessage() );
+        }
+    }
+
+    /*
+     * Logs the number of items copied and any failures
+     */
+    private void logSummary() {
+        StringBuilder summary = new StringBuilder();
+        summary.append( "\n-----------------------------------------" )
+               .append( "\nCopy Content Summary:" )
+               .append( "\nitems copied=" ).append( copiedCount.get() )
+               .append( "\nitems skipped as already copied=" ).append( skippedCount.get() )
+               .append( "\nfailures=" ).append( failures.size() );
+        for (String failure : failures) {
+            summary.append( "\n  " ).append( failure );
+        }
+        summary.append( "\n-----------------------------------------" );
+        LOGGER.info( summary.toString() );
     }
 
     /**
@@ -188,8 +476,9 @@ public class CopyContentTool {
 
         Option spaceFileOption =
             new Option( "s", "space-list", true,
-                        "the path to the file containing a list of spaces to be copied" );
-        spaceFileOption.setRequired( true );
+                        "the path to the file containing a list of spaces to be copied " +
+                        "(optional, all spaces in the store are considered if not provided)" );
+        spaceFileOption.setRequired( false );
         cmdOptions.addOption( spaceFileOption );
 
         Option hostOption =
@@ -230,6 +519,69 @@ public class CopyContentTool {
         dryRunOption.setRequired( false );
         cmdOptions.addOption( dryRunOption );
 
+        Option spaceThreadsOption =
+            new Option( "n", "space-threads", true,
+                        "the number of spaces to copy at once " +
+                        "(optional, default value is " + DEFAULT_SPACE_THREADS + ")" );
+        spaceThreadsOption.setRequired( false );
+        cmdOptions.addOption( spaceThreadsOption );
+
+        Option itemThreadsOption =
+            new Option( "w", "item-threads", true,
+                        "the number of content items to copy at once within each space " +
+                        "(optional, default value is " + DEFAULT_ITEM_THREADS + ")" );
+        itemThreadsOption.setRequired( false );
+        cmdOptions.addOption( itemThreadsOption );
+
+        Option maxCopiesOption =
+            new Option( "m", "max-copies", true,
+                        "the maximum number of content items to copy at once across " +
+                        "all spaces (optional, default value is space-threads " +
+                        "multiplied by item-threads)" );
+        maxCopiesOption.setRequired( false );
+        cmdOptions.addOption( maxCopiesOption );
+
+        Option skipExistingOption =
+            new Option( "k", "skip-existing", false,
+                        "list each destination space once and skip content items " +
+                        "which already exist there, useful when re-running after " +
+                        "a partial failure (optional)" );
+        skipExistingOption.setRequired( false );
+        cmdOptions.addOption( skipExistingOption );
+
+        Option compareChecksumsOption =
+            new Option( "c", "compare-checksums", false,
+                        "skip a content item which already exists in the destination " +
+                        "only if its checksum matches the source item (optional)" );
+        compareChecksumsOption.setRequired( false );
+        cmdOptions.addOption( compareChecksumsOption );
+
+        Option inputSpaceRegexOption =
+            new Option( "x", "input-space-regex", true,
+                        "the regular expression which selects the spaces to copy, " +
+                        "the groups of which may be used in the destination formats " +
+                        "(optional, default value is " +
+                        SpaceMapping.DEFAULT_INPUT_SPACE_REGEX + ")" );
+        inputSpaceRegexOption.setRequired( false );
+        cmdOptions.addOption( inputSpaceRegexOption );
+
+        Option destinationSpaceFormatOption =
+            new Option( "o", "destination-space-format", true,
+                        "the format of the destination space ID, in which ${n} is " +
+                        "replaced by group n of the input space regex (optional, " +
+                        "default value is " + SpaceMapping.DEFAULT_DESTINATION_SPACE_FORMAT + ")" );
+        destinationSpaceFormatOption.setRequired( false );
+        cmdOptions.addOption( destinationSpaceFormatOption );
+
+        Option destinationContentFormatOption =
+            new Option( "f", "destination-content-format", true,
+                        "the format of the destination content ID, which must include " +
+                        "${contentId} and may use the groups of the input space regex " +
+                        "(optional, default value is " +
+                        SpaceMapping.DEFAULT_DESTINATION_CONTENT_FORMAT + ")" );
+        destinationContentFormatOption.setRequired( false );
+        cmdOptions.addOption( destinationContentFormatOption );
+
         CommandLine cmd = null;
         try {
             CommandLineParser parser = new PosixParser();
@@ -255,13 +607,54 @@ public class CopyContentTool {
             dryRun = true;
         }
 
+        int spaceThreads = parseCount( cmd, "n", DEFAULT_SPACE_THREADS );
+        int itemThreads = parseCount( cmd, "w", DEFAULT_ITEM_THREADS );
+        int maxCopies = parseCount( cmd, "m", spaceThreads * itemThreads );
+
+        SpaceMapping spaceMapping = null;
+        try {
+            spaceMapping =
+                new SpaceMapping( cmd.getOptionValue( "x", SpaceMapping.DEFAULT_INPUT_SPACE_REGEX ),
+                                  cmd.getOptionValue( "o", SpaceMapping.DEFAULT_DESTINATION_SPACE_FORMAT ),
+                                  cmd.getOptionValue( "f",
+                                                      SpaceMapping.DEFAULT_DESTINATION_CONTENT_FORMAT ) );
+        } catch (IllegalArgumentException e) {
+            LOGGER.info( e.getMessage() );
+            usage();
+        }
+
         CopyContentTool tool =
             new CopyContentTool( host, port, username,
                                  password, storeId, spaceListFilePath,
                                  dryRun );
+        tool.setConcurrency( spaceThreads, itemThreads, maxCopies );
+        tool.setSpaceMapping( spaceMapping );
+        tool.setIncremental( cmd.hasOption( "k" ), cmd.hasOption( "c" ) );
         tool.run();
     }
 
+    /*
+     * Reads a positive number from the command line, or returns the default
+     * value if the option is not present
+     */
+    private static int parseCount(CommandLine cmd, String option, int defaultValue) {
+        String value = cmd.getOptionValue( option );
+        if (null == value) {
+            return defaultValue;
+        }
+        int count = 0;
+        try {
+            count = Integer.parseInt( value );
+        } catch (NumberFormatException e) {
+            count = 0;
+        }
+        if (count < 1) {
+            LOGGER.info( "The value of option {} must be a positive number", option );
+            usage();
+        }
+        return count;
+    }
+
     /**
      * Called when the command line arguments are not valid. Prints information
      * about how the tool should be used and exits.
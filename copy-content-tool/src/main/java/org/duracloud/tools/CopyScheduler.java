@@ -0,0 +1,147 @@
+package org.duracloud.tools;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Copy Scheduler - Runs space copies and content item copies concurrently,
+ *                  using two levels of limits:
+ *                  - the number of spaces being copied at once
+ *                  - the number of items being copied at once within a space
+ *                  All item copies share a single pool of threads, the size of
+ *                  which caps the number of copies in flight against DuraStore.
+ */
+public class CopyScheduler {
+
+    private static Logger LOGGER = LoggerFactory.getLogger( CopyScheduler.class );
+
+    private final int itemsPerSpace;
+
+    private final ExecutorService spaceWorkers;
+    private final Semaphore spacePermits;
+    private final ExecutorService copyWorkers;
+
+    /**
+     * @param spacesInFlight - the number of spaces which may be copied at once
+     * @param itemsPerSpace  - the number of items which may be copied at once
+     *                         within a single space
+     * @param maxCopies      - the number of item copies which may be in
+     *                         progress at once across all spaces
+     */
+    public CopyScheduler(int spacesInFlight,
+                         int itemsPerSpace,
+                         int maxCopies) {
+        if (spacesInFlight < 1 || itemsPerSpace < 1 || maxCopies < 1) {
+            throw new IllegalArgumentException( "Copy concurrency values must be at least 1" );
+        }
+        this.itemsPerSpace = itemsPerSpace;
+        this.spaceWorkers = Executors.newFixedThreadPool( spacesInFlight );
+        this.spacePermits = new Semaphore( spacesInFlight );
+        this.copyWorkers = Executors.newFixedThreadPool( maxCopies );
+    }
+
+    /**
+     * Schedules the copy of a space. Blocks until a space slot is available,
+     * so that the caller does not read further ahead in the list of spaces
+     * than is needed to keep all slots busy.
+     *
+     * @param spaceCopy - performs the copy of a space, generally by passing
+     *                    item copies to a SpaceCopy from newSpaceCopy()
+     * @throws InterruptedException if interrupted while waiting for a slot
+     */
+    public void submitSpace(final Runnable spaceCopy) throws InterruptedException {
+        spacePermits.acquire();
+        try {
+            spaceWorkers.execute( new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        spaceCopy.run();
+                    } catch (RuntimeException e) {
+                        LOGGER.error( "Space copy failed due to: " + e.getMessage(), e );
+                    } finally {
+                        spacePermits.release();
+                    }
+                }
+            } );
+        } catch (RejectedExecutionException e) {
+            spacePermits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return a handle used to schedule the item copies of a single space
+     */
+    public SpaceCopy newSpaceCopy() {
+        return new SpaceCopy();
+    }
+
+    /**
+     * Waits for all scheduled copies to complete, then shuts down all threads.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void finish() throws InterruptedException {
+        spaceWorkers.shutdown();
+        while (!spaceWorkers.awaitTermination( 1, TimeUnit.MINUTES )) {
+            LOGGER.info( "Waiting on space copies to complete..." );
+        }
+        copyWorkers.shutdown();
+        while (!copyWorkers.awaitTermination( 1, TimeUnit.MINUTES )) {
+            LOGGER.info( "Waiting on content copies to complete..." );
+        }
+    }
+
+    /**
+     * Schedules the item copies of a single space, limiting the number which
+     * are in progress or waiting for a thread at any one time.
+     */
+    public class SpaceCopy {
+
+        private final Semaphore itemPermits = new Semaphore( itemsPerSpace );
+
+        /**
+         * Schedules the copy of an item. Blocks while the space already has
+         * the maximum number of item copies in progress.
+         *
+         * @param itemCopy - performs the copy of a single content item
+         * @throws InterruptedException if interrupted while waiting
+         */
+        public void submitItem(final Runnable itemCopy) throws InterruptedException {
+            itemPermits.acquire();
+            try {
+                copyWorkers.execute( new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            itemCopy.run();
+                        } finally {
+                            itemPermits.release();
+                        }
+                    }
+                } );
+            } catch (RejectedExecutionException e) {
+                itemPermits.release();
+                throw e;
+            }
+        }
+
+        /**
+         * Waits for all item copies scheduled for the space to complete.
+         *
+         * @throws InterruptedException if interrupted while waiting
+         */
+        public void awaitCompletion() throws InterruptedException {
+            itemPermits.acquire( itemsPerSpace );
+            itemPermits.release( itemsPerSpace );
+        }
+    }
+
+}
@@ -0,0 +1,186 @@
+package org.duracloud.tools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * Destination Template - A destination space or content ID format, such as
+ *                        "${1}/${contentId}", parsed once into a sequence of
+ *                        literal text, regex group references and content ID
+ *                        references.
+ *
+ *                        Group values are fixed for a given source space, so
+ *                        a template is bound to the space's match once, which
+ *                        leaves only the literal text around each ${contentId}.
+ *                        Rendering a content ID then appends those pieces to
+ *                        a reused StringBuilder, rather than scanning the format
+ *                        string once per placeholder for every content item.
+ */
+public class DestinationTemplate {
+
+    public static final String CONTENT_ID = "${contentId}";
+
+    private static final Pattern PLACEHOLDER = Pattern.compile( "\\$\\{(contentId|\\d+)\\}" );
+    private static final int CONTENT_ID_REF = -1;
+
+    private final String format;
+    // Literal text before each reference, plus the text after the last one
+    private final String[] literals;
+    // Group number of each reference, or CONTENT_ID_REF
+    private final int[] references;
+
+    private DestinationTemplate(String format, String[] literals, int[] references) {
+        this.format = format;
+        this.literals = literals;
+        this.references = references;
+    }
+
+    /**
+     * Parses a destination format. Placeholders are ${n}, which is replaced
+     * by group n of the source space match, and ${contentId}, which is
+     * replaced by the source content ID.
+     *
+     * @param format - the format to parse
+     * @return the template
+     */
+    public static DestinationTemplate compile(String format) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> references = new ArrayList<>();
+
+        Matcher matcher = PLACEHOLDER.matcher( format );
+        int position = 0;
+        while (matcher.find()) {
+            literals.add( format.substring( position, matcher.start() ) );
+            String name = matcher.group( 1 );
+            if ("contentId".equals( name )) {
+                references.add( CONTENT_ID_REF );
+            } else {
+                references.add( Integer.parseInt( name ) );
+            }
+            position = matcher.end();
+        }
+        literals.add( format.substring( position ) );
+
+        int[] refs = new int[references.size()];
+        for (int i = 0; i < refs.length; i++) {
+            refs[i] = references.get( i );
+        }
+        return new DestinationTemplate( format, literals.toArray( new String[literals.size()] ), refs );
+    }
+
+    /**
+     * @return true if the template includes a ${contentId} placeholder
+     */
+    public boolean hasContentId() {
+        for (int reference : references) {
+            if (reference == CONTENT_ID_REF) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the largest group number referred to, or 0 if there are none
+     */
+    public int getMaxGroup() {
+        int max = 0;
+        for (int reference : references) {
+            max = Math.max( max, reference );
+        }
+        return max;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * Fills in the group references from the match of a source space ID.
+     * References to groups which do not exist in the match are left as is.
+     *
+     * @param groups - the match of the source space ID
+     * @return the template, ready to render content IDs
+     */
+    public Binding bind(MatchResult groups) {
+        List<String> pieces = new ArrayList<>();
+        StringBuilder piece = new StringBuilder( literals[0] );
+        for (int i = 0; i < references.length; i++) {
+            int reference = references[i];
+            if (reference == CONTENT_ID_REF) {
+                pieces.add( piece.toString() );
+                piece.setLength( 0 );
+            } else if (reference <= groups.groupCount()) {
+                String value = groups.group( reference );
+                piece.append( null == value ? "" : value );
+            } else {
+                piece.append( "${" ).append( reference ).append( "}" );
+            }
+            piece.append( literals[i + 1] );
+        }
+        pieces.add( piece.toString() );
+        return new Binding( pieces.toArray( new String[pieces.size()] ) );
+    }
+
+    /**
+     * Renders a template which has no ${contentId} placeholder, such as a
+     * destination space format.
+     *
+     * @param groups - the match of the source space ID
+     * @return the rendered value
+     */
+    public String render(MatchResult groups) {
+        if (hasContentId()) {
+            throw new IllegalArgumentException( "Format " + format + " requires a content ID" );
+        }
+        return bind( groups ).getPrefix();
+    }
+
+    /**
+     * A template with its group references filled in for one source space.
+     * Not safe for use by more than one thread at a time, as the buffer used
+     * to render content IDs is reused.
+     */
+    public static class Binding {
+
+        private final String[] pieces;
+        private final StringBuilder buffer;
+
+        private Binding(String[] pieces) {
+            this.pieces = pieces;
+            int size = 0;
+            for (String piece : pieces) {
+                size += piece.length();
+            }
+            this.buffer = new StringBuilder( size + 64 );
+        }
+
+        /**
+         * @param contentId - the source content ID
+         * @return the destination content ID
+         */
+        public String render(String contentId) {
+            if (pieces.length == 1) {
+                return pieces[0];
+            }
+            buffer.setLength( 0 );
+            buffer.append( pieces[0] );
+            for (int i = 1; i < pieces.length; i++) {
+                buffer.append( contentId ).append( pieces[i] );
+            }
+            return buffer.toString();
+        }
+
+        /**
+         * @return the text which comes before the first ${contentId}, which
+         *         every rendered content ID begins with
+         */
+        public String getPrefix() {
+            return pieces[0];
+        }
+    }
+
+}
@@ -0,0 +1,64 @@
+package org.duracloud.tools;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/*
+ * Space List Reader - Reads space IDs from a spaces list, one per line, as
+ *                     they are needed rather than all at once. Surrounding
+ *                     whitespace is removed and empty lines are skipped.
+ */
+public class SpaceListReader implements Iterator<String>, Closeable {
+
+    private final BufferedReader reader;
+    private String next;
+
+    public SpaceListReader(Reader reader) {
+        this.reader = new BufferedReader( reader );
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (null != next) {
+            return true;
+        }
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty()) {
+                    next = line;
+                    return true;
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException( "Unable to read spaces list due to: " + e.getMessage(), e );
+        }
+        return false;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String spaceId = next;
+        next = null;
+        return spaceId;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+}
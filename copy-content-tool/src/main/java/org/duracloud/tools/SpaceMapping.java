@@ -0,0 +1,142 @@
+package org.duracloud.tools;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/*
+ * Space Mapping - Describes how source spaces map to destination spaces and
+ *                 content IDs: a regular expression which selects source
+ *                 spaces, a destination space format and a destination
+ *                 content format. The formats may refer to the groups of the
+ *                 expression as ${n}, and the content format must include the
+ *                 source content ID as ${contentId}.
+ *
+ *                 The expression and formats are validated and compiled once,
+ *                 and a mapping may be shared by all space copies.
+ */
+public class SpaceMapping {
+
+    public static final String DEFAULT_INPUT_SPACE_REGEX = "^(.*)-(open|campus|closed)$";
+    public static final String DEFAULT_DESTINATION_SPACE_FORMAT = "${2}";
+    public static final String DEFAULT_DESTINATION_CONTENT_FORMAT = "${1}/${contentId}";
+
+    private final Pattern inputSpacePattern;
+    private final DestinationTemplate destinationSpaceTemplate;
+    private final DestinationTemplate destinationContentTemplate;
+
+    /**
+     * @param inputSpaceRegex          - selects the spaces to copy
+     * @param destinationSpaceFormat   - the destination space ID format
+     * @param destinationContentFormat - the destination content ID format
+     * @throws IllegalArgumentException if the expression cannot be compiled,
+     *                                  or a format refers to a group the
+     *                                  expression does not have, or the
+     *                                  content ID placeholder is misplaced
+     */
+    public SpaceMapping(String inputSpaceRegex,
+                        String destinationSpaceFormat,
+                        String destinationContentFormat) {
+        try {
+            this.inputSpacePattern = Pattern.compile( inputSpaceRegex );
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException( "The input space regular expression \"" +
+                                                inputSpaceRegex + "\" is not valid: " +
+                                                e.getDescription() );
+        }
+        int groupCount = inputSpacePattern.matcher( "" ).groupCount();
+
+        this.destinationSpaceTemplate = DestinationTemplate.compile( destinationSpaceFormat );
+        if (destinationSpaceTemplate.hasContentId()) {
+            throw new IllegalArgumentException( "The destination space format \"" +
+                                                destinationSpaceFormat + "\" cannot include " +
+                                                DestinationTemplate.CONTENT_ID );
+        }
+        checkGroups( destinationSpaceTemplate, groupCount, "destination space format" );
+
+        this.destinationContentTemplate = DestinationTemplate.compile( destinationContentFormat );
+        if (!destinationContentTemplate.hasContentId()) {
+            throw new IllegalArgumentException( "The destination content format \"" +
+                                                destinationContentFormat + "\" must include " +
+                                                DestinationTemplate.CONTENT_ID );
+        }
+        checkGroups( destinationContentTemplate, groupCount, "destination content format" );
+    }
+
+    /**
+     * @return the mapping used when none is specified, which copies spaces
+     *         named [name]-[open|campus|closed] into a space named
+     *         open, campus or closed, under the content prefix [name]/
+     */
+    public static SpaceMapping getDefault() {
+        return new SpaceMapping( DEFAULT_INPUT_SPACE_REGEX,
+                                 DEFAULT_DESTINATION_SPACE_FORMAT,
+                                 DEFAULT_DESTINATION_CONTENT_FORMAT );
+    }
+
+    private static void checkGroups(DestinationTemplate template,
+                                    int groupCount,
+                                    String description) {
+        if (template.getMaxGroup() > groupCount) {
+            throw new IllegalArgumentException( "The " + description + " \"" +
+                                                template.getFormat() + "\" refers to group " +
+                                                template.getMaxGroup() + ", but the input " +
+                                                "space regular expression has only " +
+                                                groupCount + " groups" );
+        }
+    }
+
+    /**
+     * Maps a source space.
+     *
+     * @param spaceId - the source space ID
+     * @return the destination of the space's content, or null if the space
+     *         does not match the input space regular expression
+     */
+    public Destination map(String spaceId) {
+        Matcher matcher = inputSpacePattern.matcher( spaceId );
+        if (!matcher.find()) {
+            return null;
+        }
+        return new Destination( destinationSpaceTemplate.render( matcher ),
+                                destinationContentTemplate.bind( matcher ) );
+    }
+
+    public String getInputSpaceRegex() {
+        return inputSpacePattern.pattern();
+    }
+
+    public String getDestinationSpaceFormat() {
+        return destinationSpaceTemplate.getFormat();
+    }
+
+    public String getDestinationContentFormat() {
+        return destinationContentTemplate.getFormat();
+    }
+
+    /**
+     * The destination of the content in one source space.
+     */
+    public static class Destination {
+
+        private final String spaceId;
+        private final DestinationTemplate.Binding contentTemplate;
+
+        private Destination(String spaceId, DestinationTemplate.Binding contentTemplate) {
+            this.spaceId = spaceId;
+            this.contentTemplate = contentTemplate;
+        }
+
+        public String getSpaceId() {
+            return spaceId;
+        }
+
+        /**
+         * @return renders destination content IDs, for use by a single thread
+         */
+        public DestinationTemplate.Binding getContentTemplate() {
+            return contentTemplate;
+        }
+    }
+
+}
@@ -0,0 +1,264 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.duracloud.client.ContentStore;
+import org.duracloud.error.NotFoundException;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Performs tests on the copy content tool.
+ */
+public class CopyContentToolTest {
+
+    private ContentStore store;
+
+    private static final String spaceId = "space1234-open";
+    private static final String destSpaceId = "open";
+
+    private List<String> spaceContents = new LinkedList<>();
+
+    @Before
+    public void setup() {
+        store = EasyMock.createMock( ContentStore.class );
+        for (int i = 0; i < 50; i++) {
+            spaceContents.add( "item-" + i );
+        }
+    }
+
+    @After
+    public void teardown() {
+        EasyMock.verify( store );
+    }
+
+    private CopyContentTool createTool(boolean dryRun) {
+        return new CopyContentTool( "host", "port", "user", "pass",
+                                    "store-id", "space-list.txt", dryRun );
+    }
+
+    /**
+     * Tests copying a space with items copied concurrently, to verify that
+     * every item is copied to the expected destination.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testConcurrentCopy() throws Exception {
+        CopyContentTool tool = createTool( false );
+
+        EasyMock.expect( store.spaceExists( destSpaceId ) ).andReturn( true );
+        EasyMock.expect( store.getSpaceContents( spaceId ) )
+                .andReturn( spaceContents.iterator() );
+        for (String contentId : spaceContents) {
+            EasyMock.expect( store.copyContent( spaceId, contentId,
+                                                destSpaceId, "space1234/" + contentId ) )
+                    .andReturn( "" );
+        }
+        EasyMock.replay( store );
+
+        CopyScheduler scheduler = new CopyScheduler( 2, 4, 3 );
+        tool.doCopy( store, spaceId, scheduler.newSpaceCopy() );
+        scheduler.finish();
+    }
+
+    /**
+     * Tests that spaces which do not match the input space pattern are skipped,
+     * and that a dry run makes no changes.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testDryRun() throws Exception {
+        CopyContentTool tool = createTool( true );
+
+        EasyMock.expect( store.spaceExists( destSpaceId ) ).andReturn( false );
+        EasyMock.expect( store.getSpaceContents( spaceId ) )
+                .andReturn( spaceContents.iterator() );
+        EasyMock.replay( store );
+
+        tool.doCopy( store, "space1234-private" );
+        tool.doCopy( store, spaceId );
+    }
+
+    /**
+     * Tests that items already in the destination are not copied again, and
+     * that checksums are compared when requested.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSkipExisting() throws Exception {
+        CopyContentTool tool = createTool( false );
+        tool.setIncremental( true, true );
+
+        List<String> destContents = new LinkedList<>();
+        destContents.add( "space1234/item-0" );
+        destContents.add( "space1234/item-1" );
+
+        EasyMock.expect( store.spaceExists( destSpaceId ) ).andReturn( true );
+        EasyMock.expect( store.getSpaceContents( destSpaceId, "space1234/" ) )
+                .andReturn( destContents.iterator() );
+        EasyMock.expect( store.getSpaceContents( spaceId ) )
+                .andReturn( spaceContents.subList( 0, 4 ).iterator() );
+
+        // item-0 matches, item-1 differs
+        EasyMock.expect( store.getContentProperties( destSpaceId, "space1234/item-0" ) )
+                .andReturn( checksumProps( "abc" ) );
+        EasyMock.expect( store.getContentProperties( spaceId, "item-0" ) )
+                .andReturn( checksumProps( "abc" ) );
+        EasyMock.expect( store.getContentProperties( destSpaceId, "space1234/item-1" ) )
+                .andReturn( checksumProps( "abc" ) );
+        EasyMock.expect( store.getContentProperties( spaceId, "item-1" ) )
+                .andReturn( checksumProps( "def" ) );
+
+        for (String contentId : new String[] {"item-1", "item-2", "item-3"}) {
+            EasyMock.expect( store.copyContent( spaceId, contentId,
+                                                destSpaceId, "space1234/" + contentId ) )
+                    .andReturn( "" );
+        }
+        EasyMock.replay( store );
+
+        tool.doCopy( store, spaceId );
+    }
+
+    /**
+     * Tests that a destination space which does not exist on a dry run is
+     * treated as empty.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSkipExistingDryRun() throws Exception {
+        CopyContentTool tool = createTool( true );
+        tool.setIncremental( true, false );
+
+        EasyMock.expect( store.spaceExists( destSpaceId ) ).andReturn( false );
+        EasyMock.expect( store.getSpaceContents( destSpaceId, "space1234/" ) )
+                .andThrow( new NotFoundException( "not found" ) );
+        EasyMock.expect( store.getSpaceContents( spaceId ) )
+                .andReturn( spaceContents.iterator() );
+        EasyMock.replay( store );
+
+        tool.doCopy( store, spaceId );
+    }
+
+    private Map<String, String> checksumProps(String checksum) {
+        Map<String, String> props = new HashMap<>();
+        props.put( ContentStore.CONTENT_CHECKSUM, checksum );
+        return props;
+    }
+
+    /**
+     * Tests copying spaces as they are read from a spaces list, skipping
+     * empty lines and spaces which do not match.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCopySpaces() throws Exception {
+        CopyContentTool tool = createTool( false );
+        tool.setConcurrency( 2, 2, 3 );
+
+        String otherSpaceId = "space5678-open";
+        EasyMock.expect( store.spaceExists( destSpaceId ) ).andReturn( true );
+        EasyMock.expect( store.getSpaceContents( spaceId ) )
+                .andReturn( spaceContents.iterator() );
+        EasyMock.expect( store.getSpaceContents( otherSpaceId ) )
+                .andReturn( spaceContents.iterator() );
+        for (String contentId : spaceContents) {
+            EasyMock.expect( store.copyContent( spaceId, contentId,
+                                                destSpaceId, "space1234/" + contentId ) )
+                    .andReturn( "" );
+            EasyMock.expect( store.copyContent( otherSpaceId, contentId,
+                                                destSpaceId, "space5678/" + contentId ) )
+                    .andReturn( "" );
+        }
+        EasyMock.replay( store );
+
+        String spaceList = spaceId + "\n\n  space1234-private\n" + otherSpaceId + "  \n";
+        try (SpaceListReader spaces = new SpaceListReader( new StringReader( spaceList ) )) {
+            assertEquals( 3, tool.copySpaces( store, spaces ) );
+        }
+    }
+
+    /**
+     * Tests that a space whose listing fails part way through is counted as
+     * a failure, so that the run fails once the copies which were started
+     * have completed.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testListingFailure() throws Exception {
+        CopyContentTool tool = new CopyContentTool( "host", "port", "user", "pass",
+                                                    "store-id", null, false ) {
+            @Override
+            protected ContentStore connect() {
+                return store;
+            }
+        };
+        tool.setConcurrency( 1, 2, 2 );
+
+        // The listing fails after half of the items
+        final Iterator<String> contents = spaceContents.iterator();
+        Iterator<String> failingContents = new Iterator<String>() {
+            private int read = 0;
+
+            @Override
+            public boolean hasNext() {
+                if (read == 25) {
+                    throw new RuntimeException( "listing failed" );
+                }
+                return contents.hasNext();
+            }
+
+            @Override
+            public String next() {
+                read++;
+                return contents.next();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        EasyMock.expect( store.getSpaces() ).andReturn( Collections.singletonList( spaceId ) );
+        EasyMock.expect( store.spaceExists( destSpaceId ) ).andReturn( true );
+        EasyMock.expect( store.getSpaceContents( spaceId ) ).andReturn( failingContents );
+        for (String contentId : spaceContents.subList( 0, 25 )) {
+            EasyMock.expect( store.copyContent( spaceId, contentId,
+                                                destSpaceId, "space1234/" + contentId ) )
+                    .andReturn( "" );
+        }
+        EasyMock.replay( store );
+
+        try {
+            tool.run();
+            fail( "Exception expected" );
+        } catch (RuntimeException e) {
+            assertEquals( "Copy Content Tool process completed with 1 failures", e.getMessage() );
+        }
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.tools;
+
+import java.text.MessageFormat;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares building destination content IDs with a chain of String.replace()
+ * calls plus a MessageFormat log message, as the copy tool did for each item,
+ * against rendering a DestinationTemplate bound once per space.
+ *
+ * Each invocation renders the destination ID of every item in a space, so
+ * the GC profiler's gc.alloc.rate.norm value is the bytes allocated per space.
+ * This is not a unit test, run it with:
+ *
+ *   mvn test-compile
+ *   java -cp target/test-classes:target/classes:[test classpath]
+ *        org.duracloud.tools.DestinationTemplateBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DestinationTemplateBenchmark {
+
+    private static final String inputSpaceRegex = "^(.*)-(open|campus|closed)$";
+    private static final String destinationContentFormat = "${1}/${contentId}";
+    private static final String spaceId = "space1234-open";
+    private static final String destinationSpaceId = "open";
+
+    @Param({"1000000"})
+    private int itemCount;
+
+    private String[] contentIds;
+    private Matcher matcher;
+    private DestinationTemplate template;
+
+    @Setup
+    public void setup() {
+        contentIds = new String[itemCount];
+        for (int i = 0; i < itemCount; i++) {
+            contentIds[i] = "collection-" + (i % 100) + "/audio/item-" + i + ".mp3";
+        }
+        matcher = Pattern.compile( inputSpaceRegex ).matcher( spaceId );
+        matcher.find();
+        template = DestinationTemplate.compile( destinationContentFormat );
+    }
+
+    @Benchmark
+    public void replaceChain(Blackhole blackhole) {
+        for (String contentId : contentIds) {
+            String destinationContentId = destinationContentFormat;
+            destinationContentId = destinationContentId.replace( "${contentId}", contentId );
+            for (int i = 1; i < matcher.groupCount(); i++) {
+                destinationContentId = destinationContentId.replace( "${" + i + "}", matcher.group( i ) );
+            }
+            String message = MessageFormat.format( "Copying {0} from {1} to {2} in {3}",
+                                                   contentId, spaceId, destinationContentId,
+                                                   destinationSpaceId );
+            blackhole.consume( destinationContentId );
+            blackhole.consume( message );
+        }
+    }
+
+    @Benchmark
+    public void compiledTemplate(Blackhole blackhole) {
+        DestinationTemplate.Binding binding = template.bind( matcher );
+        for (String contentId : contentIds) {
+            blackhole.consume( binding.render( contentId ) );
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+            .include( DestinationTemplateBenchmark.class.getSimpleName() )
+            .addProfiler( GCProfiler.class )
+            .build();
+        new Runner( options ).run();
+    }
+
+}
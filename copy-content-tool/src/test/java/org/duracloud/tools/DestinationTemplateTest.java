@@ -0,0 +1,68 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+/**
+ * Performs tests on destination templates.
+ */
+public class DestinationTemplateTest {
+
+    private Matcher match(String regex, String spaceId) {
+        Matcher matcher = Pattern.compile( regex ).matcher( spaceId );
+        assertTrue( matcher.find() );
+        return matcher;
+    }
+
+    @Test
+    public void testRender() {
+        Matcher matcher = match( "^(.*)-(open|campus|closed)$", "space1234-open" );
+
+        DestinationTemplate spaceTemplate = DestinationTemplate.compile( "${2}" );
+        assertFalse( spaceTemplate.hasContentId() );
+        assertEquals( 2, spaceTemplate.getMaxGroup() );
+        assertEquals( "open", spaceTemplate.render( matcher ) );
+
+        DestinationTemplate contentTemplate =
+            DestinationTemplate.compile( "${1}/${2}/${contentId}.copy" );
+        assertTrue( contentTemplate.hasContentId() );
+        DestinationTemplate.Binding binding = contentTemplate.bind( matcher );
+        assertEquals( "space1234/open/", binding.getPrefix() );
+        assertEquals( "space1234/open/a/b.txt.copy", binding.render( "a/b.txt" ) );
+        assertEquals( "space1234/open/c.copy", binding.render( "c" ) );
+    }
+
+    @Test
+    public void testContentIdNotExpanded() {
+        Matcher matcher = match( "^(.*)-(open)$", "space-open" );
+        DestinationTemplate.Binding binding =
+            DestinationTemplate.compile( "${0}:${contentId}:${contentId}" ).bind( matcher );
+        assertEquals( "space-open:${1}:${1}", binding.render( "${1}" ) );
+    }
+
+    @Test
+    public void testMissingGroup() {
+        Matcher matcher = match( "^(.*)-(open)$", "space-open" );
+        assertEquals( "x${5}y", DestinationTemplate.compile( "x${5}y" ).render( matcher ) );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRenderRequiresContentId() {
+        Matcher matcher = match( "^(.*)$", "space" );
+        DestinationTemplate.compile( "${1}/${contentId}" ).render( matcher );
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+/**
+ * Performs tests on space mappings.
+ */
+public class SpaceMappingTest {
+
+    @Test
+    public void testDefaultMapping() {
+        SpaceMapping mapping = SpaceMapping.getDefault();
+        assertNull( mapping.map( "space1234-private" ) );
+
+        SpaceMapping.Destination destination = mapping.map( "space1234-campus" );
+        assertEquals( "campus", destination.getSpaceId() );
+        assertEquals( "space1234/item.txt", destination.getContentTemplate().render( "item.txt" ) );
+    }
+
+    @Test
+    public void testCustomMapping() {
+        SpaceMapping mapping =
+            new SpaceMapping( "^archive-(\\d{4})$", "archive", "${1}/${contentId}" );
+        SpaceMapping.Destination destination = mapping.map( "archive-2019" );
+        assertEquals( "archive", destination.getSpaceId() );
+        assertEquals( "2019/a/b", destination.getContentTemplate().render( "a/b" ) );
+        assertNull( mapping.map( "archive-19" ) );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRegex() {
+        new SpaceMapping( "^(.*$", "${1}", "${contentId}" );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownSpaceGroup() {
+        new SpaceMapping( "^(.*)$", "${2}", "${contentId}" );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownContentGroup() {
+        new SpaceMapping( "^(.*)$", "${1}", "${3}/${contentId}" );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testContentIdRequired() {
+        new SpaceMapping( "^(.*)$", "${1}", "${1}/" );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testContentIdInSpaceFormat() {
+        new SpaceMapping( "^(.*)$", "${contentId}", "${contentId}" );
+    }
+
+}
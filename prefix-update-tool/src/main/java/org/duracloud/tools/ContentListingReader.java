@@ -0,0 +1,102 @@
+package org.duracloud.tools;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads a content listing file (one content ID per line) while keeping track
+ * of the byte offset of each line, so that reading can later be started again
+ * from any line in the file.
+ */
+public class ContentListingReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private FileInputStream in;
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    private int bufferPos = 0;
+    private int bufferLimit = 0;
+
+    private ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+    private long offset;
+    private long lineOffset;
+
+    /**
+     * @param listing     - the content listing file
+     * @param startOffset - the byte offset at which to begin reading, must be
+     *                      the start of a line
+     * @throws IOException
+     */
+    public ContentListingReader(File listing, long startOffset) throws IOException {
+        this.in = new FileInputStream(listing);
+        this.in.getChannel().position(startOffset);
+        this.offset = startOffset;
+        this.lineOffset = startOffset;
+    }
+
+    /**
+     * @return the next line of the listing, or null if the end of the listing
+     *         has been reached
+     * @throws IOException
+     */
+    public String readLine() throws IOException {
+        lineOffset = offset;
+        line.reset();
+        while (true) {
+            if (bufferPos >= bufferLimit) {
+                bufferLimit = in.read(buffer);
+                bufferPos = 0;
+                if (bufferLimit < 0) {
+                    bufferLimit = 0;
+                    return line.size() > 0 ? decodeLine() : null;
+                }
+            }
+
+            int start = bufferPos;
+            while (bufferPos < bufferLimit && buffer[bufferPos] != '\n') {
+                bufferPos++;
+            }
+            line.write(buffer, start, bufferPos - start);
+            offset += bufferPos - start;
+
+            if (bufferPos < bufferLimit) { // found end of line
+                bufferPos++;
+                offset++;
+                return decodeLine();
+            }
+        }
+    }
+
+    private String decodeLine() {
+        String value = new String(line.toByteArray(), StandardCharsets.UTF_8);
+        if (value.endsWith("\r")) {
+            value = value.substring(0, value.length() - 1);
+        }
+        return value;
+    }
+
+    /**
+     * @return the byte offset at which the line most recently returned by
+     *         readLine() begins
+     */
+    public long getLineOffset() {
+        return lineOffset;
+    }
+
+    /**
+     * @return the byte offset at which the next call to readLine() will begin
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+}
@@ -0,0 +1,175 @@
+package org.duracloud.tools;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.duracloud.client.ContentStore;
+import org.duracloud.error.ContentStoreException;
+
+/**
+ * Performs content moves within a space on a bounded pool of worker threads.
+ *
+ * Calls to submit() block once the pool has a full queue of pending moves,
+ * which keeps the caller (generally a reader working through a content
+ * listing) from getting more than a few items ahead of the workers.
+ */
+public class MoveExecutor {
+
+    /**
+     * Receives notice as each move finishes.
+     */
+    public interface MoveListener {
+        void moveCompleted(String contentId, boolean success);
+    }
+
+    // Number of moves which may wait in the queue for each worker thread
+    private static final int QUEUED_MOVES_PER_THREAD = 4;
+
+    private ContentStore store;
+    private String spaceId;
+    private boolean dryRun;
+    private MoveListener listener;
+
+    private ExecutorService workers;
+    private Semaphore permits;
+
+    private AtomicLong successCount = new AtomicLong();
+    private Queue<String> failures = new ConcurrentLinkedQueue<>();
+    private long startTime;
+
+    public MoveExecutor(ContentStore store,
+                        String spaceId,
+                        int threads,
+                        boolean dryRun) {
+        this(store, spaceId, threads, dryRun, null);
+    }
+
+    public MoveExecutor(ContentStore store,
+                        String spaceId,
+                        int threads,
+                        boolean dryRun,
+                        MoveListener listener) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1");
+        }
+        this.store = store;
+        this.spaceId = spaceId;
+        this.dryRun = dryRun;
+        this.listener = listener;
+        this.workers = Executors.newFixedThreadPool(threads);
+        this.permits = new Semaphore(threads * (QUEUED_MOVES_PER_THREAD + 1));
+        this.startTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Queues a content item to be moved. Blocks until there is room in the
+     * queue for the move.
+     *
+     * @param contentId    - the current ID of the content item
+     * @param newContentId - the ID the content item should have after the move
+     * @throws InterruptedException if interrupted while waiting for room
+     */
+    public void submit(final String contentId, final String newContentId)
+        throws InterruptedException {
+        permits.acquire();
+        try {
+            workers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        move(contentId, newContentId);
+                    } finally {
+                        permits.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /*
+     * Moves a single content item, recording the outcome
+     */
+    protected void move(String contentId, String newContentId) {
+        boolean success = true;
+        if (dryRun) {
+            System.out.println("Updating " + contentId + " to " + newContentId);
+            successCount.incrementAndGet();
+        } else {
+            try {
+                store.moveContent(spaceId, contentId, spaceId, newContentId);
+                successCount.incrementAndGet();
+                System.out.println("Updated " + contentId + " to " + newContentId);
+            } catch (ContentStoreException | RuntimeException e) {
+                success = false;
+                failures.add(contentId + " (" + e.getMessage() + ")");
+                System.out.println("FAILED to update " + contentId + " to " +
+                                   newContentId + " due to: " + e.getMessage());
+            }
+        }
+
+        if (null != listener) {
+            listener.moveCompleted(contentId, success);
+        }
+    }
+
+    /**
+     * Waits for all submitted moves to complete, then shuts down the worker
+     * threads and prints a summary of the results.
+     *
+     * @throws InterruptedException if interrupted while waiting for moves
+     */
+    public void finish() throws InterruptedException {
+        workers.shutdown();
+        while (!workers.awaitTermination(1, TimeUnit.MINUTES)) {
+            System.out.println("Waiting on content moves to complete, " +
+                               successCount.get() + " moves successful so far...");
+        }
+        printSummary();
+    }
+
+    /*
+     * Prints totals, throughput, and the list of any items which failed
+     */
+    private void printSummary() {
+        long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+        long successes = successCount.get();
+        long total = successes + failures.size();
+        double itemsPerSecond = (double) total * 1000 / elapsed;
+
+        StringBuilder summary = new StringBuilder();
+        summary.append("-----------------------------------------")
+               .append("\nPrefix Update Summary:")
+               .append(dryRun ? "\nitems which would be updated=" : "\nitems updated=")
+               .append(successes)
+               .append("\nitems failed=").append(failures.size())
+               .append("\nelapsed time=").append(elapsed / 1000).append(" seconds")
+               .append("\nthroughput=").append(String.format("%.02f", itemsPerSecond))
+               .append(" items/second");
+        if (!failures.isEmpty()) {
+            summary.append("\nFailed items:");
+            for (String failure : failures) {
+                summary.append("\n  ").append(failure);
+            }
+        }
+        summary.append("\n-----------------------------------------");
+        System.out.println(summary.toString());
+    }
+
+    public long getSuccessCount() {
+        return successCount.get();
+    }
+
+    public long getFailureCount() {
+        return failures.size();
+    }
+
+}
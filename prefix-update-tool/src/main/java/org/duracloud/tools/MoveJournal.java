@@ -0,0 +1,325 @@
+package org.duracloud.tools;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A persistent record of the progress of a prefix update, which allows an
+ * interrupted update to be resumed without listing the space again.
+ *
+ * The journal is a text file which names the content listing being worked
+ * through and then records the outcome of each move as it completes. At
+ * regular intervals a checkpoint is written and the journal is synced to
+ * disk. A checkpoint is the byte offset in the listing before which every
+ * move is known to be finished, so a resumed update starts reading the
+ * listing at the last checkpoint and skips the moves which the journal shows
+ * were completed beyond that point. Moves which failed are tried again.
+ */
+public class MoveJournal implements MoveExecutor.MoveListener {
+
+    private static final String LISTING = "listing";
+    private static final String SPACE = "space";
+    private static final String RULE = "rule";
+    private static final String DONE = "done";
+    private static final String FAILED = "failed";
+    private static final String CHECKPOINT = "checkpoint";
+    private static final String COMPLETE = "complete";
+
+    // Offset recorded for moves which are not read from the listing
+    private static final long RETRY_OFFSET = -1;
+
+    private static final int CHECKPOINT_RECORDS = 1000;
+    private static final long CHECKPOINT_MILLIS = 10000;
+
+    private File journalFile;
+    private FileOutputStream journalOut;
+    private Writer writer;
+
+    private File listing;
+    private String spaceId;
+    private Map<String, String> rules = new LinkedHashMap<>();
+    private boolean complete = false;
+
+    private long checkpoint = 0;
+    private Set<Long> completedOffsets = new HashSet<>();
+    private Set<String> failedContentIds = new LinkedHashSet<>();
+
+    // Moves which have started but not finished, in listing order
+    private Map<String, Long> inProgress = new LinkedHashMap<>();
+    private long lastStartedOffset = -1;
+    private int recordsSinceCheckpoint = 0;
+    private long lastCheckpointTime = System.currentTimeMillis();
+
+    private MoveJournal(File journalFile) {
+        this.journalFile = journalFile;
+    }
+
+    /**
+     * Creates a new journal for an update which is about to begin.
+     *
+     * @param journalFile - the file to which the journal will be written
+     * @param listing     - the content listing that the update works through
+     * @param spaceId     - the space being updated
+     * @param rules       - the prefix rules being applied, mapping each old
+     *                      prefix to its new prefix
+     * @return the new journal
+     * @throws IOException if the journal file exists or cannot be written
+     */
+    public static MoveJournal create(File journalFile,
+                                     File listing,
+                                     String spaceId,
+                                     Map<String, String> rules) throws IOException {
+        if (journalFile.exists()) {
+            throw new IOException("Journal file " + journalFile.getAbsolutePath() +
+                                  " already exists, use the resume option " +
+                                  "to continue the update it records");
+        }
+
+        MoveJournal journal = new MoveJournal(journalFile);
+        journal.listing = listing.getAbsoluteFile();
+        journal.spaceId = spaceId;
+        journal.rules.putAll(rules);
+
+        journal.open();
+        journal.write(LISTING, journal.listing.getPath());
+        journal.write(SPACE, spaceId);
+        for (Map.Entry<String, String> rule : rules.entrySet()) {
+            journal.write(RULE, rule.getKey(), rule.getValue());
+        }
+        journal.sync();
+        return journal;
+    }
+
+    /**
+     * Reads an existing journal so that the update it records can be resumed.
+     * New records are appended to the same file.
+     *
+     * @param journalFile - the journal written by an earlier update
+     * @return the journal, ready to record further progress
+     * @throws IOException if the journal cannot be read or is incomplete
+     */
+    public static MoveJournal resume(File journalFile) throws IOException {
+        MoveJournal journal = new MoveJournal(journalFile);
+        journal.read();
+        if (null == journal.listing || null == journal.spaceId ||
+            journal.rules.isEmpty()) {
+            throw new IOException("Journal file " + journalFile.getAbsolutePath() +
+                                  " is missing header information, unable to resume");
+        }
+        if (!journal.complete && !journal.listing.exists()) {
+            throw new IOException("Content listing " + journal.listing.getPath() +
+                                  " named in the journal no longer exists");
+        }
+        journal.open();
+        return journal;
+    }
+
+    /*
+     * Loads the state recorded in the journal file. An incomplete final line,
+     * as may be left by a crash, is ignored.
+     */
+    private void read() throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+            new InputStreamReader(new FileInputStream(journalFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t", 3);
+                try {
+                    readRecord(parts);
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                    // Partially written record, skip it
+                }
+            }
+        }
+    }
+
+    private void readRecord(String[] parts) {
+        String type = parts[0];
+        if (LISTING.equals(type)) {
+            listing = new File(parts[1]);
+        } else if (SPACE.equals(type)) {
+            spaceId = parts[1];
+        } else if (RULE.equals(type)) {
+            rules.put(parts[1], parts[2]);
+        } else if (DONE.equals(type)) {
+            long offset = Long.parseLong(parts[1]);
+            String contentId = parts[2];
+            failedContentIds.remove(contentId);
+            if (offset >= checkpoint) {
+                completedOffsets.add(offset);
+            }
+        } else if (FAILED.equals(type)) {
+            long offset = Long.parseLong(parts[1]);
+            failedContentIds.add(parts[2]);
+            if (offset >= checkpoint) {
+                completedOffsets.add(offset);
+            }
+        } else if (CHECKPOINT.equals(type)) {
+            checkpoint = Long.parseLong(parts[1]);
+            Iterator<Long> offsets = completedOffsets.iterator();
+            while (offsets.hasNext()) {
+                if (offsets.next() < checkpoint) {
+                    offsets.remove();
+                }
+            }
+        } else if (COMPLETE.equals(type)) {
+            complete = true;
+        }
+    }
+
+    private void open() throws IOException {
+        journalOut = new FileOutputStream(journalFile, true);
+        writer = new BufferedWriter(new OutputStreamWriter(journalOut, StandardCharsets.UTF_8));
+    }
+
+    /*
+     * Writes a single record. Each record is flushed to the operating system
+     * as it is written, so that only a crash of the host (rather than of this
+     * process) can lose records written since the last sync.
+     */
+    private void write(String... fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                writer.write('\t');
+            }
+            writer.write(fields[i]);
+        }
+        writer.write('\n');
+        writer.flush();
+    }
+
+    private void sync() throws IOException {
+        writer.flush();
+        journalOut.getChannel().force(false);
+    }
+
+    /**
+     * Notes that a move of an item read from the listing is about to begin.
+     *
+     * @param contentId - the ID of the item being moved
+     * @param offset    - the byte offset of the item's line in the listing
+     */
+    public synchronized void moveStarted(String contentId, long offset) {
+        inProgress.put(contentId, offset);
+        lastStartedOffset = offset;
+    }
+
+    @Override
+    public synchronized void moveCompleted(String contentId, boolean success) {
+        Long offset = inProgress.remove(contentId);
+        if (null == offset) {
+            offset = RETRY_OFFSET;
+        }
+
+        try {
+            write(success ? DONE : FAILED, String.valueOf(offset), contentId);
+            recordsSinceCheckpoint++;
+            if (recordsSinceCheckpoint >= CHECKPOINT_RECORDS ||
+                System.currentTimeMillis() - lastCheckpointTime >= CHECKPOINT_MILLIS) {
+                writeCheckpoint();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to write to journal " +
+                                       journalFile.getAbsolutePath() +
+                                       " due to: " + e.getMessage());
+        }
+    }
+
+    /*
+     * Records the offset before which all moves are finished and syncs the
+     * journal to disk.
+     */
+    private void writeCheckpoint() throws IOException {
+        if (!inProgress.isEmpty()) {
+            checkpoint = inProgress.values().iterator().next();
+        } else if (lastStartedOffset > checkpoint) {
+            checkpoint = lastStartedOffset;
+        }
+        write(CHECKPOINT, String.valueOf(checkpoint));
+        sync();
+        recordsSinceCheckpoint = 0;
+        lastCheckpointTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Writes a final checkpoint and closes the journal. If the update
+     * finished with no failures the journal is marked complete.
+     *
+     * @param success - true if every move in the update succeeded
+     * @throws IOException
+     */
+    public synchronized void close(boolean success) throws IOException {
+        try {
+            writeCheckpoint();
+            if (success) {
+                write(COMPLETE);
+                complete = true;
+                sync();
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * @return true if the update recorded in this journal finished successfully
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @param offset - the byte offset of a line in the listing
+     * @return true if the journal shows the item at the given offset was
+     *         already processed
+     */
+    public boolean isCompleted(long offset) {
+        return completedOffsets.contains(offset);
+    }
+
+    /**
+     * @return the IDs of items for which the last recorded move failed
+     */
+    public Set<String> getFailedContentIds() {
+        return Collections.unmodifiableSet(failedContentIds);
+    }
+
+    /**
+     * @return the byte offset in the listing at which to resume the update
+     */
+    public long getCheckpoint() {
+        return checkpoint;
+    }
+
+    public File getJournalFile() {
+        return journalFile;
+    }
+
+    public File getListing() {
+        return listing;
+    }
+
+    public String getSpaceId() {
+        return spaceId;
+    }
+
+    public Map<String, String> getRules() {
+        return Collections.unmodifiableMap(rules);
+    }
+
+}
@@ -0,0 +1,228 @@
+package org.duracloud.tools;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A set of prefix rewrite rules, each of which replaces an old prefix with a
+ * new prefix. The old prefixes are held in a trie so that a content ID can be
+ * matched against every rule in a single walk of its characters. When more
+ * than one old prefix matches a content ID, the longest one wins.
+ */
+public class PrefixRuleTrie {
+
+    private Node root = new Node();
+    private Map<String, String> rules = new LinkedHashMap<>();
+
+    /**
+     * Creates a rule set with a single rule.
+     *
+     * @param oldPrefix - the prefix to replace
+     * @param newPrefix - the prefix to add
+     * @return the rule set
+     */
+    public static PrefixRuleTrie of(String oldPrefix, String newPrefix) {
+        PrefixRuleTrie trie = new PrefixRuleTrie();
+        trie.add(oldPrefix, newPrefix);
+        return trie;
+    }
+
+    /**
+     * Reads rules from a mapping file. Each line of the file holds one rule,
+     * in the form: old-prefix[TAB]new-prefix
+     * Empty lines and lines beginning with # are ignored.
+     *
+     * @param mappingFile - the file to read
+     * @return the rule set
+     * @throws IOException if the file cannot be read or includes an invalid rule
+     */
+    public static PrefixRuleTrie load(File mappingFile) throws IOException {
+        PrefixRuleTrie trie = new PrefixRuleTrie();
+        try (BufferedReader reader =
+                 Files.newBufferedReader(mappingFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("\t", -1);
+                if (parts.length != 2) {
+                    throw new IOException("Line " + lineNumber + " of mapping file " +
+                                          mappingFile.getPath() + " must have an old " +
+                                          "prefix and a new prefix separated by a tab");
+                }
+                try {
+                    trie.add(parts[0], parts[1]);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Line " + lineNumber + " of mapping file " +
+                                          mappingFile.getPath() + ": " + e.getMessage());
+                }
+            }
+        }
+
+        if (trie.size() == 0) {
+            throw new IOException("Mapping file " + mappingFile.getPath() +
+                                  " contains no rules");
+        }
+        return trie;
+    }
+
+    /**
+     * Adds a rule.
+     *
+     * @param oldPrefix - the prefix to replace
+     * @param newPrefix - the prefix to add
+     * @throws IllegalArgumentException if the prefixes match or a rule for the
+     *                                  old prefix already exists
+     */
+    public void add(String oldPrefix, String newPrefix) {
+        if (oldPrefix.equals(newPrefix)) {
+            throw new IllegalArgumentException("The old and new prefix values " +
+                                               "cannot match: " + oldPrefix);
+        }
+        if (rules.containsKey(oldPrefix)) {
+            throw new IllegalArgumentException("More than one rule exists for " +
+                                               "prefix: " + oldPrefix);
+        }
+
+        Node node = root;
+        for (int i = 0; i < oldPrefix.length(); i++) {
+            node = node.addChild(oldPrefix.charAt(i));
+        }
+        node.oldPrefix = oldPrefix;
+        node.newPrefix = newPrefix;
+        rules.put(oldPrefix, newPrefix);
+    }
+
+    /**
+     * Applies the rule with the longest old prefix which matches the content ID.
+     *
+     * @param contentId - the content ID to rewrite
+     * @return the rewritten content ID, or null if no rule matches
+     */
+    public String rewrite(String contentId) {
+        Node match = root.oldPrefix != null ? root : null;
+        Node node = root;
+        for (int i = 0; i < contentId.length() && node != null; i++) {
+            node = node.getChild(contentId.charAt(i));
+            if (node != null && node.oldPrefix != null) {
+                match = node;
+            }
+        }
+
+        if (null == match) {
+            return null;
+        }
+        return match.newPrefix + contentId.substring(match.oldPrefix.length());
+    }
+
+    /**
+     * Determines if content items with the given prefix could be matched by a
+     * rule, either because an old prefix begins the given prefix or because
+     * an old prefix begins with the given prefix.
+     *
+     * @param prefix - the prefix to check
+     * @return true if the prefix overlaps with the old prefix of any rule
+     */
+    public boolean overlaps(String prefix) {
+        Node node = root;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (node.oldPrefix != null) {
+                return true;
+            }
+            node = node.getChild(prefix.charAt(i));
+            if (null == node) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if any rule's new prefix overlaps an old prefix, meaning
+     *         that a content item which has been updated could be matched again
+     */
+    public boolean hasOverlappingRules() {
+        for (String newPrefix : rules.values()) {
+            if (overlaps(newPrefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the longest prefix shared by the old prefixes of all rules,
+     *         which is the narrowest listing that includes every match
+     */
+    public String getCommonPrefix() {
+        StringBuilder prefix = new StringBuilder();
+        Node node = root;
+        while (node.oldPrefix == null && node.childCount == 1) {
+            prefix.append(node.keys[0]);
+            node = node.children[0];
+        }
+        return prefix.toString();
+    }
+
+    /**
+     * @return the rules, mapping each old prefix to its new prefix, in the
+     *         order in which they were added
+     */
+    public Map<String, String> getRules() {
+        return Collections.unmodifiableMap(rules);
+    }
+
+    public int size() {
+        return rules.size();
+    }
+
+    /*
+     * A trie node. Children are kept in arrays sorted by character, which
+     * keeps nodes small and lookups fast for the modest fan-out of paths.
+     */
+    private static class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private int childCount = 0;
+        private String oldPrefix;
+        private String newPrefix;
+
+        private Node getChild(char key) {
+            int index = Arrays.binarySearch(keys, 0, childCount, key);
+            return index >= 0 ? children[index] : null;
+        }
+
+        private Node addChild(char key) {
+            int index = Arrays.binarySearch(keys, 0, childCount, key);
+            if (index >= 0) {
+                return children[index];
+            }
+
+            int insertAt = -(index + 1);
+            if (childCount == keys.length) {
+                int capacity = Math.max(2, childCount * 2);
+                keys = Arrays.copyOf(keys, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+            System.arraycopy(keys, insertAt, keys, insertAt + 1, childCount - insertAt);
+            System.arraycopy(children, insertAt, children, insertAt + 1, childCount - insertAt);
+
+            Node child = new Node();
+            keys[insertAt] = key;
+            children[insertAt] = child;
+            childCount++;
+            return child;
+        }
+    }
+
+}
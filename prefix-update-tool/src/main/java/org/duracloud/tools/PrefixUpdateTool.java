@@ -1,12 +1,13 @@
 package org.duracloud.tools;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -33,6 +34,7 @@ public class PrefixUpdateTool {
 
     private static final String DEFAULT_PORT = "443";
     private static final String DEFAULT_CONTEXT = "durastore";
+    private static final int DEFAULT_THREADS = 1;
 
     private String spaceName;
     private String host;
@@ -43,6 +45,12 @@ public class PrefixUpdateTool {
     private String oldPrefix;
     private String newPrefix;
     private boolean dryRun;
+    private int threads;
+    private File journalFile;
+    private File resumeJournalFile;
+    private boolean pipeline;
+    private PrefixRuleTrie prefixRules;
+    private File listingDir;
 
     private static Options cmdOptions;
 
@@ -55,6 +63,20 @@ public class PrefixUpdateTool {
                             String oldPrefix,
                             String newPrefix,
                             boolean dryRun) {
+        this(spaceName, host, port, username, password, storeId,
+             oldPrefix, newPrefix, dryRun, DEFAULT_THREADS);
+    }
+
+    public PrefixUpdateTool(String spaceName,
+                            String host,
+                            String port,
+                            String username,
+                            String password,
+                            String storeId,
+                            String oldPrefix,
+                            String newPrefix,
+                            boolean dryRun,
+                            int threads) {
         this.spaceName = spaceName;
         this.host = host;
         this.port = port;
@@ -64,10 +86,63 @@ public class PrefixUpdateTool {
         this.oldPrefix = oldPrefix;
         this.newPrefix = newPrefix;
         this.dryRun = dryRun;
+        this.threads = threads;
+    }
+
+    /**
+     * Sets a journal file in which the progress of the update is recorded,
+     * so that the update can be resumed if it is interrupted.
+     *
+     * @param journalFile - file in which to record progress
+     */
+    public void setJournalFile(File journalFile) {
+        this.journalFile = journalFile;
+    }
+
+    /**
+     * Sets the journal of an earlier, interrupted, update. The update picks
+     * up where the journal indicates the earlier update stopped, using the
+     * content listing captured by that update.
+     *
+     * @param resumeJournalFile - journal written by an earlier update
+     */
+    public void setResumeJournalFile(File resumeJournalFile) {
+        this.resumeJournalFile = resumeJournalFile;
     }
 
     /**
-     * Kicks off the execution of the tool.
+     * Sets whether content items should be moved while the space listing is
+     * still being retrieved, rather than after the full listing is captured.
+     *
+     * @param pipeline - true to list and move content at the same time
+     */
+    public void setPipeline(boolean pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    /**
+     * Sets a group of prefix rules to be applied in place of the single
+     * old and new prefix values.
+     *
+     * @param prefixRules - the prefix rules to apply
+     */
+    public void setPrefixRules(PrefixRuleTrie prefixRules) {
+        this.prefixRules = prefixRules;
+    }
+
+    /**
+     * Sets the directory in which the content listing of the space is
+     * written. By default the listing is written to the current directory.
+     *
+     * @param listingDir - directory in which to write the content listing
+     */
+    public void setListingDir(File listingDir) {
+        this.listingDir = listingDir;
+    }
+
+    /**
+     * Kicks off the execution of the tool. Every update is attempted, then
+     * the run fails if any content item could not be updated.
      *
      * @throws ContentStoreException
      * @throws IOException
@@ -78,8 +153,11 @@ public class PrefixUpdateTool {
                            "\nspace name=" + spaceName +
                            "\nhost=" + host +
                            "\nport=" + port +
-                           "\nprefix to replace=" + oldPrefix +
-                           "\nnew prefix=" + newPrefix +
+                           (null == prefixRules ?
+                               "\nprefix to replace=" + oldPrefix +
+                               "\nnew prefix=" + newPrefix :
+                               "\nprefix rules=" + prefixRules.size()) +
+                           "\nthreads=" + threads +
                            (dryRun ? "\nThis execution is a DRY RUN - no changes will be made!" : "") +
                            "\n-----------------------------------------");
 
@@ -97,7 +175,22 @@ public class PrefixUpdateTool {
             store = storeManager.getContentStore(storeId);
         }
 
-        doUpdate(store, spaceName, oldPrefix, newPrefix);
+        PrefixRuleTrie rules = prefixRules;
+        if (null == rules) {
+            rules = PrefixRuleTrie.of(oldPrefix, newPrefix);
+        }
+
+        long failures;
+        if (pipeline) {
+            failures = doPipelinedUpdate(store, spaceName, rules);
+        } else {
+            failures = doUpdate(store, spaceName, rules);
+        }
+        if (failures > 0) {
+            // Fails the process, as a failed move did before moves were concurrent
+            throw new RuntimeException("Prefix Update Tool process completed with " +
+                                       failures + " failed updates");
+        }
 
         System.out.println("Prefix Update Tool process complete.");
     }
@@ -111,17 +204,227 @@ public class PrefixUpdateTool {
      * @param spaceId   - the space in which to update content items
      * @param oldPrefix - the prefix to replace
      * @param newPrefix - the prefix to add
+     * @return the number of content items which could not be updated
      * @throws ContentStoreException
      */
-    protected void doUpdate(ContentStore store,
+    protected long doUpdate(ContentStore store,
                             String spaceId,
                             String oldPrefix,
                             String newPrefix)
         throws ContentStoreException {
-        Iterator<String> contentIterator = store.getSpaceContents(spaceId);
+        return doUpdate(store, spaceId, PrefixRuleTrie.of(oldPrefix, newPrefix));
+    }
+
+    /**
+     * Performs the prefix updates. Each content item is checked against all
+     * of the prefix rules, and items which begin with the old prefix of a rule
+     * are changed to replace that prefix with the rule's new prefix. When more
+     * than one rule matches, the rule with the longest old prefix is applied.
+     * Moves are spread across the configured number of worker threads, and a
+     * summary of the results is printed at the end.
+     *
+     * If a journal file is set, progress is recorded as the updates proceed.
+     * If a journal to resume is set, the space is not listed again; instead
+     * updates pick up from the last checkpoint in that journal.
+     *
+     * @param store   - DuraCloud storage client
+     * @param spaceId - the space in which to update content items
+     * @param rules   - the prefix rules to apply
+     * @return the number of content items which could not be updated
+     * @throws ContentStoreException
+     */
+    protected long doUpdate(ContentStore store,
+                            String spaceId,
+                            PrefixRuleTrie rules)
+        throws ContentStoreException {
+        File contentListing;
+        MoveJournal journal = null;
+        try {
+            if (null != resumeJournalFile) {
+                journal = resumeJournal(spaceId, rules);
+                if (journal.isComplete()) {
+                    journal.close(true);
+                    System.out.println("The journal shows that this update " +
+                                       "already completed successfully.");
+                    return 0;
+                }
+                contentListing = journal.getListing();
+            } else {
+                contentListing =
+                    writeContentListing(store, spaceId, rules.getCommonPrefix());
+                if (null != journalFile) {
+                    journal = MoveJournal.create(journalFile, contentListing,
+                                                 spaceId, rules.getRules());
+                } else {
+                    contentListing.deleteOnExit();
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to set up progress journal " +
+                                       "due to error: " + e.getMessage());
+        }
+
+        System.out.println("Beginning Updates...");
+        MoveExecutor mover =
+            new MoveExecutor(store, spaceId, threads, dryRun, journal);
+        long startOffset = 0;
+        if (null != journal) {
+            startOffset = journal.getCheckpoint();
+
+            // Retry items which failed in an earlier run
+            List<String> failedContentIds =
+                new ArrayList<>(journal.getFailedContentIds());
+            for (String contentId : failedContentIds) {
+                String newContentId = rules.rewrite(contentId);
+                if (null != newContentId) {
+                    submitMove(mover, contentId, newContentId);
+                }
+            }
+        }
+
+        try (ContentListingReader reader =
+                 new ContentListingReader(contentListing, startOffset)) {
+            String contentId;
+            while ((contentId = reader.readLine()) != null) {
+                String newContentId = rules.rewrite(contentId);
+                if (null != newContentId) {
+                    if (null != journal) {
+                        long offset = reader.getLineOffset();
+                        if (journal.isCompleted(offset)) {
+                            continue;
+                        }
+                        journal.moveStarted(contentId, offset);
+                    }
+                    submitMove(mover, contentId, newContentId);
+                }
+            }
+            mover.finish();
+
+            if (null != journal) {
+                boolean success = mover.getFailureCount() == 0;
+                journal.close(success);
+                if (success) {
+                    Files.deleteIfExists(contentListing.toPath());
+                } else {
+                    System.out.println("Some updates failed, use the resume " +
+                                       "option with journal " +
+                                       journal.getJournalFile().getPath() +
+                                       " to retry them");
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading content item listing: " +
+                                       e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while updating content items");
+        }
+        return mover.getFailureCount();
+    }
+
+    /**
+     * Performs the prefix updates while the space listing is being retrieved.
+     *
+     * @param store     - DuraCloud storage client
+     * @param spaceId   - the space in which to update content items
+     * @param oldPrefix - the prefix to replace
+     * @param newPrefix - the prefix to add
+     * @return the number of content items which could not be updated
+     * @throws ContentStoreException
+     */
+    protected long doPipelinedUpdate(ContentStore store,
+                                     String spaceId,
+                                     String oldPrefix,
+                                     String newPrefix)
+        throws ContentStoreException {
+        return doPipelinedUpdate(store, spaceId, PrefixRuleTrie.of(oldPrefix, newPrefix));
+    }
+
+    /**
+     * Performs the prefix updates while the space listing is being retrieved.
+     * As each page of the listing arrives, matching content items are handed
+     * to the worker threads through a bounded queue, so moves begin right away
+     * and listing only ever waits when the queue is full.
+     *
+     * Because items are moved while the listing is still in progress, no new
+     * prefix may overlap an old prefix, otherwise moved items could show up
+     * again later in the listing and be matched a second time.
+     *
+     * @param store   - DuraCloud storage client
+     * @param spaceId - the space in which to update content items
+     * @param rules   - the prefix rules to apply
+     * @return the number of content items which could not be updated
+     * @throws ContentStoreException
+     */
+    protected long doPipelinedUpdate(ContentStore store,
+                                     String spaceId,
+                                     PrefixRuleTrie rules)
+        throws ContentStoreException {
+        if (rules.hasOverlappingRules()) {
+            throw new IllegalArgumentException(
+                "Content cannot be listed and updated at the same time when " +
+                "a new prefix begins with, or is the beginning of, an old prefix");
+        }
+
+        System.out.println("Beginning Updates while retrieving Content Item List...");
+        MoveExecutor mover = new MoveExecutor(store, spaceId, threads, dryRun);
+        Iterator<String> contentIterator =
+            listSpaceContents(store, spaceId, rules.getCommonPrefix());
+        while (contentIterator.hasNext()) {
+            String contentId = contentIterator.next();
+            String newContentId = rules.rewrite(contentId);
+            if (null != newContentId) {
+                submitMove(mover, contentId, newContentId);
+            }
+        }
+
+        try {
+            mover.finish();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while updating content items");
+        }
+        return mover.getFailureCount();
+    }
+
+    /**
+     * Determines if content items which have been given the new prefix could
+     * match the old prefix (possibly after the update is applied again).
+     *
+     * @param oldPrefix - the prefix to replace
+     * @param newPrefix - the prefix to add
+     * @return true if either prefix begins with the other
+     */
+    protected static boolean prefixesOverlap(String oldPrefix, String newPrefix) {
+        return PrefixRuleTrie.of(oldPrefix, newPrefix).hasOverlappingRules();
+    }
+
+    /*
+     * Lists the contents of the space which have the given prefix. The prefix
+     * is applied by DuraStore, so only matching content IDs are transferred.
+     */
+    private Iterator<String> listSpaceContents(ContentStore store,
+                                               String spaceId,
+                                               String prefix)
+        throws ContentStoreException {
+        if (prefix.isEmpty()) {
+            return store.getSpaceContents(spaceId);
+        }
+        return store.getSpaceContents(spaceId, prefix);
+    }
+
+    /*
+     * Lists the contents of the space which have the given prefix into a local
+     * file, which the updates then work through.
+     */
+    private File writeContentListing(ContentStore store,
+                                     String spaceId,
+                                     String prefix)
+        throws ContentStoreException {
+        Iterator<String> contentIterator =
+            listSpaceContents(store, spaceId, prefix);
         File contentListing =
-            new File("original-content-listing-" + DateUtil.nowPlain());
-        contentListing.deleteOnExit();
+            new File(listingDir, "original-content-listing-" + DateUtil.nowPlain());
 
         System.out.println("Retrieving Content Item List...");
         try (BufferedWriter writer =
@@ -136,26 +439,38 @@ public class PrefixUpdateTool {
             throw new RuntimeException("Unable to write content item listing " +
                                        "due to error: " + e.getMessage());
         }
+        return contentListing;
+    }
 
-        System.out.println("Beginning Updates...");
-        try (BufferedReader reader =
-                 Files.newBufferedReader(contentListing.toPath(),
-                                         StandardCharsets.UTF_8)) {
-            String contentId;
-            while ((contentId = reader.readLine()) != null) {
-                if (contentId.startsWith(oldPrefix)) {
-                    String newContentId =
-                        newPrefix + contentId.substring(oldPrefix.length());
-                    System.out.println("Updating " + contentId +
-                                       " to " + newContentId);
-                    if (!dryRun) {
-                        store.moveContent(spaceId, contentId, spaceId, newContentId);
-                    }
-                }
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("Error reading content item listing: " +
-                                       e.getMessage());
+    /*
+     * Opens the journal to be resumed, verifying that it records an update
+     * of the same space using the same prefix rules
+     */
+    private MoveJournal resumeJournal(String spaceId, PrefixRuleTrie rules)
+        throws IOException {
+        MoveJournal journal = MoveJournal.resume(resumeJournalFile);
+        if (!spaceId.equals(journal.getSpaceId()) ||
+            !rules.getRules().equals(journal.getRules())) {
+            journal.close(false);
+            throw new IOException("The journal records an update of space " +
+                                  journal.getSpaceId() + " with prefix rules " +
+                                  journal.getRules() + ", which does not " +
+                                  "match the requested update");
+        }
+        System.out.println("Resuming update from journal " +
+                           resumeJournalFile.getPath() + " at listing offset " +
+                           journal.getCheckpoint());
+        return journal;
+    }
+
+    private void submitMove(MoveExecutor mover,
+                            String contentId,
+                            String newContentId) {
+        try {
+            mover.submit(contentId, newContentId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while updating content items");
         }
     }
 
@@ -208,16 +523,28 @@ public class PrefixUpdateTool {
         Option oldPrefixOption =
             new Option("o", "old-prefix", true,
                        "the original prefix that should be replaced - " +
-                       "only files with this prefix will be updated");
-        oldPrefixOption.setRequired(true);
+                       "only files with this prefix will be updated " +
+                       "(required unless a mapping file is provided)");
+        oldPrefixOption.setRequired(false);
         cmdOptions.addOption(oldPrefixOption);
 
         Option newPrefixOption =
             new Option("n", "new-prefix", true,
-                       "the new prefix to apply");
-        newPrefixOption.setRequired(true);
+                       "the new prefix to apply " +
+                       "(required unless a mapping file is provided)");
+        newPrefixOption.setRequired(false);
         cmdOptions.addOption(newPrefixOption);
 
+        Option mappingFileOption =
+            new Option("m", "mapping-file", true,
+                       "the path to a file of prefix rules to apply in a single " +
+                       "pass, one rule per line in the form: " +
+                       "old-prefix<TAB>new-prefix; when more than one rule " +
+                       "matches a content item, the longest old prefix is used " +
+                       "(optional, replaces the old and new prefix options)");
+        mappingFileOption.setRequired(false);
+        cmdOptions.addOption(mappingFileOption);
+
         Option dryRunOption =
             new Option("d", "dry-run", false,
                        "designate this execution as a dry run, no changes " +
@@ -225,6 +552,35 @@ public class PrefixUpdateTool {
         dryRunOption.setRequired(false);
         cmdOptions.addOption(dryRunOption);
 
+        Option threadsOption =
+            new Option("w", "threads", true,
+                       "the number of content items to update in parallel " +
+                       "(optional, default value is " + DEFAULT_THREADS + ")");
+        threadsOption.setRequired(false);
+        cmdOptions.addOption(threadsOption);
+
+        Option journalOption =
+            new Option("j", "journal", true,
+                       "the path to a file in which progress will be recorded, " +
+                       "allowing an interrupted update to be resumed (optional)");
+        journalOption.setRequired(false);
+        cmdOptions.addOption(journalOption);
+
+        Option resumeOption =
+            new Option("r", "resume", true,
+                       "the path to the journal of an interrupted update, the " +
+                       "update will continue from where it stopped (optional)");
+        resumeOption.setRequired(false);
+        cmdOptions.addOption(resumeOption);
+
+        Option pipelineOption =
+            new Option("l", "pipeline", false,
+                       "begin updating content items while the space listing " +
+                       "is still being retrieved; cannot be used with a journal " +
+                       "or when one prefix begins with the other (optional)");
+        pipelineOption.setRequired(false);
+        cmdOptions.addOption(pipelineOption);
+
         CommandLine cmd = null;
         try {
             CommandLineParser parser = new PosixParser();
@@ -241,6 +597,7 @@ public class PrefixUpdateTool {
         String storeId = cmd.getOptionValue("i");
         String oldPrefix = cmd.getOptionValue("o");
         String newPrefix = cmd.getOptionValue("n");
+        String mappingFilePath = cmd.getOptionValue("m");
 
         String port = cmd.getOptionValue("t");
         if (port == null || port.equals("")) {
@@ -252,15 +609,84 @@ public class PrefixUpdateTool {
             dryRun = true;
         }
 
-        if (oldPrefix.equals(newPrefix)) {
-            System.out.println("The old and new prefix values cannot match!");
+        int threads = DEFAULT_THREADS;
+        String threadsValue = cmd.getOptionValue("w");
+        if (threadsValue != null) {
+            try {
+                threads = Integer.parseInt(threadsValue);
+            } catch (NumberFormatException e) {
+                threads = 0;
+            }
+            if (threads < 1) {
+                System.out.println("The threads value must be a positive number!");
+                usage();
+            }
+        }
+
+        String journalPath = cmd.getOptionValue("j");
+        String resumePath = cmd.getOptionValue("r");
+        if (null != journalPath && null != resumePath) {
+            System.out.println("The journal and resume options cannot be used together!");
+            usage();
+        }
+        if (dryRun && (null != journalPath || null != resumePath)) {
+            System.out.println("A dry run cannot be journaled or resumed!");
             usage();
         }
 
+        PrefixRuleTrie prefixRules = null;
+        if (null != mappingFilePath) {
+            if (null != oldPrefix || null != newPrefix) {
+                System.out.println("The old and new prefix options cannot be " +
+                                   "used with a mapping file!");
+                usage();
+            }
+            try {
+                prefixRules = PrefixRuleTrie.load(new File(mappingFilePath));
+            } catch (IOException e) {
+                System.out.println(e.getMessage());
+                usage();
+            }
+        } else {
+            if (null == oldPrefix || null == newPrefix) {
+                System.out.println("The old and new prefix values are required " +
+                                   "when no mapping file is provided!");
+                usage();
+            }
+            if (oldPrefix.equals(newPrefix)) {
+                System.out.println("The old and new prefix values cannot match!");
+                usage();
+            }
+        }
+
+        boolean pipeline = cmd.hasOption("l");
+        if (pipeline && (null != journalPath || null != resumePath)) {
+            System.out.println("The pipeline option cannot be used with a journal!");
+            usage();
+        }
+        if (pipeline) {
+            PrefixRuleTrie rules = null != prefixRules ? prefixRules :
+                                   PrefixRuleTrie.of(oldPrefix, newPrefix);
+            if (rules.hasOverlappingRules()) {
+                System.out.println("The pipeline option cannot be used when a " +
+                                   "new prefix begins with, or is the beginning " +
+                                   "of, an old prefix!");
+                usage();
+            }
+        }
+
         PrefixUpdateTool tool =
             new PrefixUpdateTool(spaceName, host, port, username,
                                  password, storeId, oldPrefix, newPrefix,
-                                 dryRun);
+                                 dryRun, threads);
+        if (null != journalPath) {
+            tool.setJournalFile(new File(journalPath));
+        }
+        if (null != resumePath) {
+            tool.setResumeJournalFile(new File(resumePath));
+        }
+        tool.setPipeline(pipeline);
+        tool.setPrefixRules(prefixRules);
         tool.run();
     }
 
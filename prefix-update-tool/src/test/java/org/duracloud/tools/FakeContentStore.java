@@ -0,0 +1,164 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.tools;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.duracloud.client.ContentStore;
+
+/**
+ * An in-memory stand-in for a DuraCloud content store which holds the content
+ * IDs of a single space. Listings are returned a page at a time, with a
+ * configurable delay per page to simulate the round trip to DuraStore, and
+ * the number of content ID bytes returned is tracked.
+ *
+ * Only the listing and move calls are supported.
+ */
+public class FakeContentStore implements InvocationHandler {
+
+    private static final int PAGE_SIZE = 1000;
+
+    private List<String> contentIds;
+    private long pageLatencyMillis;
+
+    private AtomicLong listedBytes = new AtomicLong();
+    private AtomicLong listedItems = new AtomicLong();
+    private AtomicLong moves = new AtomicLong();
+
+    public FakeContentStore(List<String> contentIds, long pageLatencyMillis) {
+        this.contentIds = new ArrayList<>(contentIds);
+        Collections.sort(this.contentIds);
+        this.pageLatencyMillis = pageLatencyMillis;
+    }
+
+    public ContentStore getContentStore() {
+        return (ContentStore) Proxy.newProxyInstance(ContentStore.class.getClassLoader(),
+                                                     new Class[] {ContentStore.class},
+                                                     this);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        if ("getSpaceContents".equals(name)) {
+            String prefix = args.length > 1 ? (String) args[1] : null;
+            return new PageIterator(prefix);
+        } else if ("moveContent".equals(name)) {
+            moves.incrementAndGet();
+            return "";
+        } else if ("getStoreId".equals(name)) {
+            return "fake-store";
+        } else if ("toString".equals(name)) {
+            return "FakeContentStore";
+        } else if ("hashCode".equals(name)) {
+            return System.identityHashCode(proxy);
+        } else if ("equals".equals(name)) {
+            return proxy == args[0];
+        }
+        throw new UnsupportedOperationException(name);
+    }
+
+    public void resetCounts() {
+        listedBytes.set(0);
+        listedItems.set(0);
+        moves.set(0);
+    }
+
+    public long getListedBytes() {
+        return listedBytes.get();
+    }
+
+    public long getListedItems() {
+        return listedItems.get();
+    }
+
+    public long getMoves() {
+        return moves.get();
+    }
+
+    /*
+     * Returns the content IDs with a given prefix in pages, as the storeclient
+     * does when calling DuraStore
+     */
+    private class PageIterator implements Iterator<String> {
+
+        private String prefix;
+        private int index;
+        private List<String> page = Collections.emptyList();
+        private int pageIndex = 0;
+        private boolean done = false;
+
+        public PageIterator(String prefix) {
+            this.prefix = prefix;
+            this.index = null == prefix ? 0 : firstIndexOf(prefix);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (pageIndex < page.size()) {
+                return true;
+            }
+            if (!done) {
+                nextPage();
+            }
+            return pageIndex < page.size();
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page.get(pageIndex++);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private void nextPage() {
+            try {
+                Thread.sleep(pageLatencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            page = new ArrayList<>(PAGE_SIZE);
+            pageIndex = 0;
+            while (page.size() < PAGE_SIZE && index < contentIds.size()) {
+                String contentId = contentIds.get(index++);
+                if (null != prefix && !contentId.startsWith(prefix)) {
+                    done = true;
+                    break;
+                }
+                page.add(contentId);
+                listedItems.incrementAndGet();
+                listedBytes.addAndGet(contentId.getBytes(StandardCharsets.UTF_8).length);
+            }
+            if (index >= contentIds.size() || page.size() < PAGE_SIZE) {
+                done = true;
+            }
+        }
+
+        private int firstIndexOf(String prefix) {
+            int position = Collections.binarySearch(contentIds, prefix);
+            return position >= 0 ? position : -(position + 1);
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.duracloud.client.ContentStore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Compares the amount of listing data transferred when listing a whole
+ * space and filtering on the client against listing with a prefix filter
+ * applied by the store.
+ */
+public class PrefixListingTest {
+
+    private static final String spaceId = "space-id";
+    private static final String oldPrefix = "old/prefix/";
+    private static final String newPrefix = "new/prefix/";
+
+    private static final int TOTAL_ITEMS = 100000;
+    private static final int PREFIX_PERCENT = 1;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    /**
+     * Lists a space in which 1% of the items have the prefix being updated,
+     * and verifies that the update tool only transfers those items.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testPrefixListing() throws Exception {
+        List<String> contentIds = new ArrayList<>(TOTAL_ITEMS);
+        for (int i = 0; i < TOTAL_ITEMS; i++) {
+            if (i % 100 < PREFIX_PERCENT) {
+                contentIds.add(oldPrefix + "item-" + i);
+            } else {
+                contentIds.add("other/path/item-" + i);
+            }
+        }
+        int matching = TOTAL_ITEMS * PREFIX_PERCENT / 100;
+
+        FakeContentStore fakeStore = new FakeContentStore(contentIds, 0);
+        ContentStore store = fakeStore.getContentStore();
+
+        // Full listing, filtered on the client
+        int fullMatches = 0;
+        Iterator<String> allContents = store.getSpaceContents(spaceId);
+        while (allContents.hasNext()) {
+            if (allContents.next().startsWith(oldPrefix)) {
+                fullMatches++;
+            }
+        }
+        long fullBytes = fakeStore.getListedBytes();
+        assertEquals(TOTAL_ITEMS, fakeStore.getListedItems());
+        assertEquals(matching, fullMatches);
+
+        // Listing filtered by the store, as performed by the update tool
+        fakeStore.resetCounts();
+        PrefixUpdateTool tool =
+            new PrefixUpdateTool(spaceId, "host", "port", "user", "pass",
+                                 "store-id", oldPrefix, newPrefix, false, 4);
+        tool.setListingDir(tempFolder.getRoot());
+        assertEquals(0, tool.doUpdate(store, spaceId, oldPrefix, newPrefix));
+        long prefixBytes = fakeStore.getListedBytes();
+
+        assertEquals(matching, fakeStore.getListedItems());
+        assertEquals(matching, fakeStore.getMoves());
+        assertTrue(prefixBytes * 50 < fullBytes);
+        assertEquals(1, tempFolder.getRoot().listFiles().length);
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+/**
+ * Performs tests on the prefix rule trie.
+ */
+public class PrefixRuleTrieTest {
+
+    @Test
+    public void testLongestPrefixWins() {
+        PrefixRuleTrie rules = new PrefixRuleTrie();
+        rules.add("a/", "x/");
+        rules.add("a/b/", "y/");
+        rules.add("a/b/c/", "z/");
+        rules.add("b/", "w/");
+
+        assertEquals("x/file", rules.rewrite("a/file"));
+        assertEquals("y/file", rules.rewrite("a/b/file"));
+        assertEquals("z/file", rules.rewrite("a/b/c/file"));
+        assertEquals("y/c", rules.rewrite("a/b/c"));
+        assertEquals("w/a/b/", rules.rewrite("b/a/b/"));
+        assertNull(rules.rewrite("c/file"));
+        assertNull(rules.rewrite("a"));
+        assertEquals(4, rules.size());
+    }
+
+    @Test
+    public void testCommonPrefix() {
+        PrefixRuleTrie rules = PrefixRuleTrie.of("photos/2019/", "archive/2019/");
+        assertEquals("photos/2019/", rules.getCommonPrefix());
+
+        rules.add("photos/2020/", "archive/2020/");
+        assertEquals("photos/20", rules.getCommonPrefix());
+
+        rules.add("photos/", "images/");
+        assertEquals("photos/", rules.getCommonPrefix());
+
+        rules.add("video/", "media/");
+        assertEquals("", rules.getCommonPrefix());
+    }
+
+    @Test
+    public void testOverlappingRules() {
+        assertFalse(PrefixRuleTrie.of("a/", "b/").hasOverlappingRules());
+        assertTrue(PrefixRuleTrie.of("a/", "a/b/").hasOverlappingRules());
+        assertTrue(PrefixRuleTrie.of("a/b/", "a/").hasOverlappingRules());
+
+        PrefixRuleTrie rules = PrefixRuleTrie.of("a/", "b/");
+        rules.add("b/", "c/");
+        assertTrue(rules.hasOverlappingRules());
+    }
+
+    @Test
+    public void testInvalidRules() {
+        PrefixRuleTrie rules = PrefixRuleTrie.of("a/", "b/");
+        try {
+            rules.add("a/", "c/");
+            fail("Exception expected for duplicate rule");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+        try {
+            rules.add("c/", "c/");
+            fail("Exception expected for matching prefixes");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testLoad() throws Exception {
+        File mappingFile = File.createTempFile("prefix-mapping", ".tsv");
+        try {
+            Files.write(mappingFile.toPath(),
+                        ("# photo moves\n" +
+                         "photos/2019/\tarchive/2019/\n" +
+                         "\n" +
+                         "photos/2020/\tarchive/2020/\n").getBytes(StandardCharsets.UTF_8));
+            PrefixRuleTrie rules = PrefixRuleTrie.load(mappingFile);
+            assertEquals(2, rules.size());
+            assertEquals("archive/2020/a.jpg", rules.rewrite("photos/2020/a.jpg"));
+
+            Files.write(mappingFile.toPath(),
+                        "photos/2019/ archive/2019/\n".getBytes(StandardCharsets.UTF_8));
+            try {
+                PrefixRuleTrie.load(mappingFile);
+                fail("Exception expected for invalid line");
+            } catch (IOException expected) {
+                // Expected
+            }
+        } finally {
+            Files.deleteIfExists(mappingFile.toPath());
+        }
+    }
+
+}
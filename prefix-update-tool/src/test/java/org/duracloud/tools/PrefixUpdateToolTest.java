@@ -7,10 +7,20 @@
  */
 package org.duracloud.tools;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.LinkedList;
 import java.util.List;
 
 import org.duracloud.client.ContentStore;
+import org.duracloud.error.ContentStoreException;
 import org.easymock.EasyMock;
 import org.junit.After;
 import org.junit.Before;
@@ -65,7 +75,7 @@ public class PrefixUpdateToolTest {
             new PrefixUpdateTool(spaceId, "host", "port", "user", "pass",
                                  "store-id", oldPrefix, newPrefix, false);
 
-        EasyMock.expect(store.getSpaceContents(spaceId))
+        EasyMock.expect(store.getSpaceContents(spaceId, oldPrefix))
                 .andReturn(spaceContents.iterator());
 
         // The expected calls to update prefix values
@@ -95,7 +105,7 @@ public class PrefixUpdateToolTest {
             new PrefixUpdateTool(spaceId, "host", "port", "user", "pass",
                                  "store-id", oldPrefix, newPrefix, true);
 
-        EasyMock.expect(store.getSpaceContents(spaceId))
+        EasyMock.expect(store.getSpaceContents(spaceId, oldPrefix))
                 .andReturn(spaceContents.iterator());
 
         replayMocks();
@@ -103,4 +113,249 @@ public class PrefixUpdateToolTest {
         tool.doUpdate(store, spaceId, oldPrefix, newPrefix);
     }
 
+    /**
+     * Tests the prefix update using multiple worker threads, to verify that
+     * every matching item is moved exactly once.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testParallelPrefixUpdate() throws Exception {
+        PrefixUpdateTool tool =
+            new PrefixUpdateTool(spaceId, "host", "port", "user", "pass",
+                                 "store-id", oldPrefix, newPrefix, false, 4);
+
+        for (int i = 0; i < 100; i++) {
+            spaceContents.add(oldPrefix + "item-" + i);
+        }
+
+        EasyMock.expect(store.getSpaceContents(spaceId, oldPrefix))
+                .andReturn(spaceContents.iterator());
+
+        for (String contentId : spaceContents) {
+            if (contentId.startsWith(oldPrefix)) {
+                String suffix = contentId.substring(oldPrefix.length());
+                EasyMock.expect(store.moveContent(spaceId,
+                                                  contentId,
+                                                  spaceId,
+                                                  newPrefix + suffix))
+                        .andReturn("");
+            }
+        }
+
+        replayMocks();
+
+        tool.doUpdate(store, spaceId, oldPrefix, newPrefix);
+    }
+
+    /**
+     * Tests an update which records progress in a journal, where one move
+     * fails. Resuming from the journal should retry only the failed move,
+     * without listing the space again.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testJournalResume() throws Exception {
+        File journalFile = File.createTempFile("prefix-update-journal", ".txt");
+        Files.delete(journalFile.toPath());
+
+        try {
+            PrefixUpdateTool tool =
+                new PrefixUpdateTool(spaceId, "host", "port", "user", "pass",
+                                     "store-id", oldPrefix, newPrefix, false);
+            tool.setJournalFile(journalFile);
+
+            EasyMock.expect(store.getSpaceContents(spaceId, oldPrefix))
+                    .andReturn(spaceContents.iterator());
+            EasyMock.expect(store.moveContent(spaceId,
+                                              oldPrefix + suffixOne,
+                                              spaceId,
+                                              newPrefix + suffixOne)).andReturn("");
+            EasyMock.expect(store.moveContent(spaceId,
+                                              oldPrefix + suffixTwo,
+                                              spaceId,
+                                              newPrefix + suffixTwo))
+                    .andThrow(new ContentStoreException("failure"));
+
+            replayMocks();
+            assertEquals(1, tool.doUpdate(store, spaceId, oldPrefix, newPrefix));
+            EasyMock.verify(store);
+
+            MoveJournal journal = MoveJournal.resume(journalFile);
+            assertFalse(journal.isComplete());
+            assertTrue(journal.getFailedContentIds().contains(oldPrefix + suffixTwo));
+            File listing = journal.getListing();
+            journal.close(false);
+
+            // Resume, only the failed item should be moved
+            EasyMock.reset(store);
+            EasyMock.expect(store.moveContent(spaceId,
+                                              oldPrefix + suffixTwo,
+                                              spaceId,
+                                              newPrefix + suffixTwo)).andReturn("");
+            EasyMock.replay(store);
+
+            tool = new PrefixUpdateTool(spaceId, "host", "port", "user", "pass",
+                                        "store-id", oldPrefix, newPrefix, false);
+            tool.setResumeJournalFile(journalFile);
+            assertEquals(0, tool.doUpdate(store, spaceId, oldPrefix, newPrefix));
+
+            journal = MoveJournal.resume(journalFile);
+            assertTrue(journal.isComplete());
+            assertFalse(listing.exists());
+            journal.close(true);
+        } finally {
+            Files.deleteIfExists(journalFile.toPath());
+        }
+    }
+
+    /**
+     * Tests resuming from a journal written by an update which stopped
+     * part way through its content listing.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testResumeFromCheckpoint() throws Exception {
+        File listing = File.createTempFile("prefix-update-listing", ".txt");
+        File journalFile = File.createTempFile("prefix-update-journal", ".txt");
+
+        try {
+            String itemOne = oldPrefix + suffixOne;
+            String itemTwo = oldPrefix + suffixTwo;
+            String itemThree = oldPrefix + "tres";
+            try (BufferedWriter writer =
+                     Files.newBufferedWriter(listing.toPath(), StandardCharsets.UTF_8)) {
+                writer.write(itemOne + "\n" + itemTwo + "\n" + itemThree + "\n");
+            }
+            long itemTwoOffset = itemOne.length() + 1;
+            long itemThreeOffset = itemTwoOffset + itemTwo.length() + 1;
+
+            // Item one is behind the checkpoint, item three completed after it
+            try (BufferedWriter writer =
+                     Files.newBufferedWriter(journalFile.toPath(), StandardCharsets.UTF_8)) {
+                writer.write("listing\t" + listing.getAbsolutePath() + "\n" +
+                             "space\t" + spaceId + "\n" +
+                             "rule\t" + oldPrefix + "\t" + newPrefix + "\n" +
+                             "done\t0\t" + itemOne + "\n" +
+                             "checkpoint\t" + itemTwoOffset + "\n" +
+                             "done\t" + itemThreeOffset + "\t" + itemThree + "\n" +
+                             "done\t" + itemTwoOffset); // partial record
+            }
+
+            PrefixUpdateTool tool =
+                new PrefixUpdateTool(spaceId, "host", "port", "user", "pass",
+                                     "store-id", oldPrefix, newPrefix, false);
+            tool.setResumeJournalFile(journalFile);
+
+            EasyMock.expect(store.moveContent(spaceId, itemTwo,
+                                              spaceId, newPrefix + suffixTwo))
+                    .andReturn("");
+
+            replayMocks();
+
+            tool.doUpdate(store, spaceId, oldPrefix, newPrefix);
+
+            MoveJournal journal = MoveJournal.resume(journalFile);
+            assertTrue(journal.isComplete());
+            assertEquals(listing.getAbsoluteFile(), journal.getListing());
+            journal.close(true);
+        } finally {
+            Files.deleteIfExists(listing.toPath());
+            Files.deleteIfExists(journalFile.toPath());
+        }
+    }
+
+    /**
+     * Tests the prefix update with listing and moving performed together.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testPipelinedPrefixUpdate() throws Exception {
+        PrefixUpdateTool tool =
+            new PrefixUpdateTool(spaceId, "host", "port", "user", "pass",
+                                 "store-id", oldPrefix, newPrefix, false, 2);
+
+        EasyMock.expect(store.getSpaceContents(spaceId, oldPrefix))
+                .andReturn(spaceContents.iterator());
+
+        EasyMock.expect(store.moveContent(spaceId,
+                                          oldPrefix + suffixOne,
+                                          spaceId,
+                                          newPrefix + suffixOne)).andReturn("");
+        EasyMock.expect(store.moveContent(spaceId,
+                                          oldPrefix + suffixTwo,
+                                          spaceId,
+                                          newPrefix + suffixTwo)).andReturn("");
+
+        replayMocks();
+
+        tool.doPipelinedUpdate(store, spaceId, oldPrefix, newPrefix);
+    }
+
+    /**
+     * Verifies that prefixes which could cause moved items to be matched
+     * again are not allowed when listing and moving together.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testPipelinedPrefixOverlap() throws Exception {
+        replayMocks();
+
+        assertTrue(PrefixUpdateTool.prefixesOverlap("a/", "a/b/"));
+        assertTrue(PrefixUpdateTool.prefixesOverlap("a/b/", "a/"));
+        assertFalse(PrefixUpdateTool.prefixesOverlap(oldPrefix, newPrefix));
+
+        PrefixUpdateTool tool =
+            new PrefixUpdateTool(spaceId, "host", "port", "user", "pass",
+                                 "store-id", "a/", "a/b/", false);
+        try {
+            tool.doPipelinedUpdate(store, spaceId, "a/", "a/b/");
+            fail("Exception expected for overlapping prefixes");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+    }
+
+    /**
+     * Tests an update with several prefix rules applied in a single pass,
+     * where the longest matching old prefix is used.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testPrefixRulesUpdate() throws Exception {
+        PrefixRuleTrie rules = new PrefixRuleTrie();
+        rules.add("old/prefix/", "new/prefix/");
+        rules.add("old/prefix/sub/", "other/");
+        rules.add("old/legacy/", "new/legacy/");
+
+        PrefixUpdateTool tool =
+            new PrefixUpdateTool(spaceId, "host", "port", "user", "pass",
+                                 "store-id", null, null, false, 2);
+
+        List<String> contents = new LinkedList<>();
+        contents.add("old/legacy/uno");
+        contents.add("old/other/dos");
+        contents.add("old/prefix/sub/tres");
+        contents.add("old/prefix/cuatro");
+
+        EasyMock.expect(store.getSpaceContents(spaceId, "old/"))
+                .andReturn(contents.iterator());
+
+        EasyMock.expect(store.moveContent(spaceId, "old/legacy/uno",
+                                          spaceId, "new/legacy/uno")).andReturn("");
+        EasyMock.expect(store.moveContent(spaceId, "old/prefix/sub/tres",
+                                          spaceId, "other/tres")).andReturn("");
+        EasyMock.expect(store.moveContent(spaceId, "old/prefix/cuatro",
+                                          spaceId, "new/prefix/cuatro")).andReturn("");
+
+        replayMocks();
+
+        tool.doUpdate(store, spaceId, rules);
+    }
+
 }
@@ -0,0 +1,241 @@
+package org.duracloud.tools;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Binary Manifest - Reads a manifest written by BinaryManifestWriter.
+ *
+ *                   The file is memory mapped, so a checksum is found with a
+ *                   binary search of the index which reads only the handful
+ *                   of records it compares against. Files larger than a
+ *                   single mapping are mapped as overlapping segments, so
+ *                   that any record or index entry can be read from the
+ *                   segment in which it starts. The dictionary can be far
+ *                   larger than the overlap, so it is read from the file
+ *                   rather than from the mapping.
+ */
+public class BinaryManifest {
+
+    private static final int SEGMENT_SIZE = 1 << 30;
+    private static final int SEGMENT_OVERLAP = BinaryManifestWriter.MAX_RECORD_SIZE;
+
+    private final int segmentSize;
+    private final MappedByteBuffer[] segments;
+    private final String spaceId;
+    private final long rowCount;
+    private final long indexOffset;
+    private final byte[][] prefixes;
+
+    /**
+     * Opens and maps a binary manifest.
+     *
+     * @param file - the manifest
+     * @throws IOException if the file is not a binary manifest
+     */
+    public BinaryManifest(File file) throws IOException {
+        this(file, SEGMENT_SIZE);
+    }
+
+    /*
+     * Opens a binary manifest, mapping it as segments of the given size
+     */
+    BinaryManifest(File file, int segmentSize) throws IOException {
+        this.segmentSize = segmentSize;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            int count = (int) ((size + segmentSize - 1) / segmentSize);
+            segments = new MappedByteBuffer[Math.max(1, count)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = (long) i * segmentSize;
+                long length = Math.min((long) segmentSize + SEGMENT_OVERLAP, size - start);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            }
+
+            if (segments[0].capacity() < BinaryManifestWriter.HEADER_SIZE) {
+                throw new IOException("File is too small to be a binary manifest: " +
+                                      file.getPath());
+            }
+            ByteBuffer header = buffer(0);
+            if (header.getInt() != BinaryManifestWriter.MAGIC) {
+                throw new IOException("File is not a binary manifest: " + file.getPath());
+            }
+            int version = header.getInt();
+            if (version != BinaryManifestWriter.VERSION) {
+                throw new IOException("Unsupported binary manifest version " + version +
+                                      ": " + file.getPath());
+            }
+            rowCount = header.getLong();
+            long dictionaryOffset = header.getLong();
+            indexOffset = header.getLong();
+
+            ByteBuffer space = buffer(BinaryManifestWriter.HEADER_SIZE);
+            spaceId = new String(readBytes(space), StandardCharsets.UTF_8);
+
+            channel.position(dictionaryOffset);
+            InputStream dictionary =
+                new BufferedInputStream(Channels.newInputStream(channel));
+            prefixes = readPrefixes(new DataInputStream(dictionary));
+        }
+    }
+
+    /**
+     * @return the space listed by the manifest
+     */
+    public String getSpaceId() {
+        return spaceId;
+    }
+
+    /**
+     * @return the number of content items listed by the manifest
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Finds the checksum of a content item.
+     *
+     * @param contentId - the content item
+     * @return the checksum, or null if the content item is not listed or
+     *         was listed without a checksum
+     */
+    public String getChecksum(String contentId) {
+        byte[] target = contentId.getBytes(StandardCharsets.UTF_8);
+        long low = 0;
+        long high = rowCount - 1;
+        while (low <= high) {
+            long mid = (low + high) >>> 1;
+            ByteBuffer record = record(mid);
+            int result = compareContentId(record, target);
+            if (result < 0) {
+                low = mid + 1;
+            } else if (result > 0) {
+                high = mid - 1;
+            } else {
+                return readChecksum(record);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads a row of the manifest, in content ID order.
+     *
+     * @param row - the position of the row, from 0 to getRowCount() - 1
+     * @return the row
+     */
+    public ManifestRow getRow(long row) {
+        if (row < 0 || row >= rowCount) {
+            throw new IndexOutOfBoundsException("No row " + row + " in a manifest of " +
+                                                rowCount + " rows");
+        }
+        ByteBuffer record = record(row);
+        byte[] prefix = prefixes[readVarInt(record)];
+        byte[] suffix = readBytes(record);
+        String contentId = new String(prefix, StandardCharsets.UTF_8) +
+                           new String(suffix, StandardCharsets.UTF_8);
+        return new ManifestRow(spaceId, contentId, readChecksum(record));
+    }
+
+    /*
+     * Returns a buffer positioned at the record of a row
+     */
+    private ByteBuffer record(long row) {
+        long offset = buffer(indexOffset + row * 8).getLong();
+        return buffer(offset);
+    }
+
+    /*
+     * Compares the content ID of a record with the target. When they are
+     * equal, the buffer is left positioned at the checksum.
+     */
+    private int compareContentId(ByteBuffer record, byte[] target) {
+        byte[] prefix = prefixes[readVarInt(record)];
+        int length = prefix.length + readVarInt(record);
+        int common = Math.min(length, target.length);
+        for (int i = 0; i < common; i++) {
+            int b = (i < prefix.length) ? prefix[i] : record.get();
+            int result = (b & 0xff) - (target[i] & 0xff);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return length - target.length;
+    }
+
+    private ByteBuffer buffer(long position) {
+        ByteBuffer segment = segments[(int) (position / segmentSize)].duplicate();
+        segment.position((int) (position % segmentSize));
+        return segment;
+    }
+
+    private static byte[][] readPrefixes(DataInputStream dictionary) throws IOException {
+        byte[][] prefixes = new byte[dictionary.readInt()][];
+        for (int i = 0; i < prefixes.length; i++) {
+            byte[] prefix = new byte[readVarInt(dictionary)];
+            dictionary.readFully(prefix);
+            prefixes[i] = prefix;
+        }
+        return prefixes;
+    }
+
+    private static String readChecksum(ByteBuffer record) {
+        int length = record.get();
+        if (length == 0) {
+            return null;
+        } else if (length == BinaryManifestWriter.MD5_LENGTH) {
+            StringBuilder hex = new StringBuilder(length * 2);
+            for (int i = 0; i < length; i++) {
+                int b = record.get() & 0xff;
+                hex.append(Character.forDigit(b >> 4, 16));
+                hex.append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        }
+        byte[] text = new byte[-length];
+        record.get(text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[readVarInt(buffer)];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = buffer.get() & 0xff;
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+}
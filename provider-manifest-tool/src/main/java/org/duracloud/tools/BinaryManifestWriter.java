@@ -0,0 +1,350 @@
+package org.duracloud.tools;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Binary Manifest Writer - Writes the manifest of a single space in a compact
+ *                          binary form, which can be searched for a content
+ *                          ID without reading the whole file (see
+ *                          BinaryManifest). The layout is:
+ *
+ *   header      - magic, version, row count and the offsets of the dictionary
+ *                 and index sections, then the space ID, stored once
+ *   records     - one per row: the ID of the row's content ID prefix in the
+ *                 dictionary, the rest of the content ID, and the checksum
+ *                 (an MD5 is held as 16 raw bytes)
+ *   dictionary  - the content ID prefixes (everything up to the last '/'),
+ *                 so the path shared by many content IDs is stored once
+ *   index       - the offset of every record, ordered by content ID
+ *
+ * Integers within records are variable length. Content IDs are ordered by
+ * their UTF-8 bytes. Rows are usually written in listing order, which is
+ * already sorted, otherwise the index is sorted when the writer is closed.
+ *
+ * The header is written last, so a manifest is only readable once complete.
+ * If a row cannot be written, or the writer is aborted, the file is deleted
+ * on close rather than completed with the rows written so far.
+ */
+public class BinaryManifestWriter implements ChecksumFetcher.RowWriter, Closeable {
+
+    private static Logger log = LoggerFactory.getLogger(BinaryManifestWriter.class);
+
+    public static final String EXTENSION = ".bin";
+
+    static final int MAGIC = 0x44434d46; // "DCMF"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 40;
+    static final int MD5_LENGTH = 16;
+    static final int MAX_CONTENT_ID_SIZE = 32 * 1024;
+    static final int MAX_RECORD_SIZE = 2 * MAX_CONTENT_ID_SIZE;
+
+    // Beyond this many prefixes, content IDs are stored whole
+    private static final int MAX_DICTIONARY_SIZE = 1 << 16;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final File file;
+    private final String spaceId;
+    private final FileOutputStream fileStream;
+    private final DataOutputStream out;
+
+    private final Map<String, Integer> prefixIds = new HashMap<>();
+    private final List<String> prefixes = new ArrayList<>();
+
+    private long[] offsets = new long[1024];
+    private int rowCount = 0;
+    private long position;
+    private byte[] lastContentId = null;
+    private boolean sorted = true;
+    private boolean failed = false;
+
+    /**
+     * @param file    - the file to write
+     * @param spaceId - the space which the manifest lists
+     * @throws IOException
+     */
+    public BinaryManifestWriter(File file, String spaceId) throws IOException {
+        this.file = file;
+        this.spaceId = spaceId;
+        this.fileStream = new FileOutputStream(file);
+        this.out = new DataOutputStream(new BufferedOutputStream(fileStream, BUFFER_SIZE));
+
+        // Header values are filled in on close
+        out.write(new byte[HEADER_SIZE]);
+        position = HEADER_SIZE + writeString(out, spaceId);
+
+        prefixIds.put("", 0);
+        prefixes.add("");
+    }
+
+    @Override
+    public void writeRow(String spaceId, String contentId, String checksum) throws IOException {
+        if (failed) {
+            throw new IOException("An earlier row of the manifest could not be written");
+        }
+        try {
+            appendRow(spaceId, contentId, checksum);
+        } catch (IOException | RuntimeException e) {
+            failed = true;
+            throw e;
+        }
+    }
+
+    /**
+     * Marks the manifest as incomplete, so that it is deleted on close.
+     */
+    public void abort() {
+        failed = true;
+    }
+
+    private void appendRow(String spaceId, String contentId, String checksum)
+        throws IOException {
+        if (!this.spaceId.equals(spaceId)) {
+            throw new IOException("A binary manifest lists only space " + this.spaceId +
+                                  ", not " + spaceId);
+        }
+
+        if (contentId.length() * 3 > MAX_CONTENT_ID_SIZE &&
+            contentId.getBytes(StandardCharsets.UTF_8).length > MAX_CONTENT_ID_SIZE) {
+            throw new IOException("Content ID is too long to store: " + contentId);
+        }
+
+        int prefixEnd = contentId.lastIndexOf('/') + 1;
+        String prefix = contentId.substring(0, prefixEnd);
+        Integer prefixId = prefixIds.get(prefix);
+        if (null == prefixId) {
+            if (prefixes.size() < MAX_DICTIONARY_SIZE) {
+                prefixId = prefixes.size();
+                prefixIds.put(prefix, prefixId);
+                prefixes.add(prefix);
+            } else {
+                prefixId = 0;
+                prefixEnd = 0;
+            }
+        }
+
+        byte[] suffix = contentId.substring(prefixEnd).getBytes(StandardCharsets.UTF_8);
+        if (sorted) {
+            byte[] contentIdBytes = contentId.getBytes(StandardCharsets.UTF_8);
+            if (null != lastContentId && compare(lastContentId, contentIdBytes) > 0) {
+                sorted = false;
+            }
+            lastContentId = contentIdBytes;
+        }
+
+        if (rowCount == offsets.length) {
+            offsets = Arrays.copyOf(offsets, rowCount * 2);
+        }
+        offsets[rowCount++] = position;
+
+        position += writeVarInt(out, prefixId);
+        position += writeVarInt(out, suffix.length);
+        out.write(suffix);
+        position += suffix.length;
+        position += writeChecksum(out, checksum);
+    }
+
+    /**
+     * Writes the dictionary and index, then completes the header. An
+     * incomplete manifest is deleted instead.
+     */
+    @Override
+    public void close() throws IOException {
+        if (failed) {
+            try {
+                out.close();
+            } finally {
+                if (file.delete()) {
+                    log.warn("Deleted incomplete binary manifest {}", file.getAbsolutePath());
+                } else {
+                    log.warn("Unable to delete incomplete binary manifest {}",
+                             file.getAbsolutePath());
+                }
+            }
+            return;
+        }
+        try {
+            long dictionaryOffset = position;
+            out.writeInt(prefixes.size());
+            position += 4;
+            for (String prefix : prefixes) {
+                position += writeString(out, prefix);
+            }
+            out.flush();
+
+            if (!sorted) {
+                log.info("Rows were not in content ID order, sorting index of {} rows", rowCount);
+                sortOffsets();
+            }
+
+            long indexOffset = position;
+            for (int i = 0; i < rowCount; i++) {
+                out.writeLong(offsets[i]);
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putLong(rowCount);
+            header.putLong(dictionaryOffset);
+            header.putLong(indexOffset);
+            header.flip();
+            fileStream.getChannel().write(header, 0);
+            fileStream.getChannel().force(false);
+            log.info("Wrote binary manifest of {} rows and {} prefixes, {} bytes",
+                     rowCount, prefixes.size(), file.length());
+        } finally {
+            out.close();
+        }
+    }
+
+    /*
+     * Sorts the record offsets by content ID, reading the content IDs back
+     * from the records already written
+     */
+    private void sortOffsets() throws IOException {
+        final byte[][] prefixBytes = new byte[prefixes.size()][];
+        for (int i = 0; i < prefixBytes.length; i++) {
+            prefixBytes[i] = prefixes.get(i).getBytes(StandardCharsets.UTF_8);
+        }
+
+        final byte[][] keys = new byte[rowCount][];
+        try (RandomAccessFile records = new RandomAccessFile(file, "r")) {
+            for (int i = 0; i < rowCount; i++) {
+                records.seek(offsets[i]);
+                int prefixId = readVarInt(records);
+                byte[] suffix = new byte[readVarInt(records)];
+                records.readFully(suffix);
+                byte[] prefix = prefixBytes[prefixId];
+                byte[] key = Arrays.copyOf(prefix, prefix.length + suffix.length);
+                System.arraycopy(suffix, 0, key, prefix.length, suffix.length);
+                keys[i] = key;
+            }
+        }
+
+        Integer[] order = new Integer[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return BinaryManifestWriter.compare(keys[a], keys[b]);
+            }
+        });
+
+        long[] sortedOffsets = new long[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            sortedOffsets[i] = offsets[order[i]];
+        }
+        offsets = sortedOffsets;
+    }
+
+    /*
+     * Writes a checksum: a length byte followed by the checksum. An MD5 in
+     * hex is held as 16 raw bytes, anything else as UTF-8 text with its
+     * length negated, and a missing checksum as a length of zero.
+     */
+    private static int writeChecksum(DataOutputStream out, String checksum) throws IOException {
+        if (null == checksum) {
+            out.writeByte(0);
+            return 1;
+        }
+        byte[] md5 = parseMd5(checksum);
+        if (null != md5) {
+            out.writeByte(MD5_LENGTH);
+            out.write(md5);
+            return 1 + MD5_LENGTH;
+        }
+        byte[] text = checksum.getBytes(StandardCharsets.UTF_8);
+        if (text.length > 127) {
+            throw new IOException("Checksum is too long to store: " + checksum);
+        }
+        out.writeByte(-text.length);
+        out.write(text);
+        return 1 + text.length;
+    }
+
+    private static byte[] parseMd5(String checksum) {
+        if (checksum.length() != MD5_LENGTH * 2) {
+            return null;
+        }
+        byte[] md5 = new byte[MD5_LENGTH];
+        for (int i = 0; i < MD5_LENGTH; i++) {
+            int high = Character.digit(checksum.charAt(2 * i), 16);
+            int low = Character.digit(checksum.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                return null;
+            }
+            md5[i] = (byte) ((high << 4) | low);
+        }
+        // Only lower case hex can be restored exactly
+        return checksum.equals(checksum.toLowerCase()) ? md5 : null;
+    }
+
+    private static int writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = writeVarInt(out, bytes.length);
+        out.write(bytes);
+        return length + bytes.length;
+    }
+
+    /*
+     * Writes an unsigned variable length integer, 7 bits per byte
+     */
+    static int writeVarInt(DataOutputStream out, int value) throws IOException {
+        int length = 1;
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+            length++;
+        }
+        out.writeByte(value);
+        return length;
+    }
+
+    private static int readVarInt(RandomAccessFile in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /*
+     * Compares UTF-8 bytes as unsigned values, which orders content IDs by
+     * their characters
+     */
+    static int compare(byte[] a, byte[] b) {
+        int common = Math.min(a.length, b.length);
+        for (int i = 0; i < common; i++) {
+            int diff = (a[i] & 0xff) - (b[i] & 0xff);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return a.length - b.length;
+    }
+
+}
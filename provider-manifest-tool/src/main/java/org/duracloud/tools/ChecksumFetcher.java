@@ -0,0 +1,216 @@
+package org.duracloud.tools;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.duracloud.client.ContentStore;
+import org.duracloud.error.ContentStoreException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Checksum Fetcher - Retrieves the checksum of each content item in a listing
+ *                    using a pool of worker threads, so that many property
+ *                    requests are in flight at once. A single writer thread
+ *                    hands the results on, one at a time, either in listing
+ *                    order or in the order in which they complete.
+ *
+ *                    The number of items which have been listed but not yet
+ *                    written is bounded, so a slow writer or a slow store
+ *                    holds back the listing rather than filling memory.
+ */
+public class ChecksumFetcher {
+
+    private static Logger log = LoggerFactory.getLogger(ChecksumFetcher.class);
+
+    private static final int QUEUED_ITEMS_PER_WORKER = 4;
+
+    // Marks the end of the results
+    private static final Future<Row> END = new FutureTask<>(new Callable<Row>() {
+        @Override
+        public Row call() {
+            return null;
+        }
+    });
+
+    /**
+     * Receives the checksum of each content item. Only ever called from the
+     * writer thread.
+     */
+    public interface RowWriter {
+        void writeRow(String spaceId, String contentId, String checksum) throws IOException;
+    }
+
+    private ContentStore store;
+    private int workers;
+    private boolean ordered;
+
+    /**
+     * @param store   - DuraCloud storage client
+     * @param workers - the number of property requests to make at once
+     * @param ordered - when true, results are written in listing order,
+     *                  otherwise in the order in which they complete
+     */
+    public ChecksumFetcher(ContentStore store, int workers, boolean ordered) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("The number of workers must be at least 1");
+        }
+        this.store = store;
+        this.workers = workers;
+        this.ordered = ordered;
+    }
+
+    /**
+     * Retrieves the checksum of each listed content item and passes it to the
+     * writer.
+     *
+     * @param spaceId    - the space containing the content
+     * @param contentIds - the content items to include
+     * @param writer     - receives the results
+     * @return the number of content items written
+     * @throws ContentStoreException if a checksum could not be retrieved
+     * @throws IOException if the writer fails
+     */
+    public long fetch(final String spaceId,
+                      Iterator<String> contentIds,
+                      final RowWriter writer)
+        throws ContentStoreException, IOException {
+        int capacity = workers * QUEUED_ITEMS_PER_WORKER;
+        final BlockingQueue<Future<Row>> results = new ArrayBlockingQueue<>(capacity + 1);
+        final Semaphore permits = new Semaphore(capacity);
+
+        ExecutorService fetchWorkers = Executors.newFixedThreadPool(workers);
+        ExecutorService writerThread = Executors.newSingleThreadExecutor();
+        Future<Long> written = writerThread.submit(new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+                try {
+                    return writeResults(results, permits, writer);
+                } catch (ExecutionException e) {
+                    // Surface the failure of the property request itself
+                    Throwable cause = e.getCause();
+                    throw cause instanceof Exception ? (Exception) cause : e;
+                }
+            }
+        });
+        writerThread.shutdown();
+
+        try {
+            while (contentIds.hasNext() && acquire(permits, written)) {
+                final String contentId = contentIds.next();
+                Callable<Row> fetch = new Callable<Row>() {
+                    @Override
+                    public Row call() throws ContentStoreException {
+                        Map<String, String> contentProps =
+                            store.getContentProperties(spaceId, contentId);
+                        return new Row(spaceId, contentId,
+                                       contentProps.get(ContentStore.CONTENT_CHECKSUM));
+                    }
+                };
+
+                // Queue space is always available while holding a permit
+                if (ordered) {
+                    // Queued in listing order, the writer waits on each in turn
+                    FutureTask<Row> task = new FutureTask<>(fetch);
+                    results.offer(task);
+                    fetchWorkers.execute(task);
+                } else {
+                    // Queued by the worker once complete
+                    fetchWorkers.execute(new FutureTask<Row>(fetch) {
+                        @Override
+                        protected void done() {
+                            results.offer(this);
+                        }
+                    });
+                }
+            }
+
+            fetchWorkers.shutdown();
+            if (!ordered) {
+                while (!written.isDone() &&
+                       !fetchWorkers.awaitTermination(1, TimeUnit.MINUTES)) {
+                    log.info("Waiting on content property requests to complete...");
+                }
+            }
+            results.offer(END);
+            return written.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while retrieving content properties");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ContentStoreException) {
+                throw (ContentStoreException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause.getMessage(), cause);
+        } finally {
+            fetchWorkers.shutdownNow();
+            writerThread.shutdownNow();
+        }
+    }
+
+    /*
+     * Waits for room to queue another content item. Returns false if the
+     * writer has stopped, in which case no room will become available.
+     */
+    private boolean acquire(Semaphore permits, Future<Long> written)
+        throws InterruptedException {
+        while (!permits.tryAcquire(1, TimeUnit.SECONDS)) {
+            if (written.isDone()) {
+                return false;
+            }
+        }
+        if (written.isDone()) {
+            permits.release();
+            return false;
+        }
+        return true;
+    }
+
+    /*
+     * Runs on the writer thread, passing each result to the writer until the
+     * end of the results is reached
+     */
+    private long writeResults(BlockingQueue<Future<Row>> results,
+                              Semaphore permits,
+                              RowWriter writer)
+        throws InterruptedException, ExecutionException, IOException {
+        long count = 0;
+        Future<Row> result;
+        while ((result = results.take()) != END) {
+            Row row = result.get();
+            writer.writeRow(row.spaceId, row.contentId, row.checksum);
+            permits.release();
+            count++;
+        }
+        return count;
+    }
+
+    private static class Row {
+        private final String spaceId;
+        private final String contentId;
+        private final String checksum;
+
+        private Row(String spaceId, String contentId, String checksum) {
+            this.spaceId = spaceId;
+            this.contentId = contentId;
+            this.checksum = checksum;
+        }
+    }
+
+}
@@ -0,0 +1,146 @@
+package org.duracloud.tools;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Manifest Diff - Compares two manifests, such as a DuraCloud manifest and a
+ *                 provider manifest, or the provider manifests of two runs.
+ *
+ *                 Both manifests are sorted by space ID and content ID with
+ *                 an external sort, then read side by side in a single pass.
+ *                 Only the differences are written out:
+ *                 - MISSING: in the source manifest but not the target
+ *                 - EXTRA: in the target manifest but not the source
+ *                 - MISMATCH: in both, with different checksums
+ */
+public class ManifestDiff {
+
+    private static Logger log = LoggerFactory.getLogger(ManifestDiff.class);
+
+    public static final String HEADER = "status\tspace-id\tcontent-id\tsource-MD5\ttarget-MD5";
+    public static final String MISSING = "MISSING";
+    public static final String EXTRA = "EXTRA";
+    public static final String MISMATCH = "MISMATCH";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private ManifestSorter sorter;
+
+    private long matched;
+    private long missing;
+    private long extra;
+    private long mismatched;
+
+    public ManifestDiff(ManifestSorter sorter) {
+        this.sorter = sorter;
+    }
+
+    /**
+     * Compares two manifests and writes their differences.
+     *
+     * @param source - the manifest listing the content expected
+     * @param target - the manifest listing the content found
+     * @param output - the file to which differences are written
+     * @return the number of differences
+     * @throws IOException
+     */
+    public long diff(File source, File target, File output) throws IOException {
+        matched = 0;
+        missing = 0;
+        extra = 0;
+        mismatched = 0;
+
+        try (ManifestSource sourceRows = sorter.sort(source);
+             ManifestSource targetRows = sorter.sort(target);
+             BufferedWriter writer =
+                 new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output),
+                                                           StandardCharsets.UTF_8),
+                                    BUFFER_SIZE)) {
+            writer.write(HEADER);
+            writer.newLine();
+
+            ManifestRow sourceRow = sourceRows.readRow();
+            ManifestRow targetRow = targetRows.readRow();
+            while (null != sourceRow || null != targetRow) {
+                int result;
+                if (null == sourceRow) {
+                    result = 1;
+                } else if (null == targetRow) {
+                    result = -1;
+                } else {
+                    result = sourceRow.compareTo(targetRow);
+                }
+
+                if (result < 0) {
+                    writeDiff(writer, MISSING, sourceRow, sourceRow.getChecksum(), "");
+                    missing++;
+                    sourceRow = sourceRows.readRow();
+                } else if (result > 0) {
+                    writeDiff(writer, EXTRA, targetRow, "", targetRow.getChecksum());
+                    extra++;
+                    targetRow = targetRows.readRow();
+                } else {
+                    if (sourceRow.checksumMatches(targetRow)) {
+                        matched++;
+                    } else {
+                        writeDiff(writer, MISMATCH, sourceRow,
+                                  sourceRow.getChecksum(), targetRow.getChecksum());
+                        mismatched++;
+                    }
+                    sourceRow = sourceRows.readRow();
+                    targetRow = targetRows.readRow();
+                }
+            }
+        }
+
+        log.info("\n-----------------------------------------" +
+                 "\nManifest Diff Summary:" +
+                 "\nmatched={}\nmissing={}\nextra={}\nchecksum mismatches={}" +
+                 "\n-----------------------------------------",
+                 matched, missing, extra, mismatched);
+        return missing + extra + mismatched;
+    }
+
+    private void writeDiff(BufferedWriter writer,
+                           String status,
+                           ManifestRow row,
+                           String sourceChecksum,
+                           String targetChecksum)
+        throws IOException {
+        writer.write(status);
+        writer.write('\t');
+        writer.write(row.getSpaceId());
+        writer.write('\t');
+        writer.write(row.getContentId());
+        writer.write('\t');
+        writer.write(sourceChecksum);
+        writer.write('\t');
+        writer.write(targetChecksum);
+        writer.newLine();
+    }
+
+    public long getMatched() {
+        return matched;
+    }
+
+    public long getMissing() {
+        return missing;
+    }
+
+    public long getExtra() {
+        return extra;
+    }
+
+    public long getMismatched() {
+        return mismatched;
+    }
+
+}
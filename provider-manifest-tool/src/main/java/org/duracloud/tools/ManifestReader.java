@@ -0,0 +1,67 @@
+package org.duracloud.tools;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+/*
+ * Manifest Reader - Reads the rows of a manifest file, either a provider
+ *                   manifest or a DuraCloud TSV manifest, which share the same
+ *                   columns. Files ending in .gz are decompressed. Header rows
+ *                   and empty lines are skipped.
+ */
+public class ManifestReader implements ManifestSource {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String HEADER_START = "space-id\t";
+
+    private final File file;
+    private final BufferedReader reader;
+    private long lineNumber = 0;
+
+    public ManifestReader(File file) throws IOException {
+        this.file = file;
+        InputStream stream = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+        if (file.getName().endsWith(ManifestWriter.GZIP_EXTENSION)) {
+            stream = new GZIPInputStream(stream, BUFFER_SIZE);
+        }
+        this.reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8),
+                                         BUFFER_SIZE);
+    }
+
+    /**
+     * @return the next row, or null at the end of the file
+     * @throws IOException if the file cannot be read or a line is not a
+     *                     manifest row
+     */
+    @Override
+    public ManifestRow readRow() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isEmpty() || line.equals(ManifestWriter.HEADER) ||
+                (lineNumber == 1 && line.startsWith(HEADER_START))) {
+                continue;
+            }
+            ManifestRow row = ManifestRow.parse(line);
+            if (null == row) {
+                throw new IOException("Line " + lineNumber + " of " + file.getPath() +
+                                      " is not a manifest row: " + line);
+            }
+            return row;
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+}
@@ -0,0 +1,93 @@
+package org.duracloud.tools;
+
+/*
+ * Manifest Row - One row of a manifest: a content item and its checksum.
+ *                Rows are ordered by space ID, then by content ID.
+ */
+public class ManifestRow implements Comparable<ManifestRow> {
+
+    private final String spaceId;
+    private final String contentId;
+    private final String checksum;
+
+    public ManifestRow(String spaceId, String contentId, String checksum) {
+        this.spaceId = spaceId;
+        this.contentId = contentId;
+        this.checksum = checksum;
+    }
+
+    /**
+     * Parses a manifest row in the form: space-id[TAB]content-id[TAB]MD5
+     *
+     * @param line - the line to parse
+     * @return the row, or null if the line is not a manifest row
+     */
+    public static ManifestRow parse(String line) {
+        int firstTab = line.indexOf('\t');
+        int lastTab = line.lastIndexOf('\t');
+        if (firstTab < 0 || firstTab == lastTab) {
+            return null;
+        }
+        return new ManifestRow(line.substring(0, firstTab),
+                               line.substring(firstTab + 1, lastTab),
+                               line.substring(lastTab + 1));
+    }
+
+    public String getSpaceId() {
+        return spaceId;
+    }
+
+    public String getContentId() {
+        return contentId;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    /**
+     * @return a rough count of the bytes of heap used by the row, used to
+     *         limit the number of rows held in memory
+     */
+    public long getSizeEstimate() {
+        // Three strings plus the row itself, at about 40 bytes of overhead each
+        return 160 + 2L * (spaceId.length() + contentId.length() + checksum.length());
+    }
+
+    /**
+     * @return true if the checksums of the two rows match, ignoring case
+     */
+    public boolean checksumMatches(ManifestRow other) {
+        return checksum.equalsIgnoreCase(other.checksum);
+    }
+
+    @Override
+    public int compareTo(ManifestRow other) {
+        int result = spaceId.compareTo(other.spaceId);
+        if (result == 0) {
+            result = contentId.compareTo(other.contentId);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof ManifestRow)) {
+            return false;
+        }
+        ManifestRow row = (ManifestRow) other;
+        return spaceId.equals(row.spaceId) && contentId.equals(row.contentId) &&
+               checksum.equals(row.checksum);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * spaceId.hashCode() + contentId.hashCode()) + checksum.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return spaceId + "\t" + contentId + "\t" + checksum;
+    }
+
+}
@@ -0,0 +1,272 @@
+package org.duracloud.tools;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Manifest Sorter - Sorts the rows of a manifest by space ID and content ID
+ *                   using a bounded amount of memory.
+ *
+ *                   Rows are read into memory until the memory limit is
+ *                   reached, then sorted and written to a temporary chunk
+ *                   file. The sorted rows are read back by merging the chunk
+ *                   files, taking the lowest row from the head of each. When
+ *                   there are more chunks than can be merged at once, groups of
+ *                   chunks are first merged into larger chunks.
+ */
+public class ManifestSorter {
+
+    private static Logger log = LoggerFactory.getLogger(ManifestSorter.class);
+
+    public static final long DEFAULT_MEMORY_LIMIT = 128L * 1024 * 1024;
+
+    private static final int MAX_MERGE_FILES = 64;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private File tempDir;
+    private long memoryLimit;
+
+    /**
+     * @param tempDir     - the directory in which to hold chunk files, or null
+     *                      to use the system temporary directory
+     * @param memoryLimit - the approximate number of bytes of rows to hold in
+     *                      memory at once
+     */
+    public ManifestSorter(File tempDir, long memoryLimit) {
+        this.tempDir = tempDir;
+        this.memoryLimit = memoryLimit;
+    }
+
+    /**
+     * Sorts a manifest. The chunk files are removed when the returned source
+     * is closed.
+     *
+     * @param manifest - the manifest to sort
+     * @return the rows of the manifest, in order
+     * @throws IOException
+     */
+    public ManifestSource sort(File manifest) throws IOException {
+        log.info("Sorting manifest {}", manifest.getPath());
+        File chunkDir = null;
+        List<File> chunks = new ArrayList<>();
+        List<ManifestRow> rows = new ArrayList<>();
+
+        try (ManifestReader reader = new ManifestReader(manifest)) {
+            long size = 0;
+            ManifestRow row;
+            while ((row = reader.readRow()) != null) {
+                rows.add(row);
+                size += row.getSizeEstimate();
+                if (size >= memoryLimit) {
+                    if (null == chunkDir) {
+                        chunkDir = createChunkDir();
+                    }
+                    chunks.add(writeChunk(chunkDir, chunks.size(), rows));
+                    rows.clear();
+                    size = 0;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            deleteChunks(chunkDir, chunks);
+            throw e;
+        }
+
+        Collections.sort(rows);
+        if (chunks.isEmpty()) {
+            // Small enough to sort in memory
+            return new ListSource(rows);
+        }
+
+        try {
+            if (!rows.isEmpty()) {
+                chunks.add(writeChunk(chunkDir, chunks.size(), rows));
+            }
+            rows = null;
+
+            int nextChunk = chunks.size();
+            while (chunks.size() > MAX_MERGE_FILES) {
+                List<File> merged = new ArrayList<>();
+                for (int i = 0; i < chunks.size(); i += MAX_MERGE_FILES) {
+                    List<File> group = chunks.subList(i, Math.min(i + MAX_MERGE_FILES, chunks.size()));
+                    File mergedChunk = chunkFile(chunkDir, nextChunk++);
+                    try (MergeSource source = new MergeSource(new ArrayList<>(group), null)) {
+                        writeChunk(mergedChunk, source);
+                    }
+                    merged.add(mergedChunk);
+                }
+                chunks = merged;
+            }
+            log.info("Merging {} sorted chunks of {}", chunks.size(), manifest.getPath());
+            return new MergeSource(chunks, chunkDir);
+        } catch (IOException | RuntimeException e) {
+            deleteChunks(chunkDir, chunks);
+            throw e;
+        }
+    }
+
+    private File createChunkDir() throws IOException {
+        if (null == tempDir) {
+            return Files.createTempDirectory("manifest-sort").toFile();
+        }
+        return Files.createTempDirectory(tempDir.toPath(), "manifest-sort").toFile();
+    }
+
+    private File chunkFile(File chunkDir, int index) {
+        return new File(chunkDir, "chunk-" + index + ".tsv");
+    }
+
+    /*
+     * Sorts the rows and writes them to a new chunk file
+     */
+    private File writeChunk(File chunkDir, int index, List<ManifestRow> rows)
+        throws IOException {
+        Collections.sort(rows);
+        File chunk = chunkFile(chunkDir, index);
+        writeChunk(chunk, new ListSource(rows));
+        log.debug("Wrote {} sorted rows to {}", rows.size(), chunk.getPath());
+        return chunk;
+    }
+
+    private void writeChunk(File chunk, ManifestSource rows) throws IOException {
+        try (BufferedWriter writer =
+                 new BufferedWriter(new OutputStreamWriter(new FileOutputStream(chunk),
+                                                           StandardCharsets.UTF_8),
+                                    BUFFER_SIZE)) {
+            ManifestRow row;
+            while ((row = rows.readRow()) != null) {
+                writer.write(row.getSpaceId());
+                writer.write('\t');
+                writer.write(row.getContentId());
+                writer.write('\t');
+                writer.write(row.getChecksum());
+                writer.write('\n');
+            }
+        }
+    }
+
+    private static void deleteChunks(File chunkDir, List<File> chunks) {
+        if (null == chunkDir) {
+            return;
+        }
+        File[] files = chunkDir.listFiles();
+        if (null != files) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        chunkDir.delete();
+    }
+
+    /*
+     * Returns rows held in a sorted list
+     */
+    private static class ListSource implements ManifestSource {
+        private Iterator<ManifestRow> rows;
+
+        private ListSource(List<ManifestRow> rows) {
+            this.rows = rows.iterator();
+        }
+
+        @Override
+        public ManifestRow readRow() {
+            return rows.hasNext() ? rows.next() : null;
+        }
+
+        @Override
+        public void close() {
+            rows = Collections.<ManifestRow>emptyList().iterator();
+        }
+    }
+
+    /*
+     * Returns the rows of several sorted chunk files in order, by keeping the
+     * next row of each file in a priority queue
+     */
+    private static class MergeSource implements ManifestSource {
+        private List<File> chunks;
+        private File chunkDir;
+        private List<ManifestReader> readers = new ArrayList<>();
+        private PriorityQueue<Head> heads = new PriorityQueue<>();
+
+        /*
+         * @param chunkDir - when not null, the chunk directory is removed
+         *                   when the source is closed
+         */
+        private MergeSource(List<File> chunks, File chunkDir) throws IOException {
+            this.chunks = chunks;
+            this.chunkDir = chunkDir;
+            try {
+                for (File chunk : chunks) {
+                    ManifestReader reader = new ManifestReader(chunk);
+                    readers.add(reader);
+                    ManifestRow row = reader.readRow();
+                    if (null != row) {
+                        heads.add(new Head(row, reader));
+                    }
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public ManifestRow readRow() throws IOException {
+            Head head = heads.poll();
+            if (null == head) {
+                return null;
+            }
+            ManifestRow row = head.row;
+            ManifestRow next = head.reader.readRow();
+            if (null != next) {
+                head.row = next;
+                heads.add(head);
+            }
+            return row;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (ManifestReader reader : readers) {
+                reader.close();
+            }
+            readers.clear();
+            heads.clear();
+            for (File chunk : chunks) {
+                chunk.delete();
+            }
+            if (null != chunkDir) {
+                deleteChunks(chunkDir, chunks);
+            }
+        }
+    }
+
+    private static class Head implements Comparable<Head> {
+        private ManifestRow row;
+        private ManifestReader reader;
+
+        private Head(ManifestRow row, ManifestReader reader) {
+            this.row = row;
+            this.reader = reader;
+        }
+
+        @Override
+        public int compareTo(Head other) {
+            return row.compareTo(other.row);
+        }
+    }
+
+}
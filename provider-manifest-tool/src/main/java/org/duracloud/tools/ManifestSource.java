@@ -0,0 +1,17 @@
+package org.duracloud.tools;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A source of manifest rows, read one at a time.
+ */
+public interface ManifestSource extends Closeable {
+
+    /**
+     * @return the next row, or null when there are no more rows
+     * @throws IOException if the rows cannot be read
+     */
+    ManifestRow readRow() throws IOException;
+
+}
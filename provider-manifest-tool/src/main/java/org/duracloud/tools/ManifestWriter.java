@@ -0,0 +1,147 @@
+package org.duracloud.tools;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Manifest Writer - Writes the rows of a provider manifest as UTF-8 text,
+ *                   optionally gzip compressed.
+ *
+ *                   Output is held in large buffers rather than flushed for
+ *                   each row. At regular checkpoints (a number of rows or an
+ *                   amount of time, whichever comes first) the buffers are
+ *                   flushed and the file synced to disk, so a failure loses
+ *                   at most the rows written since the last checkpoint.
+ */
+public class ManifestWriter implements ChecksumFetcher.RowWriter, Closeable {
+
+    private static Logger log = LoggerFactory.getLogger(ManifestWriter.class);
+
+    public static final String HEADER = "space-id\tcontent-id\tMD5";
+    public static final String GZIP_EXTENSION = ".gz";
+
+    private static final int FILE_BUFFER_SIZE = 1024 * 1024;
+    private static final int TEXT_BUFFER_SIZE = 64 * 1024;
+    private static final int CHECKPOINT_ROWS = 100000;
+    private static final long CHECKPOINT_MILLIS = 30000;
+
+    private final FileOutputStream fileStream;
+    private final OutputStream fileBuffer;
+    private final GZIPOutputStream gzipStream;
+    private final BufferedWriter writer;
+
+    private long rows = 0;
+    private long rowsAtCheckpoint = 0;
+    private long checkpointTime = System.currentTimeMillis();
+
+    /**
+     * Creates the manifest file, replacing any existing file.
+     *
+     * @param file - the file to write
+     * @param gzip - true to compress the output
+     * @throws IOException
+     */
+    public ManifestWriter(File file, boolean gzip) throws IOException {
+        this(file, gzip, false);
+    }
+
+    /**
+     * Opens the manifest file.
+     *
+     * @param file   - the file to write
+     * @param gzip   - true to compress the output
+     * @param append - true to add rows to the end of an existing manifest,
+     *                 false to replace any existing file
+     * @throws IOException
+     */
+    public ManifestWriter(File file, boolean gzip, boolean append) throws IOException {
+        this.fileStream = new FileOutputStream(file, append);
+        this.fileBuffer = new BufferedOutputStream(fileStream, FILE_BUFFER_SIZE);
+        OutputStream textStream = fileBuffer;
+        if (gzip) {
+            // Sync flush, so a checkpoint leaves a readable file
+            this.gzipStream = new GZIPOutputStream(fileBuffer, TEXT_BUFFER_SIZE, true);
+            textStream = gzipStream;
+        } else {
+            this.gzipStream = null;
+        }
+        this.writer = new BufferedWriter(new OutputStreamWriter(textStream, StandardCharsets.UTF_8),
+                                         TEXT_BUFFER_SIZE);
+    }
+
+    public void writeHeader() throws IOException {
+        writer.write(HEADER);
+        writer.newLine();
+    }
+
+    /**
+     * Writes a row, which may be buffered until the next checkpoint.
+     *
+     * @param spaceId   - the space containing the content item
+     * @param contentId - the content item
+     * @param checksum  - the MD5 checksum of the content item
+     * @throws IOException
+     */
+    @Override
+    public void writeRow(String spaceId, String contentId, String checksum) throws IOException {
+        writer.write(spaceId);
+        writer.write('\t');
+        writer.write(contentId);
+        writer.write('\t');
+        writer.write(String.valueOf(checksum));
+        writer.newLine();
+        rows++;
+
+        if (rows - rowsAtCheckpoint >= CHECKPOINT_ROWS ||
+            System.currentTimeMillis() - checkpointTime >= CHECKPOINT_MILLIS) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Flushes all buffered rows and syncs the file to disk.
+     *
+     * @throws IOException
+     */
+    public void checkpoint() throws IOException {
+        writer.flush();
+        fileBuffer.flush();
+        fileStream.getChannel().force(false);
+        rowsAtCheckpoint = rows;
+        checkpointTime = System.currentTimeMillis();
+        log.debug("Manifest checkpoint at {} rows", rows);
+    }
+
+    /**
+     * @return the number of rows written, not including the header
+     */
+    public long getRowCount() {
+        return rows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            writer.flush();
+            if (null != gzipStream) {
+                gzipStream.finish();
+            }
+            fileBuffer.flush();
+            fileStream.getChannel().force(false);
+        } finally {
+            writer.close();
+        }
+    }
+
+}
@@ -0,0 +1,207 @@
+package org.duracloud.tools;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Partial Manifest - An uncompressed manifest left by an interrupted run.
+ *                    Opening it drops any incomplete row at the end of the
+ *                    file and finds the last content item which was written,
+ *                    so the listing can continue from there. Only the end of
+ *                    the file is read.
+ *
+ *                    While a manifest is written, a state file alongside it
+ *                    (the manifest name plus .partial) records whether its
+ *                    rows are in listing order. The state file is removed
+ *                    once the manifest is complete.
+ */
+public class PartialManifest {
+
+    private static Logger log = LoggerFactory.getLogger(PartialManifest.class);
+
+    private static final int READ_SIZE = 8192;
+
+    public static final String STATE_EXTENSION = ".partial";
+    private static final String ORDERED_STATE = "ordered";
+    private static final String UNORDERED_STATE = "unordered";
+
+    private File file;
+    private boolean hasHeader;
+    private String lastSpaceId;
+    private String lastContentId;
+
+    private PartialManifest(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Opens a partial manifest, truncating it after its last complete row.
+     *
+     * @param file - the manifest file
+     * @return the partial manifest
+     * @throws IOException if the file cannot be read, or is not a manifest
+     */
+    public static PartialManifest open(File file) throws IOException {
+        if (!file.exists()) {
+            throw new FileNotFoundException("The manifest to resume does not exist at " +
+                                            file.getAbsolutePath());
+        }
+
+        PartialManifest manifest = new PartialManifest(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long lineEnd = lastIndexOf(raf, '\n', raf.length() - 1);
+            if (lineEnd + 1 < raf.length()) {
+                log.info("Removing {} bytes of incomplete row from the end of {}",
+                         raf.length() - lineEnd - 1, file.getName());
+                raf.setLength(lineEnd + 1);
+            }
+            if (lineEnd < 0) {
+                // Not even the header was completed
+                return manifest;
+            }
+
+            long lineStart = lastIndexOf(raf, '\n', lineEnd - 1) + 1;
+            String line = readLine(raf, lineStart, lineEnd);
+            if (ManifestWriter.HEADER.equals(line)) {
+                manifest.hasHeader = true;
+                return manifest;
+            }
+
+            int firstTab = line.indexOf('\t');
+            int lastTab = line.lastIndexOf('\t');
+            if (firstTab < 0 || firstTab == lastTab) {
+                throw new IOException("The last row of " + file.getAbsolutePath() +
+                                      " is not a manifest row: " + line);
+            }
+            manifest.hasHeader = true;
+            manifest.lastSpaceId = line.substring(0, firstTab);
+            manifest.lastContentId = line.substring(firstTab + 1, lastTab);
+        }
+        return manifest;
+    }
+
+    /*
+     * Finds the position of the last occurrence of a byte at or before the
+     * given position, reading backwards from there, or returns -1
+     */
+    private static long lastIndexOf(RandomAccessFile raf, char value, long from)
+        throws IOException {
+        byte[] buffer = new byte[READ_SIZE];
+        long end = from + 1;
+        while (end > 0) {
+            int length = (int) Math.min(READ_SIZE, end);
+            long start = end - length;
+            raf.seek(start);
+            raf.readFully(buffer, 0, length);
+            for (int i = length - 1; i >= 0; i--) {
+                if (buffer[i] == value) {
+                    return start + i;
+                }
+            }
+            end = start;
+        }
+        return -1;
+    }
+
+    /*
+     * Reads the line between two positions, without the line ending
+     */
+    private static String readLine(RandomAccessFile raf, long start, long end)
+        throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        byte[] buffer = new byte[READ_SIZE];
+        raf.seek(start);
+        long remaining = end - start;
+        while (remaining > 0) {
+            int read = raf.read(buffer, 0, (int) Math.min(READ_SIZE, remaining));
+            line.write(buffer, 0, read);
+            remaining -= read;
+        }
+        String value = new String(line.toByteArray(), StandardCharsets.UTF_8);
+        if (value.endsWith("\r")) {
+            value = value.substring(0, value.length() - 1);
+        }
+        return value;
+    }
+
+    /**
+     * @param file - the manifest file
+     * @return the state file which records how the manifest is written
+     */
+    public static File getStateFile(File file) {
+        return new File(file.getPath() + STATE_EXTENSION);
+    }
+
+    /**
+     * Records how a manifest is being written, before its first row.
+     *
+     * @param file    - the manifest file
+     * @param ordered - true if rows are written in listing order
+     * @throws IOException
+     */
+    public static void writeState(File file, boolean ordered) throws IOException {
+        String state = ordered ? ORDERED_STATE : UNORDERED_STATE;
+        Files.write(getStateFile(file).toPath(), state.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Removes the state file of a manifest which is complete.
+     *
+     * @param file - the manifest file
+     * @throws IOException
+     */
+    public static void deleteState(File file) throws IOException {
+        Files.deleteIfExists(getStateFile(file).toPath());
+    }
+
+    /**
+     * @param file - the manifest file
+     * @return true if the state file records that the manifest's rows are
+     *         written in listing order
+     * @throws IOException if there is no state file, or it cannot be read
+     */
+    public static boolean isOrdered(File file) throws IOException {
+        File stateFile = getStateFile(file);
+        if (!stateFile.exists()) {
+            throw new FileNotFoundException("No manifest state file exists at " +
+                                            stateFile.getAbsolutePath());
+        }
+        String state = new String(Files.readAllBytes(stateFile.toPath()),
+                                  StandardCharsets.UTF_8).trim();
+        return ORDERED_STATE.equals(state);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return true if the manifest header was written
+     */
+    public boolean hasHeader() {
+        return hasHeader;
+    }
+
+    /**
+     * @return the space ID of the last row, or null if no rows were written
+     */
+    public String getLastSpaceId() {
+        return lastSpaceId;
+    }
+
+    /**
+     * @return the content ID of the last row, or null if no rows were written
+     */
+    public String getLastContentId() {
+        return lastContentId;
+    }
+
+}
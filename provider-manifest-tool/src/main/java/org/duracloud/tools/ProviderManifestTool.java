@@ -1,11 +1,18 @@
 package org.duracloud.tools;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -33,14 +40,27 @@ public class ProviderManifestTool {
     private static Logger log = LoggerFactory.getLogger(ProviderManifestTool.class);
     private static final String DEFAULT_PORT = "443";
     private static final String DEFAULT_CONTEXT = "durastore";
+    private static final int DEFAULT_WORKERS = 1;
+    private static final int DEFAULT_SPACE_THREADS = 1;
+    private static final String MANIFEST_NAME = "provider-manifest";
+    // Marks the names of manifests which are not in listing order
+    protected static final String UNORDERED_SUFFIX = "-unordered";
 
     private String host;
     private String port;
     private String username;
     private String password;
     private String storeId;
-    private String spaceId;
-    private String outputFileName;
+    private List<String> spaceIds;
+    private String timestamp;
+    private int workers = DEFAULT_WORKERS;
+    private int spaceThreads = DEFAULT_SPACE_THREADS;
+    private boolean ordered = true;
+    private boolean gzip = false;
+    private boolean combined = false;
+    private boolean binary = false;
+    private File resumeFile;
+    private File outputDir;
 
     private static Options cmdOptions;
 
@@ -50,14 +70,92 @@ public class ProviderManifestTool {
                                 String password,
                                 String storeId,
                                 String spaceId) {
+        this(host, port, username, password, storeId, Collections.singletonList(spaceId));
+    }
+
+    /**
+     * @param spaceIds - the spaces to be listed, or null to list all spaces
+     */
+    public ProviderManifestTool(String host,
+                                String port,
+                                String username,
+                                String password,
+                                String storeId,
+                                List<String> spaceIds) {
         this.host = host;
         this.port = port;
         this.username = username;
         this.password = password;
         this.storeId = storeId;
-        this.spaceId = spaceId;
+        this.spaceIds = spaceIds;
+
+        this.timestamp = DateUtil.nowPlain();
+    }
+
+    /**
+     * Sets how content properties are retrieved.
+     *
+     * @param workers - the number of content property requests to make at once
+     *                  for each space
+     * @param ordered - when true, the manifest lists content items in the order
+     *                  in which they are listed by DuraStore, otherwise items
+     *                  are written as soon as their properties are retrieved
+     */
+    public void setConcurrency(int workers, boolean ordered) {
+        this.workers = workers;
+        this.ordered = ordered;
+    }
+
+    /**
+     * @param spaceThreads - the number of spaces to list at once
+     */
+    public void setSpaceThreads(int spaceThreads) {
+        this.spaceThreads = spaceThreads;
+    }
+
+    /**
+     * @param gzip - true to gzip compress the manifest
+     */
+    public void setGzip(boolean gzip) {
+        this.gzip = gzip;
+    }
 
-        this.outputFileName = spaceId + "-provider-manifest-" + DateUtil.nowPlain() + ".tsv";
+    /**
+     * @param combined - true to write the content of all spaces into a single
+     *                   manifest, false to write a manifest per space
+     */
+    public void setCombined(boolean combined) {
+        this.combined = combined;
+    }
+
+    /**
+     * @param binary - true to write each manifest in the compact binary form
+     *                 read by BinaryManifest, rather than as text. Binary
+     *                 manifests list a single space and are not compressed.
+     */
+    public void setBinary(boolean binary) {
+        this.binary = binary;
+    }
+
+    /**
+     * @param outputDir - the directory in which to write manifests, or null
+     *                    for the current directory
+     */
+    public void setOutputDir(File outputDir) {
+        this.outputDir = outputDir;
+    }
+
+    /**
+     * Sets a manifest left by an interrupted run, which is to be completed
+     * rather than starting a new manifest. Only uncompressed manifests of a
+     * single space written in listing order can be resumed. How the manifest
+     * was written is read from the state file left beside it, so a manifest
+     * without one, or which was written unordered, is refused.
+     *
+     * @param resumeFile - the manifest to complete
+     */
+    public void setResumeFile(File resumeFile) {
+        this.resumeFile = resumeFile;
     }
 
     /**
@@ -69,8 +167,9 @@ public class ProviderManifestTool {
     public void run() throws ContentStoreException, IOException {
         log.info("\n-----------------------------------------" +
                  "\nRunning Provider Manifest Tool with config:" +
-                 "\nhost={}\nport={}\nspace name={}" +
-                 "\n-----------------------------------------", host, port, spaceId);
+                 "\nhost={}\nport={}\nspace names={}\nworkers={}\nordered={}" +
+                 "\n-----------------------------------------",
+                 host, port, null == spaceIds ? "all" : spaceIds, workers, ordered);
 
         log.info("Setting up tool...");
         final ContentStoreManager storeManager =
@@ -86,27 +185,230 @@ public class ProviderManifestTool {
             store = storeManager.getContentStore(storeId);
         }
 
-        final File file = new File(this.outputFileName);
-        log.info("Writing to output file: " + file.getAbsolutePath());
+        writeManifests(store);
+    }
 
-        try (BufferedWriter is = new BufferedWriter(new FileWriter(file))) {
-            // Write TSV header
-            is.write("space-id\tcontent-id\tMD5");
-            is.newLine();
+    /**
+     * Writes the manifests of all spaces to be listed, all sharing the same
+     * storage client.
+     *
+     * @param store - DuraCloud storage client
+     * @return the number of content items in the manifests
+     * @throws ContentStoreException
+     * @throws IOException
+     */
+    protected long writeManifests(ContentStore store)
+        throws ContentStoreException, IOException {
+        List<String> spaces = spaceIds;
+        if (null == spaces) {
+            spaces = store.getSpaces();
+            log.info("Listing all {} spaces in store {}", spaces.size(), storeId);
+        }
 
-            Iterator<String> contentItems = store.getSpaceContents(spaceId);
-            while (contentItems.hasNext()) {
-                String contentId = contentItems.next();
-                Map<String, String> contentProps = store.getContentProperties(spaceId, contentId);
-                String checksum = contentProps.get(ContentStore.CONTENT_CHECKSUM);
+        if (binary && (gzip || combined || null != resumeFile)) {
+            throw new IllegalStateException("Binary manifests cannot be compressed, " +
+                                            "combined or resumed");
+        }
 
-                // Write details about content itme to output files
-                is.write(spaceId + "\t" + contentId + "\t" + checksum);
-                is.newLine();
-                is.flush();
+        if (null != resumeFile) {
+            if (spaces.size() != 1 || combined) {
+                throw new IllegalStateException("Only the manifest of a single space " +
+                                                "can be resumed");
             }
+            return writeManifest(store, spaces.get(0), resumeFile);
         }
 
+        if (combined) {
+            File file = getOutputFile(MANIFEST_NAME);
+            log.info("Writing to output file: " + file.getAbsolutePath());
+            if (!gzip) {
+                PartialManifest.writeState(file, ordered);
+            }
+            long count;
+            try (ManifestWriter manifest = new ManifestWriter(file, gzip)) {
+                manifest.writeHeader();
+                count = writeSpaces(store, spaces, manifest);
+            }
+            PartialManifest.deleteState(file);
+            return count;
+        }
+        return writeSpaces(store, spaces, null);
+    }
+
+    /**
+     * Writes the manifest of one space, or completes it when resuming.
+     *
+     * @param store   - DuraCloud storage client
+     * @param spaceId - the space to list
+     * @param file    - the file to write
+     * @return the number of content items added to the manifest
+     * @throws ContentStoreException
+     * @throws IOException
+     */
+    protected long writeManifest(ContentStore store, String spaceId, File file)
+        throws ContentStoreException, IOException {
+        log.info("Writing manifest of space {} to output file: {}",
+                 spaceId, file.getAbsolutePath());
+
+        Iterator<String> contentIds;
+        PartialManifest partial = null;
+        if (null != resumeFile) {
+            if (gzip || !ordered) {
+                throw new IllegalStateException("Only uncompressed manifests written in " +
+                                                "listing order can be resumed");
+            }
+            if (!PartialManifest.getStateFile(file).exists()) {
+                throw new IllegalStateException("The manifest to resume has no " +
+                                                PartialManifest.STATE_EXTENSION + " file " +
+                                                "beside it, so it is either complete or " +
+                                                "was renamed: " + file.getName());
+            }
+            if (!PartialManifest.isOrdered(file)) {
+                // Items listed before the last row may not have been written
+                throw new IllegalStateException("The manifest to resume was written " +
+                                                "unordered, so it cannot be resumed: " +
+                                                file.getName());
+            }
+            partial = PartialManifest.open(file);
+            String lastSpaceId = partial.getLastSpaceId();
+            if (null != lastSpaceId && !lastSpaceId.equals(spaceId)) {
+                throw new IllegalStateException("The manifest to resume lists space " +
+                                                lastSpaceId + ", not " + spaceId);
+            }
+            String lastContentId = partial.getLastContentId();
+            if (null == lastContentId) {
+                log.info("Resuming manifest from the beginning of space {}", spaceId);
+            } else {
+                log.info("Resuming manifest after content item: {}", lastContentId);
+            }
+            contentIds = new SpaceListing(store, spaceId, lastContentId,
+                                          SpaceListing.DEFAULT_PAGE_SIZE);
+        } else {
+            contentIds = store.getSpaceContents(spaceId);
+        }
+
+        if (binary) {
+            try (BinaryManifestWriter manifest = new BinaryManifestWriter(file, spaceId)) {
+                try {
+                    return writeRows(store, spaceId, contentIds, manifest);
+                } catch (ContentStoreException | IOException | RuntimeException e) {
+                    manifest.abort();
+                    throw e;
+                }
+            }
+        }
+
+        if (null == partial && !gzip) {
+            // Only uncompressed manifests can be resumed
+            PartialManifest.writeState(file, ordered);
+        }
+        long count;
+        try (ManifestWriter manifest = new ManifestWriter(file, gzip, null != partial)) {
+            if (null == partial || !partial.hasHeader()) {
+                manifest.writeHeader();
+            }
+            count = writeRows(store, spaceId, contentIds, manifest);
+        }
+        PartialManifest.deleteState(file);
+        return count;
+    }
+
+    /*
+     * Writes the manifest of each space, listing up to spaceThreads spaces at
+     * once. Each space is written to its own file unless a combined manifest
+     * is provided. A failure stops only the space in which it occurs.
+     */
+    private long writeSpaces(final ContentStore store,
+                             List<String> spaces,
+                             final ManifestWriter combinedManifest)
+        throws ContentStoreException, IOException {
+        int threads = Math.max(1, Math.min(spaceThreads, spaces.size()));
+        ExecutorService spaceWorkers = Executors.newFixedThreadPool(threads);
+        Map<String, Future<Long>> results = new LinkedHashMap<>();
+        for (final String spaceId : spaces) {
+            results.put(spaceId, spaceWorkers.submit(new Callable<Long>() {
+                @Override
+                public Long call() throws Exception {
+                    if (null == combinedManifest) {
+                        return writeManifest(store, spaceId, getOutputFile(spaceId + "-" +
+                                                                           MANIFEST_NAME));
+                    }
+                    return writeRows(store, spaceId, store.getSpaceContents(spaceId),
+                                     combinedManifest);
+                }
+            }));
+        }
+        spaceWorkers.shutdown();
+
+        long total = 0;
+        List<String> failedSpaces = new ArrayList<>();
+        Throwable failure = null;
+        try {
+            for (Map.Entry<String, Future<Long>> result : results.entrySet()) {
+                try {
+                    total += result.getValue().get();
+                } catch (ExecutionException e) {
+                    failure = e.getCause();
+                    failedSpaces.add(result.getKey());
+                    log.error("Manifest of space {} could not be completed due to: {}",
+                              result.getKey(), failure.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            spaceWorkers.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while writing manifests");
+        }
+
+        if (failedSpaces.isEmpty()) {
+            log.info("Wrote {} content items from {} spaces", total, spaces.size());
+            return total;
+        } else if (spaces.size() == 1) {
+            if (failure instanceof ContentStoreException) {
+                throw (ContentStoreException) failure;
+            } else if (failure instanceof IOException) {
+                throw (IOException) failure;
+            } else if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+        }
+        throw new RuntimeException("Manifests could not be completed for spaces: " +
+                                   failedSpaces, failure);
+    }
+
+    /*
+     * Retrieves the checksum of each listed content item and adds it to the
+     * manifest. A combined manifest is shared by several spaces, so rows are
+     * written to it one at a time.
+     */
+    private long writeRows(ContentStore store,
+                           String spaceId,
+                           Iterator<String> contentIds,
+                           final ChecksumFetcher.RowWriter manifest)
+        throws ContentStoreException, IOException {
+        ChecksumFetcher fetcher = new ChecksumFetcher(store, workers, ordered);
+        long count = fetcher.fetch(spaceId, contentIds, new ChecksumFetcher.RowWriter() {
+            @Override
+            public void writeRow(String spaceId, String contentId, String checksum)
+                throws IOException {
+                synchronized (manifest) {
+                    manifest.writeRow(spaceId, contentId, checksum);
+                }
+            }
+        });
+        log.info("Wrote {} content items from space {} to the manifest", count, spaceId);
+        return count;
+    }
+
+    private File getOutputFile(String name) {
+        if (binary) {
+            return new File(outputDir, name + "-" + timestamp + BinaryManifestWriter.EXTENSION);
+        }
+        String fileName = name + "-" + timestamp + (ordered ? "" : UNORDERED_SUFFIX) + ".tsv";
+        if (gzip) {
+            fileName += ManifestWriter.GZIP_EXTENSION;
+        }
+        return new File(outputDir, fileName);
     }
 
     /**
@@ -116,14 +418,31 @@ public class ProviderManifestTool {
      * @throws Exception
      */
     public static void main(String[] args) throws Exception {
+        for (String arg : args) {
+            if ("-d".equals(arg) || "--diff".equals(arg)) {
+                diff(args);
+                return;
+            } else if ("-l".equals(arg) || "--lookup".equals(arg)) {
+                lookup(args);
+                return;
+            }
+        }
+
         cmdOptions = new Options();
 
         Option spaceFileOption =
             new Option("s", "space", true,
-                       "the ID of the space to be listed");
-        spaceFileOption.setRequired(true);
+                       "the ID of the space to be listed, or a comma-separated " +
+                       "list of space IDs (required unless all-spaces is used)");
+        spaceFileOption.setRequired(false);
         cmdOptions.addOption(spaceFileOption);
 
+        Option allSpacesOption =
+            new Option("a", "all-spaces", false,
+                       "list all spaces in the store (optional)");
+        allSpacesOption.setRequired(false);
+        cmdOptions.addOption(allSpacesOption);
+
         Option hostOption =
             new Option("h", "host", true,
                        "the host address of the DuraCloud DuraStore application");
@@ -155,6 +474,64 @@ public class ProviderManifestTool {
         storeIdOption.setRequired(false);
         cmdOptions.addOption(storeIdOption);
 
+        Option workersOption =
+            new Option("w", "workers", true,
+                       "the number of content property requests to make at once " +
+                       "(optional, default value is " + DEFAULT_WORKERS + ")");
+        workersOption.setRequired(false);
+        cmdOptions.addOption(workersOption);
+
+        Option unorderedOption =
+            new Option("n", "unordered", false,
+                       "write content items as soon as their properties are retrieved, " +
+                       "rather than in listing order (optional)");
+        unorderedOption.setRequired(false);
+        cmdOptions.addOption(unorderedOption);
+
+        Option gzipOption =
+            new Option("z", "gzip", false,
+                       "gzip compress the manifest file (optional)");
+        gzipOption.setRequired(false);
+        cmdOptions.addOption(gzipOption);
+
+        Option binaryOption =
+            new Option("b", "binary", false,
+                       "write each manifest in a compact binary form which can be " +
+                       "searched with the lookup option. Cannot be used with the " +
+                       "gzip, resume or combined options (optional)");
+        binaryOption.setRequired(false);
+        cmdOptions.addOption(binaryOption);
+
+        Option resumeOption =
+            new Option("r", "resume", true,
+                       "the path to a manifest left by an interrupted run, which is to " +
+                       "be completed rather than creating a new manifest. Cannot be used " +
+                       "with the gzip or unordered options (optional)");
+        resumeOption.setRequired(false);
+        cmdOptions.addOption(resumeOption);
+
+        Option spaceThreadsOption =
+            new Option("m", "space-threads", true,
+                       "the number of spaces to list at once, each of which makes " +
+                       "requests using the given number of workers (optional, " +
+                       "default value is " + DEFAULT_SPACE_THREADS + ")");
+        spaceThreadsOption.setRequired(false);
+        cmdOptions.addOption(spaceThreadsOption);
+
+        Option combinedOption =
+            new Option("c", "combined", false,
+                       "write all spaces into a single manifest file rather than " +
+                       "one file per space (optional)");
+        combinedOption.setRequired(false);
+        cmdOptions.addOption(combinedOption);
+
+        Option outputDirOption =
+            new Option("O", "output-dir", true,
+                       "the directory in which to write manifests (optional, default " +
+                       "value is the current directory)");
+        outputDirOption.setRequired(false);
+        cmdOptions.addOption(outputDirOption);
+
         CommandLine cmd = null;
         try {
             CommandLineParser parser = new PosixParser();
@@ -168,18 +545,191 @@ public class ProviderManifestTool {
         String username = cmd.getOptionValue("u");
         String password = cmd.getOptionValue("p");
         String storeId = cmd.getOptionValue("i");
-        String spaceId = cmd.getOptionValue("s");
+
+        List<String> spaceIds = null;
+        if (cmd.hasOption("s") == cmd.hasOption("a")) {
+            log.info("Either a list of spaces or the all-spaces option must be provided");
+            usage();
+        } else if (cmd.hasOption("s")) {
+            spaceIds = new ArrayList<>();
+            for (String spaceId : cmd.getOptionValue("s").split(",")) {
+                if (!spaceId.trim().isEmpty()) {
+                    spaceIds.add(spaceId.trim());
+                }
+            }
+        }
 
         String port = cmd.getOptionValue("t");
         if (port == null || port.equals("")) {
             port = DEFAULT_PORT;
         }
 
+        int workers = parseCount(cmd, "w", DEFAULT_WORKERS);
+        int spaceThreads = parseCount(cmd, "m", DEFAULT_SPACE_THREADS);
+
         ProviderManifestTool tool =
-            new ProviderManifestTool(host, port, username, password, storeId, spaceId);
+            new ProviderManifestTool(host, port, username, password, storeId, spaceIds);
+        tool.setConcurrency(workers, !cmd.hasOption("n"));
+        tool.setSpaceThreads(spaceThreads);
+        tool.setGzip(cmd.hasOption("z"));
+        tool.setCombined(cmd.hasOption("c"));
+        if (cmd.hasOption("b")) {
+            if (cmd.hasOption("z") || cmd.hasOption("r") || cmd.hasOption("c")) {
+                log.info("A binary manifest cannot be used with the gzip, resume or " +
+                         "combined options");
+                usage();
+            }
+            tool.setBinary(true);
+        }
+        if (cmd.hasOption("O")) {
+            tool.setOutputDir(new File(cmd.getOptionValue("O")));
+        }
+        if (cmd.hasOption("r")) {
+            if (cmd.hasOption("z") || cmd.hasOption("n")) {
+                log.info("A manifest cannot be resumed when using the gzip or unordered options");
+                usage();
+            }
+            if (null == spaceIds || spaceIds.size() != 1 || cmd.hasOption("c")) {
+                log.info("Only the manifest of a single space can be resumed");
+                usage();
+            }
+            tool.setResumeFile(new File(cmd.getOptionValue("r")));
+        }
         tool.run();
     }
 
+    /*
+     * Manages the command line execution of a manifest comparison, which does
+     * not connect to DuraCloud
+     */
+    private static void diff(String[] args) throws IOException {
+        cmdOptions = new Options();
+
+        Option diffOption =
+            new Option("d", "diff", true,
+                       "compare two manifests: the source manifest listing the content " +
+                       "expected, such as a DuraCloud manifest, and the target manifest " +
+                       "listing the content found, such as a provider manifest");
+        diffOption.setArgs(2);
+        diffOption.setRequired(true);
+        cmdOptions.addOption(diffOption);
+
+        Option outputOption =
+            new Option("o", "output", true,
+                       "the file to which differences are written (optional, default " +
+                       "value is manifest-diff-[timestamp].tsv)");
+        outputOption.setRequired(false);
+        cmdOptions.addOption(outputOption);
+
+        Option sortMemoryOption =
+            new Option("m", "sort-memory", true,
+                       "the number of megabytes of manifest rows to sort in memory at " +
+                       "once (optional, default value is " +
+                       ManifestSorter.DEFAULT_MEMORY_LIMIT / (1024 * 1024) + ")");
+        sortMemoryOption.setRequired(false);
+        cmdOptions.addOption(sortMemoryOption);
+
+        Option tempDirOption =
+            new Option("T", "temp-dir", true,
+                       "the directory in which to hold sorted chunks of the manifests " +
+                       "(optional, default value is the system temporary directory)");
+        tempDirOption.setRequired(false);
+        cmdOptions.addOption(tempDirOption);
+
+        CommandLine cmd = null;
+        try {
+            CommandLineParser parser = new PosixParser();
+            cmd = parser.parse(cmdOptions, args);
+        } catch (ParseException e) {
+            log.info(e.getMessage());
+            usage();
+        }
+
+        String[] manifests = cmd.getOptionValues("d");
+        if (null == manifests || manifests.length != 2) {
+            log.info("Two manifests must be provided to compare");
+            usage();
+        }
+
+        String output = cmd.getOptionValue("o", "manifest-diff-" + DateUtil.nowPlain() + ".tsv");
+        long sortMemory = ManifestSorter.DEFAULT_MEMORY_LIMIT;
+        if (cmd.hasOption("m")) {
+            sortMemory = parseCount(cmd, "m", 0) * 1024L * 1024L;
+        }
+        String tempDir = cmd.getOptionValue("T");
+
+        ManifestSorter sorter =
+            new ManifestSorter(null == tempDir ? null : new File(tempDir), sortMemory);
+        File outputFile = new File(output);
+        log.info("Comparing manifest {} with {}, writing differences to {}",
+                 manifests[0], manifests[1], outputFile.getAbsolutePath());
+        new ManifestDiff(sorter).diff(new File(manifests[0]), new File(manifests[1]), outputFile);
+    }
+
+    /*
+     * Manages the command line execution of a checksum lookup in a binary
+     * manifest, which does not connect to DuraCloud
+     */
+    private static void lookup(String[] args) throws IOException {
+        cmdOptions = new Options();
+
+        Option lookupOption =
+            new Option("l", "lookup", true,
+                       "look up content items in a binary manifest: the manifest " +
+                       "followed by one or more content IDs");
+        lookupOption.setArgs(Option.UNLIMITED_VALUES);
+        lookupOption.setRequired(true);
+        cmdOptions.addOption(lookupOption);
+
+        CommandLine cmd = null;
+        try {
+            CommandLineParser parser = new PosixParser();
+            cmd = parser.parse(cmdOptions, args);
+        } catch (ParseException e) {
+            log.info(e.getMessage());
+            usage();
+        }
+
+        String[] values = cmd.getOptionValues("l");
+        if (null == values || values.length < 2) {
+            log.info("A binary manifest and at least one content ID must be provided");
+            usage();
+        }
+
+        BinaryManifest manifest = new BinaryManifest(new File(values[0]));
+        for (int i = 1; i < values.length; i++) {
+            String checksum = manifest.getChecksum(values[i]);
+            if (null == checksum) {
+                log.info("Content item {} is not listed in space {}",
+                         values[i], manifest.getSpaceId());
+            } else {
+                System.out.println(manifest.getSpaceId() + "\t" + values[i] + "\t" + checksum);
+            }
+        }
+    }
+
+    /*
+     * Reads a positive number from the command line, or returns the default
+     * value if the option is not present
+     */
+    private static int parseCount(CommandLine cmd, String option, int defaultValue) {
+        String value = cmd.getOptionValue(option);
+        if (null == value) {
+            return defaultValue;
+        }
+        int count = 0;
+        try {
+            count = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            count = 0;
+        }
+        if (count < 1) {
+            log.info("The value of option {} must be a positive number", option);
+            usage();
+        }
+        return count;
+    }
+
     /**
      * Called when the command line arguments are not valid. Prints information
      * about how the tool should be used and exits.
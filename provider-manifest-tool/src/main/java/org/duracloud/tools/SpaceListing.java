@@ -0,0 +1,84 @@
+package org.duracloud.tools;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.duracloud.client.ContentStore;
+import org.duracloud.error.ContentStoreException;
+
+/*
+ * Space Listing - Lists the content IDs of a space a page at a time, starting
+ *                 after a given content ID. The listing continues from the last
+ *                 content ID of each page, so it can also be started part way
+ *                 through a space.
+ */
+public class SpaceListing implements Iterator<String> {
+
+    public static final long DEFAULT_PAGE_SIZE = 1000;
+
+    private ContentStore store;
+    private String spaceId;
+    private long pageSize;
+    private String marker;
+
+    private List<String> page = Collections.emptyList();
+    private int pageIndex = 0;
+    private boolean done = false;
+
+    /**
+     * @param store    - DuraCloud storage client
+     * @param spaceId  - the space to list
+     * @param marker   - the content ID after which to begin listing, or null
+     *                   to list from the beginning
+     * @param pageSize - the number of content IDs to request at a time
+     */
+    public SpaceListing(ContentStore store, String spaceId, String marker, long pageSize) {
+        this.store = store;
+        this.spaceId = spaceId;
+        this.marker = marker;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (pageIndex < page.size()) {
+            return true;
+        }
+        if (!done) {
+            nextPage();
+        }
+        return pageIndex < page.size();
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.get(pageIndex++);
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    private void nextPage() {
+        try {
+            page = store.getSpace(spaceId, null, pageSize, marker).getContentIds();
+        } catch (ContentStoreException e) {
+            throw new RuntimeException("Unable to list space " + spaceId + " after " +
+                                       marker + " due to: " + e.getMessage(), e);
+        }
+        pageIndex = 0;
+        if (page.isEmpty()) {
+            done = true;
+        } else {
+            marker = page.get(page.size() - 1);
+            done = page.size() < pageSize;
+        }
+    }
+
+}
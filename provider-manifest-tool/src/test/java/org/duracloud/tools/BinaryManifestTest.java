@@ -0,0 +1,204 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Performs tests on the binary manifest writer and reader.
+ */
+public class BinaryManifestTest {
+
+    private static final String spaceId = "space-id";
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    private List<String> createContentIds(int count) {
+        List<String> contentIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            contentIds.add("collection/dir-" + (i % 20) + "/item-" + i + ".dat");
+        }
+        contentIds.add("top-level.dat");
+        contentIds.add("collection/été.dat");
+        Collections.sort(contentIds);
+        return contentIds;
+    }
+
+    private File writeManifest(List<String> contentIds) throws IOException {
+        File file = tempDir.newFile("manifest" + BinaryManifestWriter.EXTENSION);
+        try (BinaryManifestWriter writer = new BinaryManifestWriter(file, spaceId)) {
+            for (String contentId : contentIds) {
+                writer.writeRow(spaceId, contentId, FakeContentStore.checksum(spaceId, contentId));
+            }
+        }
+        return file;
+    }
+
+    private void verifyLookups(BinaryManifest manifest, List<String> contentIds) {
+        assertEquals(spaceId, manifest.getSpaceId());
+        assertEquals(contentIds.size(), manifest.getRowCount());
+        for (String contentId : contentIds) {
+            assertEquals(FakeContentStore.checksum(spaceId, contentId),
+                         manifest.getChecksum(contentId));
+        }
+        assertNull(manifest.getChecksum("collection/dir-0/missing.dat"));
+        assertNull(manifest.getChecksum(""));
+        assertNull(manifest.getChecksum("zzz"));
+    }
+
+    /**
+     * Verifies that every content item written can be looked up, and that
+     * the file is much smaller than the equivalent text manifest.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testLookup() throws Exception {
+        List<String> contentIds = createContentIds(5000);
+        File file = writeManifest(contentIds);
+
+        BinaryManifest manifest = new BinaryManifest(file);
+        verifyLookups(manifest, contentIds);
+
+        long textSize = ManifestWriter.HEADER.length() + 1;
+        for (String contentId : contentIds) {
+            textSize += spaceId.length() + contentId.length() + 32 + 3;
+        }
+        assertTrue("Binary manifest of " + file.length() + " bytes is not smaller than " +
+                   "half of the text manifest of " + textSize + " bytes",
+                   file.length() < textSize / 2);
+    }
+
+    /**
+     * Verifies that rows written out of order can still be looked up, and
+     * are read back in content ID order.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testUnorderedRows() throws Exception {
+        List<String> contentIds = createContentIds(2000);
+        List<String> shuffled = new ArrayList<>(contentIds);
+        Collections.shuffle(shuffled);
+        File file = writeManifest(shuffled);
+
+        BinaryManifest manifest = new BinaryManifest(file);
+        verifyLookups(manifest, contentIds);
+        for (int i = 0; i < contentIds.size(); i++) {
+            ManifestRow row = manifest.getRow(i);
+            assertEquals(spaceId, row.getSpaceId());
+            assertEquals(contentIds.get(i), row.getContentId());
+        }
+    }
+
+    /**
+     * Verifies that a dictionary larger than the overlap between mapped
+     * segments is read when it crosses from one segment into the next.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testDictionaryAcrossSegments() throws Exception {
+        int segmentSize = 64 * 1024;
+        List<String> contentIds = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            contentIds.add("collection/directory-with-a-long-name-" + i + "/item.dat");
+        }
+        Collections.sort(contentIds);
+        File file = writeManifest(contentIds);
+        assertTrue(file.length() > 3 * segmentSize);
+
+        BinaryManifest manifest = new BinaryManifest(file, segmentSize);
+        verifyLookups(manifest, contentIds);
+        for (int i = 0; i < contentIds.size(); i += 100) {
+            assertEquals(contentIds.get(i), manifest.getRow(i).getContentId());
+        }
+    }
+
+    /**
+     * Verifies that checksums which are not lower case MD5s are kept as
+     * they are.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testChecksumFormats() throws Exception {
+        File file = tempDir.newFile("manifest" + BinaryManifestWriter.EXTENSION);
+        try (BinaryManifestWriter writer = new BinaryManifestWriter(file, spaceId)) {
+            writer.writeRow(spaceId, "a", "0123456789abcdef0123456789abcdef");
+            writer.writeRow(spaceId, "b", "0123456789ABCDEF0123456789ABCDEF");
+            writer.writeRow(spaceId, "c", "not-a-checksum");
+            writer.writeRow(spaceId, "d", null);
+        }
+
+        BinaryManifest manifest = new BinaryManifest(file);
+        assertEquals("0123456789abcdef0123456789abcdef", manifest.getChecksum("a"));
+        assertEquals("0123456789ABCDEF0123456789ABCDEF", manifest.getChecksum("b"));
+        assertEquals("not-a-checksum", manifest.getChecksum("c"));
+        assertNull(manifest.getChecksum("d"));
+    }
+
+    /**
+     * Verifies that an empty manifest can be read, that rows of another
+     * space and files which are not binary manifests are rejected, and that
+     * a manifest which could not be completed is deleted.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testInvalid() throws Exception {
+        File file = writeManifest(Collections.<String>emptyList());
+        BinaryManifest manifest = new BinaryManifest(file);
+        assertEquals(0, manifest.getRowCount());
+        assertNull(manifest.getChecksum("a"));
+
+        File other = tempDir.newFile("other" + BinaryManifestWriter.EXTENSION);
+        try (BinaryManifestWriter writer = new BinaryManifestWriter(other, spaceId)) {
+            writer.writeRow("other-space", "a", null);
+            fail("Exception expected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("other-space"));
+        }
+        assertFalse(other.exists());
+
+        File aborted = tempDir.newFile("aborted" + BinaryManifestWriter.EXTENSION);
+        try (BinaryManifestWriter writer = new BinaryManifestWriter(aborted, spaceId)) {
+            writer.writeRow(spaceId, "a", null);
+            writer.abort();
+        }
+        assertFalse(aborted.exists());
+
+        File text = tempDir.newFile("manifest.tsv");
+        try (ManifestWriter writer = new ManifestWriter(text, false)) {
+            writer.writeHeader();
+            writer.writeRow(spaceId, "a", "0123456789abcdef0123456789abcdef");
+        }
+        try {
+            new BinaryManifest(text);
+            fail("Exception expected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("not a binary manifest"));
+        }
+    }
+
+}
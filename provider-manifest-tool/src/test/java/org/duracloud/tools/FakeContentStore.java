@@ -0,0 +1,198 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.tools;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.duracloud.client.ContentStore;
+import org.duracloud.domain.Space;
+import org.duracloud.error.NotFoundException;
+
+/**
+ * An in-memory stand-in for a DuraCloud content store. Listing a page of
+ * content IDs and retrieving the properties of a content item each wait for
+ * a configurable time, to simulate the round trip to DuraStore.
+ *
+ * Only the listing and content property calls are supported.
+ */
+public class FakeContentStore implements InvocationHandler {
+
+    private static final int PAGE_SIZE = 1000;
+
+    private Map<String, List<String>> spaces = new LinkedHashMap<>();
+    private long pageLatencyMillis;
+    private long propertiesLatencyMillis;
+
+    private AtomicLong listedItems = new AtomicLong();
+    private AtomicLong propertyRequests = new AtomicLong();
+    private AtomicInteger activePropertyRequests = new AtomicInteger();
+    private AtomicInteger maxActivePropertyRequests = new AtomicInteger();
+
+    public FakeContentStore(long pageLatencyMillis, long propertiesLatencyMillis) {
+        this.pageLatencyMillis = pageLatencyMillis;
+        this.propertiesLatencyMillis = propertiesLatencyMillis;
+    }
+
+    /**
+     * Adds a space, the content IDs of which are listed in sorted order.
+     */
+    public void addSpace(String spaceId, List<String> contentIds) {
+        List<String> sorted = new ArrayList<>(contentIds);
+        Collections.sort(sorted);
+        spaces.put(spaceId, sorted);
+    }
+
+    /**
+     * @return the checksum the fake store reports for a content item
+     */
+    public static String checksum(String spaceId, String contentId) {
+        return Integer.toHexString((spaceId + "/" + contentId).hashCode());
+    }
+
+    public ContentStore getContentStore() {
+        return (ContentStore) Proxy.newProxyInstance(ContentStore.class.getClassLoader(),
+                                                     new Class[] {ContentStore.class},
+                                                     this);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+        String name = method.getName();
+        if ("getSpaces".equals(name)) {
+            return new ArrayList<>(spaces.keySet());
+        } else if ("getSpaceContents".equals(name)) {
+            final String spaceId = (String) args[0];
+            getContentIds(spaceId);
+            return new Iterator<String>() {
+                private String marker = null;
+                private Iterator<String> page = Collections.<String>emptyList().iterator();
+                private boolean done = false;
+
+                @Override
+                public boolean hasNext() {
+                    if (!page.hasNext() && !done) {
+                        List<String> contentIds = getPage(spaceId, marker, PAGE_SIZE);
+                        done = contentIds.size() < PAGE_SIZE;
+                        if (!contentIds.isEmpty()) {
+                            marker = contentIds.get(contentIds.size() - 1);
+                        }
+                        page = contentIds.iterator();
+                    }
+                    return page.hasNext();
+                }
+
+                @Override
+                public String next() {
+                    hasNext();
+                    return page.next();
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        } else if ("getSpace".equals(name)) {
+            Space space = new Space();
+            space.setId((String) args[0]);
+            space.setContentIds(getPage((String) args[0], (String) args[3], (Long) args[2]));
+            return space;
+        } else if ("getContentProperties".equals(name)) {
+            String spaceId = (String) args[0];
+            String contentId = (String) args[1];
+            int active = activePropertyRequests.incrementAndGet();
+            int max = maxActivePropertyRequests.get();
+            while (active > max && !maxActivePropertyRequests.compareAndSet(max, active)) {
+                max = maxActivePropertyRequests.get();
+            }
+            try {
+                pause(propertiesLatencyMillis);
+            } finally {
+                activePropertyRequests.decrementAndGet();
+            }
+            propertyRequests.incrementAndGet();
+            if (Collections.binarySearch(getContentIds(spaceId), contentId) < 0) {
+                throw new NotFoundException("Content item " + contentId + " not found");
+            }
+            Map<String, String> properties = new HashMap<>();
+            properties.put(ContentStore.CONTENT_CHECKSUM, checksum(spaceId, contentId));
+            return properties;
+        } else if ("getStoreId".equals(name)) {
+            return "fake-store";
+        } else if ("toString".equals(name)) {
+            return "FakeContentStore";
+        } else if ("hashCode".equals(name)) {
+            return System.identityHashCode(proxy);
+        } else if ("equals".equals(name)) {
+            return proxy == args[0];
+        }
+        throw new UnsupportedOperationException(name);
+    }
+
+    public long getListedItems() {
+        return listedItems.get();
+    }
+
+    public long getPropertyRequests() {
+        return propertyRequests.get();
+    }
+
+    /**
+     * @return the largest number of property requests which were in
+     *         progress at the same time
+     */
+    public int getMaxActivePropertyRequests() {
+        return maxActivePropertyRequests.get();
+    }
+
+    private List<String> getContentIds(String spaceId) throws NotFoundException {
+        List<String> contentIds = spaces.get(spaceId);
+        if (null == contentIds) {
+            throw new NotFoundException("Space " + spaceId + " not found");
+        }
+        return contentIds;
+    }
+
+    /*
+     * Returns the content IDs which follow the marker, as DuraStore does
+     */
+    private List<String> getPage(String spaceId, String marker, long maxResults) {
+        List<String> contentIds = spaces.get(spaceId);
+        int start = 0;
+        if (null != marker) {
+            int position = Collections.binarySearch(contentIds, marker);
+            start = position >= 0 ? position + 1 : -(position + 1);
+        }
+        int end = (int) Math.min(contentIds.size(), start + maxResults);
+        pause(pageLatencyMillis);
+        listedItems.addAndGet(end - start);
+        return new ArrayList<>(contentIds.subList(start, end));
+    }
+
+    private void pause(long millis) {
+        if (millis > 0) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+}
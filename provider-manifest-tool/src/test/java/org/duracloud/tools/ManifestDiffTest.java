@@ -0,0 +1,96 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.tools;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Performs tests on the manifest diff.
+ */
+public class ManifestDiffTest {
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    private File writeManifest(String name, List<String> rows) throws Exception {
+        List<String> lines = new ArrayList<>(rows);
+        Collections.shuffle(lines);
+        lines.add(0, ManifestWriter.HEADER);
+        File file = tempDir.newFile(name);
+        Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    /**
+     * Compares manifests which are too large to sort in memory, given a
+     * very small memory limit, so that chunks are written and merged.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testDiff() throws Exception {
+        List<String> source = new ArrayList<>();
+        List<String> target = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            String row = "space-" + (i % 3) + "\titem-" + i + "\tmd5-" + i;
+            source.add(row);
+            if (i % 100 == 1) {
+                continue; // missing
+            } else if (i % 100 == 2) {
+                target.add("space-" + (i % 3) + "\titem-" + i + "\tMD5-CHANGED");
+            } else {
+                target.add(row);
+            }
+        }
+        target.add("space-9\textra-item\tmd5-extra");
+
+        File sourceFile = writeManifest("source.tsv", source);
+        File targetFile = writeManifest("target.tsv", target);
+        File output = new File(tempDir.getRoot(), "diff.tsv");
+        File sortDir = tempDir.newFolder("sort");
+
+        ManifestDiff diff = new ManifestDiff(new ManifestSorter(sortDir, 2000));
+        assertEquals(21, diff.diff(sourceFile, targetFile, output));
+        assertEquals(980, diff.getMatched());
+        assertEquals(10, diff.getMissing());
+        assertEquals(1, diff.getExtra());
+        assertEquals(10, diff.getMismatched());
+
+        List<String> lines = Files.readAllLines(output.toPath(), StandardCharsets.UTF_8);
+        assertEquals(ManifestDiff.HEADER, lines.get(0));
+        assertEquals(22, lines.size());
+        assertEquals("MISSING\tspace-0\titem-201\tmd5-201\t", findRow(lines, "item-201\t"));
+        assertEquals("MISMATCH\tspace-2\titem-302\tmd5-302\tMD5-CHANGED",
+                     findRow(lines, "item-302\t"));
+        assertEquals("EXTRA\tspace-9\textra-item\t\tmd5-extra", lines.get(lines.size() - 1));
+
+        // Chunk files are removed once the diff completes
+        assertEquals(0, sortDir.listFiles().length);
+    }
+
+    private String findRow(List<String> lines, String contains) {
+        for (String line : lines) {
+            if (line.contains(contains)) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+}
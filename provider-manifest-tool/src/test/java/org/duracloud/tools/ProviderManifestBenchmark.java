@@ -0,0 +1,104 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.tools;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the time taken to write the manifest of a space when each
+ * content property request takes a millisecond, with requests made one at
+ * a time and with requests made by several workers at once.
+ *
+ * Each invocation writes the manifest of every item in the space, so the
+ * rows written per second are itemCount divided by the reported time.
+ * This is not a unit test, run it with:
+ *
+ *   mvn test-compile
+ *   java -cp target/test-classes:target/classes:[test classpath]
+ *        org.duracloud.tools.ProviderManifestBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ProviderManifestBenchmark {
+
+    private static final String spaceId = "space-id";
+    private static final long PROPERTIES_LATENCY_MILLIS = 1;
+
+    @Param({"2000"})
+    private int itemCount;
+
+    @Param({"1", "16"})
+    private int workers;
+
+    private FakeContentStore fakeStore;
+    private ProviderManifestTool tool;
+    private File outputDir;
+
+    @Setup
+    public void setup() throws Exception {
+        List<String> contentIds = new ArrayList<>();
+        for (int i = 0; i < itemCount; i++) {
+            contentIds.add("dir-" + (i % 10) + "/item-" + i + ".dat");
+        }
+        fakeStore = new FakeContentStore(1, PROPERTIES_LATENCY_MILLIS);
+        fakeStore.addSpace(spaceId, contentIds);
+
+        outputDir = Files.createTempDirectory("provider-manifest-benchmark").toFile();
+        tool = new ProviderManifestTool("host", "port", "user", "pass", "store-id",
+                                        Collections.singletonList(spaceId));
+        tool.setOutputDir(outputDir);
+        tool.setConcurrency(workers, true);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        for (File file : outputDir.listFiles()) {
+            Files.delete(file.toPath());
+        }
+        Files.delete(outputDir.toPath());
+    }
+
+    @Benchmark
+    public long writeManifest() throws Exception {
+        File manifest = new File(outputDir, "manifest.tsv");
+        return tool.writeManifest(fakeStore.getContentStore(), spaceId, manifest);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+            .include(ProviderManifestBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+
+}
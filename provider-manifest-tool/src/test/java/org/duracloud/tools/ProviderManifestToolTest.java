@@ -0,0 +1,325 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Performs tests on the provider manifest tool, using a fake content store
+ * which simulates the latency of calls to DuraStore.
+ */
+public class ProviderManifestToolTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ProviderManifestToolTest.class);
+
+    private static final String spaceId = "space-id";
+
+    private static final int WORKER_TEST_ITEMS = 200;
+    private static final long PROPERTIES_LATENCY_MILLIS = 5;
+    private static final int THROUGHPUT_TEST_ITEMS = 800;
+    private static final int THROUGHPUT_WORKERS = 8;
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    private List<String> createContentIds(int count) {
+        List<String> contentIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            contentIds.add("dir-" + (i % 10) + "/item-" + i + ".dat");
+        }
+        return contentIds;
+    }
+
+    private ProviderManifestTool createTool(List<String> spaceIds) {
+        ProviderManifestTool tool =
+            new ProviderManifestTool("host", "port", "user", "pass", "store-id", spaceIds);
+        tool.setOutputDir(tempDir.getRoot());
+        return tool;
+    }
+
+    private List<String> expectedRows(String spaceId, List<String> contentIds) {
+        List<String> rows = new ArrayList<>();
+        List<String> sorted = new ArrayList<>(contentIds);
+        Collections.sort(sorted);
+        for (String contentId : sorted) {
+            rows.add(spaceId + "\t" + contentId + "\t" +
+                     FakeContentStore.checksum(spaceId, contentId));
+        }
+        return rows;
+    }
+
+    private List<String> readRows(File manifest) throws Exception {
+        List<String> lines = Files.readAllLines(manifest.toPath(), StandardCharsets.UTF_8);
+        assertEquals(ManifestWriter.HEADER, lines.get(0));
+        return lines.subList(1, lines.size());
+    }
+
+    /**
+     * Verifies that a manifest lists every content item with its checksum,
+     * in listing order, when properties are retrieved concurrently.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testOrderedManifest() throws Exception {
+        List<String> contentIds = createContentIds(2500);
+        FakeContentStore fakeStore = new FakeContentStore(0, 0);
+        fakeStore.addSpace(spaceId, contentIds);
+
+        ProviderManifestTool tool = createTool(Collections.singletonList(spaceId));
+        tool.setConcurrency(8, true);
+        File manifest = tempDir.newFile("manifest.tsv");
+        assertEquals(2500, tool.writeManifest(fakeStore.getContentStore(), spaceId, manifest));
+
+        assertEquals(expectedRows(spaceId, contentIds), readRows(manifest));
+    }
+
+    /**
+     * Verifies that an unordered manifest includes every content item, and
+     * that its name marks it as unordered.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testUnorderedManifest() throws Exception {
+        List<String> contentIds = createContentIds(2500);
+        FakeContentStore fakeStore = new FakeContentStore(0, 0);
+        fakeStore.addSpace(spaceId, contentIds);
+
+        ProviderManifestTool tool = createTool(Collections.singletonList(spaceId));
+        tool.setConcurrency(8, false);
+        File manifest = tempDir.newFile("manifest.tsv");
+        tool.writeManifest(fakeStore.getContentStore(), spaceId, manifest);
+
+        List<String> rows = new ArrayList<>(readRows(manifest));
+        Collections.sort(rows);
+        assertEquals(expectedRows(spaceId, contentIds), rows);
+
+        assertEquals(2500, tool.writeManifests(fakeStore.getContentStore()));
+        File[] manifests = tempDir.getRoot().listFiles();
+        assertEquals(2, manifests.length);
+        for (File file : manifests) {
+            assertTrue(file.getName().equals("manifest.tsv") ||
+                       file.getName().endsWith(ProviderManifestTool.UNORDERED_SUFFIX + ".tsv"));
+        }
+    }
+
+    /**
+     * Verifies that a manifest interrupted part way through a row is
+     * completed, that only the remaining items are retrieved, and that a
+     * manifest is only resumed when its state file shows it was written in
+     * listing order, whatever its name.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testResume() throws Exception {
+        List<String> contentIds = createContentIds(2500);
+        FakeContentStore fakeStore = new FakeContentStore(0, 0);
+        fakeStore.addSpace(spaceId, contentIds);
+
+        // The name does not decide how the manifest was written
+        File manifest = tempDir.newFile("manifest" + ProviderManifestTool.UNORDERED_SUFFIX +
+                                        ".tsv");
+        createTool(Collections.singletonList(spaceId))
+            .writeManifest(fakeStore.getContentStore(), spaceId, manifest);
+        byte[] complete = Files.readAllBytes(manifest.toPath());
+        // A complete manifest has no state file
+        assertFalse(PartialManifest.getStateFile(manifest).exists());
+
+        // Cut the manifest in the middle of the 1001st row, leaving the state
+        // file of an interrupted run
+        List<String> rows = expectedRows(spaceId, contentIds);
+        long cut = (ManifestWriter.HEADER + System.lineSeparator()).length() + 5;
+        for (String row : rows.subList(0, 1000)) {
+            cut += (row + System.lineSeparator()).getBytes(StandardCharsets.UTF_8).length;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(manifest, "rw")) {
+            file.setLength(cut);
+        }
+        byte[] cutBytes = Files.readAllBytes(manifest.toPath());
+        PartialManifest.writeState(manifest, true);
+
+        FakeContentStore resumeStore = new FakeContentStore(0, 0);
+        resumeStore.addSpace(spaceId, contentIds);
+        ProviderManifestTool tool = createTool(Collections.singletonList(spaceId));
+        tool.setConcurrency(4, true);
+        tool.setResumeFile(manifest);
+        assertEquals(1500, tool.writeManifests(resumeStore.getContentStore()));
+
+        assertTrue(Arrays.equals(complete, Files.readAllBytes(manifest.toPath())));
+        assertEquals(1500, resumeStore.getPropertyRequests());
+        assertFalse(PartialManifest.getStateFile(manifest).exists());
+
+        // A manifest written unordered may be missing items before its last
+        // row, even when its name does not say it is unordered
+        File unordered = tempDir.newFile("renamed.tsv");
+        Files.write(unordered.toPath(), cutBytes);
+        PartialManifest.writeState(unordered, false);
+        tool.setResumeFile(unordered);
+        try {
+            tool.writeManifests(resumeStore.getContentStore());
+            fail("Exception expected");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("unordered"));
+        }
+
+        // A manifest without a state file is refused
+        Files.delete(PartialManifest.getStateFile(unordered).toPath());
+        try {
+            tool.writeManifests(resumeStore.getContentStore());
+            fail("Exception expected");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains(PartialManifest.STATE_EXTENSION));
+        }
+        assertTrue(Arrays.equals(cutBytes, Files.readAllBytes(unordered.toPath())));
+    }
+
+    /**
+     * Verifies that several spaces are written to a single manifest.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCombinedManifest() throws Exception {
+        FakeContentStore fakeStore = new FakeContentStore(0, 0);
+        List<String> expected = new ArrayList<>();
+        for (String space : Arrays.asList("space-a", "space-b", "space-c")) {
+            List<String> contentIds = createContentIds(500);
+            fakeStore.addSpace(space, contentIds);
+            expected.addAll(expectedRows(space, contentIds));
+        }
+
+        ProviderManifestTool tool = createTool(null);
+        tool.setSpaceThreads(3);
+        tool.setConcurrency(4, true);
+        tool.setCombined(true);
+        assertEquals(1500, tool.writeManifests(fakeStore.getContentStore()));
+
+        File[] manifests = tempDir.getRoot().listFiles();
+        assertEquals(1, manifests.length);
+        List<String> rows = new ArrayList<>(readRows(manifests[0]));
+        Collections.sort(rows);
+        Collections.sort(expected);
+        assertEquals(expected, rows);
+    }
+
+    /**
+     * Verifies that a binary manifest is written for each space, in which
+     * every content item can be looked up.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testBinaryManifest() throws Exception {
+        FakeContentStore fakeStore = new FakeContentStore(0, 0);
+        List<String> contentIds = createContentIds(1000);
+        fakeStore.addSpace("space-a", contentIds);
+        fakeStore.addSpace("space-b", contentIds);
+
+        ProviderManifestTool tool = createTool(null);
+        tool.setSpaceThreads(2);
+        tool.setConcurrency(4, false);
+        tool.setBinary(true);
+        assertEquals(2000, tool.writeManifests(fakeStore.getContentStore()));
+
+        File[] manifests = tempDir.getRoot().listFiles();
+        assertEquals(2, manifests.length);
+        for (File file : manifests) {
+            assertTrue(file.getName().endsWith(BinaryManifestWriter.EXTENSION));
+            BinaryManifest manifest = new BinaryManifest(file);
+            assertEquals(1000, manifest.getRowCount());
+            for (String contentId : contentIds) {
+                assertEquals(FakeContentStore.checksum(manifest.getSpaceId(), contentId),
+                             manifest.getChecksum(contentId));
+            }
+        }
+    }
+
+    /**
+     * Verifies that property requests are made by as many workers at once as
+     * are configured, and no more.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testWorkerCount() throws Exception {
+        List<String> contentIds = createContentIds(WORKER_TEST_ITEMS);
+        for (int workers : new int[] {1, 4}) {
+            FakeContentStore fakeStore = new FakeContentStore(0, PROPERTIES_LATENCY_MILLIS);
+            fakeStore.addSpace(spaceId, contentIds);
+
+            ProviderManifestTool tool = createTool(Collections.singletonList(spaceId));
+            tool.setConcurrency(workers, true);
+            File manifest = tempDir.newFile("manifest-" + workers + ".tsv");
+            assertEquals(WORKER_TEST_ITEMS,
+                         tool.writeManifest(fakeStore.getContentStore(), spaceId, manifest));
+            assertEquals(expectedRows(spaceId, contentIds), readRows(manifest));
+
+            int maxActive = fakeStore.getMaxActivePropertyRequests();
+            assertTrue(workers + " workers made " + maxActive + " requests at once",
+                       maxActive <= workers);
+            if (workers > 1) {
+                assertTrue(workers + " workers made requests one at a time", maxActive > 1);
+            }
+        }
+    }
+
+    /**
+     * Measures the rate at which rows are written when each property request
+     * takes a fixed time, and verifies that it reaches at least half of the
+     * rate the workers allow, so that added per-row cost shows up in the
+     * build. ProviderManifestBenchmark gives more precise figures.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testThroughput() throws Exception {
+        List<String> contentIds = createContentIds(THROUGHPUT_TEST_ITEMS);
+        FakeContentStore fakeStore = new FakeContentStore(0, PROPERTIES_LATENCY_MILLIS);
+        fakeStore.addSpace(spaceId, contentIds);
+
+        ProviderManifestTool tool = createTool(Collections.singletonList(spaceId));
+        tool.setConcurrency(THROUGHPUT_WORKERS, true);
+        File manifest = tempDir.newFile("manifest.tsv");
+        long start = System.nanoTime();
+        assertEquals(THROUGHPUT_TEST_ITEMS,
+                     tool.writeManifest(fakeStore.getContentStore(), spaceId, manifest));
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        double itemsPerSecond = THROUGHPUT_TEST_ITEMS / seconds;
+        double theoreticalRate = THROUGHPUT_WORKERS * 1000.0 / PROPERTIES_LATENCY_MILLIS;
+        log.info("Wrote {} rows with {} workers at {} items/sec ({} ms per request, " +
+                 "theoretical rate {} items/sec)", THROUGHPUT_TEST_ITEMS, THROUGHPUT_WORKERS,
+                 Math.round(itemsPerSecond), PROPERTIES_LATENCY_MILLIS,
+                 Math.round(theoreticalRate));
+        assertTrue("Wrote " + Math.round(itemsPerSecond) + " items/sec, expected at least " +
+                   Math.round(theoreticalRate / 2),
+                   itemsPerSecond >= theoreticalRate / 2);
+        assertEquals(expectedRows(spaceId, contentIds), readRows(manifest));
+    }
+
+}
@@ -0,0 +1,208 @@
+package org.duracloud.tools;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.duracloud.common.util.EncryptionUtil;
+
+/*
+ * Account Config - The connection details of one DuraCloud account to be
+ *                  included in a snapshot report.
+ *
+ *                  Many accounts can be listed in a properties file:
+ *
+ *                  account-names=acct1,acct2
+ *                  account.acct1.host=acct1.duracloud.org
+ *                  account.acct1.port=443   (optional)
+ *                  account.acct1.username=<encrypted>
+ *                  account.acct1.password=<encrypted>
+ *                  account.acct2.host=...
+ */
+public class AccountConfig {
+
+    public static final String DEFAULT_PORT = "443";
+
+    protected static final String ACCOUNT_NAMES_PROP = "account-names";
+    protected static final String ACCOUNT_PREFIX = "account.";
+    protected static final String HOST_PROP = "host";
+    protected static final String PORT_PROP = "port";
+    protected static final String USERNAME_PROP = "username";
+    protected static final String PASSWORD_PROP = "password";
+
+    private String name;
+    private String host;
+    private String port;
+    private String username;
+    private String password;
+
+    public AccountConfig(String name,
+                         String host,
+                         String port,
+                         String username,
+                         String password) {
+        this.name = name;
+        this.host = host;
+        this.port = port;
+        this.username = username;
+        this.password = password;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public String getPort() {
+        return port;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    /**
+     * Reads the accounts listed in a properties file, decrypting their
+     * credentials.
+     *
+     * @param configFile - the properties file
+     * @param enc        - used to decrypt credentials
+     * @return the accounts, in the order in which they are named
+     * @throws IOException
+     */
+    public static List<AccountConfig> load(File configFile, EncryptionUtil enc)
+        throws IOException {
+        if (!configFile.exists()) {
+            throw new FileNotFoundException("No file exists at path: " + configFile.getPath());
+        }
+        return load(readProps(configFile), enc);
+    }
+
+    /**
+     * Reads the accounts listed in a set of properties, decrypting their
+     * credentials.
+     *
+     * @param props - the properties
+     * @param enc   - used to decrypt credentials
+     * @return the accounts, in the order in which they are named
+     */
+    public static List<AccountConfig> load(Properties props, EncryptionUtil enc) {
+        List<String> names = getNames(props);
+        if (names.isEmpty()) {
+            throw new RuntimeException("Account config must list accounts in the " +
+                                       ACCOUNT_NAMES_PROP + " property.");
+        }
+
+        List<AccountConfig> accounts = new ArrayList<>();
+        for (String name : names) {
+            String host = getProperty(props, name, HOST_PROP, true);
+            String port = getProperty(props, name, PORT_PROP, false);
+            String username = getProperty(props, name, USERNAME_PROP, true);
+            String password = getProperty(props, name, PASSWORD_PROP, true);
+            accounts.add(new AccountConfig(name, host, null == port ? DEFAULT_PORT : port,
+                                           enc.decrypt(username), enc.decrypt(password)));
+        }
+        return accounts;
+    }
+
+    /**
+     * Adds this account to a set of properties, encrypting its credentials.
+     * An account of the same name already in the properties is replaced.
+     *
+     * @param props - the properties
+     * @param enc   - used to encrypt credentials
+     */
+    public void addTo(Properties props, EncryptionUtil enc) {
+        List<String> names = getNames(props);
+        if (!names.contains(name)) {
+            names.add(name);
+        }
+        StringBuilder nameList = new StringBuilder();
+        for (String accountName : names) {
+            nameList.append(nameList.length() == 0 ? "" : ",").append(accountName);
+        }
+        props.setProperty(ACCOUNT_NAMES_PROP, nameList.toString());
+
+        props.setProperty(key(name, HOST_PROP), host);
+        props.setProperty(key(name, PORT_PROP), port);
+        props.setProperty(key(name, USERNAME_PROP), enc.encrypt(username));
+        props.setProperty(key(name, PASSWORD_PROP), enc.encrypt(password));
+    }
+
+    /**
+     * Reads account config properties from a file.
+     *
+     * @param configFile - the properties file
+     * @return the properties
+     * @throws IOException
+     */
+    public static Properties readProps(File configFile) throws IOException {
+        Properties props = new Properties();
+        try (InputStream input = new FileInputStream(configFile)) {
+            props.load(input);
+        }
+        return props;
+    }
+
+    /**
+     * Writes account config properties to a file.
+     *
+     * @param configFile - the properties file
+     * @param props      - the properties
+     * @throws IOException
+     */
+    public static void writeProps(File configFile, Properties props) throws IOException {
+        try (OutputStream output = new FileOutputStream(configFile)) {
+            props.store(output, null);
+        }
+    }
+
+    private static List<String> getNames(Properties props) {
+        List<String> names = new ArrayList<>();
+        String nameList = props.getProperty(ACCOUNT_NAMES_PROP);
+        if (null != nameList) {
+            for (String name : nameList.split(",")) {
+                name = name.trim();
+                if (!name.isEmpty()) {
+                    names.add(name);
+                }
+            }
+        }
+        return names;
+    }
+
+    private static String key(String name, String property) {
+        return ACCOUNT_PREFIX + name + "." + property;
+    }
+
+    private static String getProperty(Properties props,
+                                      String name,
+                                      String property,
+                                      boolean required) {
+        String key = key(name, property);
+        String value = props.getProperty(key);
+        if (null == value || value.trim().isEmpty()) {
+            if (required) {
+                throw new RuntimeException("Account config is incomplete, " + key +
+                                           " is missing.");
+            }
+            return null;
+        }
+        return value;
+    }
+
+}
@@ -0,0 +1,104 @@
+package org.duracloud.tools;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.duracloud.snapshot.dto.task.GetSnapshotTaskResult;
+
+/*
+ * Account Report - The snapshots found in one account, or the reason they
+ *                  could not be retrieved.
+ */
+public class AccountReport {
+
+    private AccountConfig account;
+    private List<GetSnapshotTaskResult> snapshots;
+    private long[] sizes;
+    private long totalBytes;
+    private LatencyStats latency;
+    private String error;
+    private int cachedCount = 0;
+
+    /**
+     * Creates the report of an account whose snapshots were retrieved.
+     *
+     * @param account   - the account
+     * @param snapshots - the details of each snapshot
+     * @param latency   - the time taken by the calls which retrieved them
+     */
+    public AccountReport(AccountConfig account,
+                         List<GetSnapshotTaskResult> snapshots,
+                         LatencyStats latency) {
+        this.account = account;
+        this.snapshots = snapshots;
+        this.latency = latency;
+
+        this.sizes = new long[snapshots.size()];
+        for (int i = 0; i < sizes.length; i++) {
+            Long size = snapshots.get(i).getTotalSizeInBytes();
+            sizes[i] = (null == size) ? 0 : size;
+            totalBytes += sizes[i];
+        }
+    }
+
+    /**
+     * Creates the report of an account whose snapshots could not be
+     * retrieved.
+     *
+     * @param account - the account
+     * @param error   - the reason for the failure
+     */
+    public AccountReport(AccountConfig account, String error) {
+        this(account, Collections.<GetSnapshotTaskResult>emptyList(), new LatencyStats());
+        this.error = error;
+    }
+
+    public AccountConfig getAccount() {
+        return account;
+    }
+
+    public List<GetSnapshotTaskResult> getSnapshots() {
+        return snapshots;
+    }
+
+    /**
+     * @return the size in bytes of each snapshot, in the same order as the
+     *         snapshots, with unknown sizes as 0
+     */
+    public long[] getSizes() {
+        return sizes;
+    }
+
+    public int getSnapshotCount() {
+        return sizes.length;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public LatencyStats getLatency() {
+        return latency;
+    }
+
+    /**
+     * @param cachedCount - the number of snapshots whose details were read
+     *                      from the cache rather than retrieved
+     */
+    public void setCachedCount(int cachedCount) {
+        this.cachedCount = cachedCount;
+    }
+
+    public int getCachedCount() {
+        return cachedCount;
+    }
+
+    /**
+     * @return the reason the snapshots could not be retrieved, or null if
+     *         they were
+     */
+    public String getError() {
+        return error;
+    }
+
+}
@@ -0,0 +1,68 @@
+package org.duracloud.tools;
+
+import java.util.Arrays;
+
+/*
+ * Latency Stats - Collects the durations of calls made from any number of
+ *                 threads, and summarizes them in milliseconds.
+ */
+public class LatencyStats {
+
+    private long[] samples = new long[64];
+    private int count = 0;
+    private long total = 0;
+
+    /**
+     * @param nanos - the duration of one call, in nanoseconds
+     */
+    public synchronized void record(long nanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+        total += nanos;
+    }
+
+    public synchronized int getCount() {
+        return count;
+    }
+
+    public synchronized double getMeanMillis() {
+        return count == 0 ? 0 : toMillis(total) / count;
+    }
+
+    public synchronized double getMaxMillis() {
+        long max = 0;
+        for (int i = 0; i < count; i++) {
+            max = Math.max(max, samples[i]);
+        }
+        return toMillis(max);
+    }
+
+    /**
+     * @param percentile - from 0 to 100
+     * @return the duration which the given percentage of calls did not
+     *         exceed, using the nearest-rank method
+     */
+    public synchronized double getPercentileMillis(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100 * count);
+        return toMillis(sorted[Math.max(0, Math.min(count, rank) - 1)]);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d calls, mean %.1f ms, p50 %.1f ms, p95 %.1f ms, max %.1f ms",
+                             count, getMeanMillis(), getPercentileMillis(50),
+                             getPercentileMillis(95), getMaxMillis());
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1000000.0;
+    }
+
+}
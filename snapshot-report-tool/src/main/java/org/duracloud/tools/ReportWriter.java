@@ -0,0 +1,215 @@
+package org.duracloud.tools;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Locale;
+
+import org.duracloud.snapshot.dto.task.GetSnapshotTaskResult;
+
+/*
+ * Report Writer - Prints the snapshot reports of one or more accounts as
+ *                 readable text, or as CSV or JSON for other tools to read.
+ *
+ *                 The CSV report has a row of totals per account followed by
+ *                 a row of totals across all accounts. The JSON report has
+ *                 the totals of each account along with its snapshots.
+ */
+public class ReportWriter {
+
+    public enum Format {
+        TEXT, CSV, JSON
+    }
+
+    public static final String CSV_HEADER =
+        "account,host,snapshots,total-bytes,total-gb,mean-request-ms,error";
+    public static final String TOTAL_ROW = "TOTAL";
+
+    private static final double BYTES_PER_GB = 1000000000;
+
+    private Format format;
+
+    public ReportWriter(Format format) {
+        this.format = format;
+    }
+
+    /**
+     * Prints the reports of all accounts.
+     *
+     * @param reports - the account reports
+     * @param out     - the stream to which the report is printed
+     */
+    public void write(List<AccountReport> reports, PrintStream out) {
+        switch (format) {
+            case CSV:
+                writeCsv(reports, out);
+                break;
+            case JSON:
+                writeJson(reports, out);
+                break;
+            default:
+                writeText(reports, out);
+        }
+        out.flush();
+    }
+
+    private void writeText(List<AccountReport> reports, PrintStream out) {
+        for (AccountReport report : reports) {
+            out.println("Snapshots for: " + report.getAccount().getHost());
+            if (null != report.getError()) {
+                out.println("  Snapshots could not be retrieved due to: " + report.getError());
+                continue;
+            }
+            out.println("  Number of snapshots: " + report.getSnapshotCount());
+            out.println("  Total size of all snapshots: " +
+                        formatGb(report.getTotalBytes()) + " GB");
+            out.println("  Individual snapshot size (in GB):");
+            for (long size : report.getSizes()) {
+                out.println(formatGb(size));
+            }
+            if (report.getCachedCount() > 0) {
+                out.println("  Snapshot details read from cache: " + report.getCachedCount());
+            }
+            out.println("  Snapshot detail requests: " + report.getLatency());
+        }
+
+        if (reports.size() > 1) {
+            out.println("All accounts:");
+            out.println("  Number of accounts: " + reports.size());
+            out.println("  Number of snapshots: " + totalCount(reports));
+            out.println("  Total size of all snapshots: " +
+                        formatGb(totalBytes(reports)) + " GB");
+        }
+    }
+
+    private void writeCsv(List<AccountReport> reports, PrintStream out) {
+        out.println(CSV_HEADER);
+        for (AccountReport report : reports) {
+            out.println(csv(report.getAccount().getName()) + "," +
+                        csv(report.getAccount().getHost()) + "," +
+                        report.getSnapshotCount() + "," +
+                        report.getTotalBytes() + "," +
+                        formatGb(report.getTotalBytes()) + "," +
+                        formatMillis(report.getLatency().getMeanMillis()) + "," +
+                        csv(report.getError()));
+        }
+        long totalBytes = totalBytes(reports);
+        out.println(TOTAL_ROW + ",," + totalCount(reports) + "," + totalBytes + "," +
+                    formatGb(totalBytes) + ",,");
+    }
+
+    private void writeJson(List<AccountReport> reports, PrintStream out) {
+        out.println("{");
+        out.println("  \"accountCount\": " + reports.size() + ",");
+        out.println("  \"snapshotCount\": " + totalCount(reports) + ",");
+        out.println("  \"totalBytes\": " + totalBytes(reports) + ",");
+        out.println("  \"accounts\": [");
+        for (int a = 0; a < reports.size(); a++) {
+            AccountReport report = reports.get(a);
+            out.println("    {");
+            out.println("      \"account\": " + json(report.getAccount().getName()) + ",");
+            out.println("      \"host\": " + json(report.getAccount().getHost()) + ",");
+            if (null != report.getError()) {
+                out.println("      \"error\": " + json(report.getError()) + ",");
+            }
+            out.println("      \"snapshotCount\": " + report.getSnapshotCount() + ",");
+            out.println("      \"totalBytes\": " + report.getTotalBytes() + ",");
+            out.println("      \"meanRequestMillis\": " +
+                        formatMillis(report.getLatency().getMeanMillis()) + ",");
+            out.println("      \"snapshots\": [");
+            List<GetSnapshotTaskResult> snapshots = report.getSnapshots();
+            long[] sizes = report.getSizes();
+            for (int i = 0; i < snapshots.size(); i++) {
+                GetSnapshotTaskResult snapshot = snapshots.get(i);
+                out.println("        {\"snapshotId\": " + json(snapshot.getSnapshotId()) +
+                            ", \"status\": " + json(String.valueOf(snapshot.getStatus())) +
+                            ", \"totalBytes\": " + sizes[i] + "}" +
+                            (i < snapshots.size() - 1 ? "," : ""));
+            }
+            out.println("      ]");
+            out.println("    }" + (a < reports.size() - 1 ? "," : ""));
+        }
+        out.println("  ]");
+        out.println("}");
+    }
+
+    private static int totalCount(List<AccountReport> reports) {
+        int count = 0;
+        for (AccountReport report : reports) {
+            count += report.getSnapshotCount();
+        }
+        return count;
+    }
+
+    private static long totalBytes(List<AccountReport> reports) {
+        long total = 0;
+        for (AccountReport report : reports) {
+            total += report.getTotalBytes();
+        }
+        return total;
+    }
+
+    /*
+     * Numbers are always formatted with a '.' decimal separator, so that CSV
+     * and JSON reports can be read in any locale
+     */
+    protected static String formatGb(long bytes) {
+        return String.format(Locale.ROOT, "%.02f", bytes / BYTES_PER_GB);
+    }
+
+    private static String formatMillis(double millis) {
+        return String.format(Locale.ROOT, "%.1f", millis);
+    }
+
+    /*
+     * Quotes a CSV value when it contains a delimiter, quote or line break
+     */
+    protected static String csv(String value) {
+        if (null == value) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") ||
+            value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    /*
+     * Quotes and escapes a JSON string value
+     */
+    protected static String json(String value) {
+        if (null == value) {
+            return "null";
+        }
+        StringBuilder quoted = new StringBuilder(value.length() + 2);
+        quoted.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    quoted.append("\\\"");
+                    break;
+                case '\\':
+                    quoted.append("\\\\");
+                    break;
+                case '\n':
+                    quoted.append("\\n");
+                    break;
+                case '\r':
+                    quoted.append("\\r");
+                    break;
+                case '\t':
+                    quoted.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+}
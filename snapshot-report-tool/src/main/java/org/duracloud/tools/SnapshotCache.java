@@ -0,0 +1,204 @@
+package org.duracloud.tools;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.duracloud.snapshot.dto.SnapshotStatus;
+import org.duracloud.snapshot.dto.task.GetSnapshotTaskResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Snapshot Cache - Holds the details of completed snapshots on disk, so that
+ *                  later reports need only retrieve the details of snapshots
+ *                  which are new or still in progress. A completed snapshot
+ *                  does not change, so its cached details never go stale.
+ *
+ *                  The cache file has a row per snapshot, keyed by snapshot
+ *                  ID. It is replaced in a single step when saved, so an
+ *                  interrupted run never leaves a partial file behind.
+ */
+public class SnapshotCache {
+
+    private static Logger log = LoggerFactory.getLogger(SnapshotCache.class);
+
+    protected static final String HEADER =
+        "snapshot-id\tstatus\ttotal-bytes\tcontent-items\tsnapshot-date\tsource-space-id";
+
+    private File file;
+    private Map<String, GetSnapshotTaskResult> snapshots = new LinkedHashMap<>();
+    private boolean modified = false;
+
+    private SnapshotCache(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Reads a cache file. A missing file is an empty cache, and rows which
+     * cannot be read are left out, so their snapshots are retrieved again.
+     *
+     * @param file - the cache file
+     * @return the cache
+     * @throws IOException
+     */
+    public static SnapshotCache load(File file) throws IOException {
+        SnapshotCache cache = new SnapshotCache(file);
+        if (!file.exists()) {
+            return cache;
+        }
+
+        try (BufferedReader reader =
+                 Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.equals(HEADER)) {
+                    continue;
+                }
+                GetSnapshotTaskResult snapshot = parse(line);
+                if (null == snapshot) {
+                    log.warn("Ignoring unreadable row in snapshot cache {}: {}",
+                             file.getPath(), line);
+                    cache.modified = true;
+                } else {
+                    cache.snapshots.put(snapshot.getSnapshotId(), snapshot);
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * @param snapshotId - the snapshot
+     * @return the cached details of the snapshot, or null if not cached
+     */
+    public GetSnapshotTaskResult get(String snapshotId) {
+        return snapshots.get(snapshotId);
+    }
+
+    /**
+     * Adds the details of a snapshot to the cache, if the snapshot is
+     * complete.
+     *
+     * @param snapshot - the snapshot details
+     * @return true if the snapshot was added
+     */
+    public boolean put(GetSnapshotTaskResult snapshot) {
+        if (!isComplete(snapshot)) {
+            return false;
+        }
+        snapshots.put(snapshot.getSnapshotId(), snapshot);
+        modified = true;
+        return true;
+    }
+
+    /**
+     * Removes any snapshots which are no longer listed.
+     *
+     * @param snapshotIds - the IDs of all snapshots currently listed
+     */
+    public void retainAll(Collection<String> snapshotIds) {
+        Set<String> listed = new HashSet<>(snapshotIds);
+        if (snapshots.keySet().retainAll(listed)) {
+            modified = true;
+        }
+    }
+
+    public int size() {
+        return snapshots.size();
+    }
+
+    /**
+     * Writes the cache, if it has changed, to a temporary file which then
+     * replaces the cache file.
+     *
+     * @throws IOException
+     */
+    public void save() throws IOException {
+        if (!modified) {
+            return;
+        }
+
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Unable to create cache directory: " + dir.getPath());
+        }
+        File tempFile = File.createTempFile(file.getName(), ".tmp", dir);
+        try {
+            try (BufferedWriter writer =
+                     Files.newBufferedWriter(tempFile.toPath(), StandardCharsets.UTF_8)) {
+                writer.write(HEADER);
+                writer.newLine();
+                for (GetSnapshotTaskResult snapshot : snapshots.values()) {
+                    writer.write(format(snapshot));
+                    writer.newLine();
+                }
+            }
+            try {
+                Files.move(tempFile.toPath(), file.toPath(),
+                           StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            modified = false;
+        } finally {
+            Files.deleteIfExists(tempFile.toPath());
+        }
+    }
+
+    protected static boolean isComplete(GetSnapshotTaskResult snapshot) {
+        return SnapshotStatus.SNAPSHOT_COMPLETE.equals(snapshot.getStatus()) &&
+               null != snapshot.getTotalSizeInBytes();
+    }
+
+    private static String format(GetSnapshotTaskResult snapshot) {
+        Date date = snapshot.getSnapshotDate();
+        return snapshot.getSnapshotId() + "\t" +
+               snapshot.getStatus() + "\t" +
+               snapshot.getTotalSizeInBytes() + "\t" +
+               valueOf(snapshot.getContentItemCount()) + "\t" +
+               (null == date ? "" : String.valueOf(date.getTime())) + "\t" +
+               valueOf(snapshot.getSourceSpaceId());
+    }
+
+    private static GetSnapshotTaskResult parse(String line) {
+        String[] fields = line.split("\t", -1);
+        if (fields.length != 6 || fields[0].isEmpty()) {
+            return null;
+        }
+        try {
+            GetSnapshotTaskResult snapshot = new GetSnapshotTaskResult();
+            snapshot.setSnapshotId(fields[0]);
+            snapshot.setStatus(SnapshotStatus.valueOf(fields[1]));
+            snapshot.setTotalSizeInBytes(Long.valueOf(fields[2]));
+            if (!fields[3].isEmpty()) {
+                snapshot.setContentItemCount(Long.valueOf(fields[3]));
+            }
+            if (!fields[4].isEmpty()) {
+                snapshot.setSnapshotDate(new Date(Long.parseLong(fields[4])));
+            }
+            if (!fields[5].isEmpty()) {
+                snapshot.setSourceSpaceId(fields[5]);
+            }
+            return isComplete(snapshot) ? snapshot : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String valueOf(Object value) {
+        return null == value ? "" : String.valueOf(value);
+    }
+
+}
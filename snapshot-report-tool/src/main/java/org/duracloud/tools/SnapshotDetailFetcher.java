@@ -0,0 +1,98 @@
+package org.duracloud.tools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.duracloud.client.task.SnapshotTaskClient;
+import org.duracloud.error.ContentStoreException;
+import org.duracloud.snapshot.dto.SnapshotSummary;
+import org.duracloud.snapshot.dto.task.GetSnapshotTaskResult;
+
+/*
+ * Snapshot Detail Fetcher - Retrieves the details of many snapshots, making a
+ *                           bounded number of getSnapshot calls at once and
+ *                           recording the time taken by each call.
+ */
+public class SnapshotDetailFetcher {
+
+    private SnapshotTaskClient taskClient;
+    private int threads;
+    private LatencyStats latency = new LatencyStats();
+
+    /**
+     * @param taskClient - the client used to retrieve snapshot details
+     * @param threads    - the number of getSnapshot calls to make at once
+     */
+    public SnapshotDetailFetcher(SnapshotTaskClient taskClient, int threads) {
+        this.taskClient = taskClient;
+        this.threads = threads;
+    }
+
+    /**
+     * Retrieves the details of each snapshot.
+     *
+     * @param snapshots - the snapshots
+     * @return the details of each snapshot, in the same order as the summaries
+     * @throws ContentStoreException if any call fails, in which case the
+     *                               remaining calls are cancelled
+     */
+    public List<GetSnapshotTaskResult> fetch(List<SnapshotSummary> snapshots)
+        throws ContentStoreException {
+        List<GetSnapshotTaskResult> results = new ArrayList<>(snapshots.size());
+        if (snapshots.isEmpty()) {
+            return results;
+        }
+
+        int poolSize = Math.max(1, Math.min(threads, snapshots.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize);
+        try {
+            List<Future<GetSnapshotTaskResult>> futures = new ArrayList<>(snapshots.size());
+            for (SnapshotSummary summary : snapshots) {
+                final String snapshotId = summary.getSnapshotId();
+                futures.add(executor.submit(new Callable<GetSnapshotTaskResult>() {
+                    @Override
+                    public GetSnapshotTaskResult call() throws ContentStoreException {
+                        long start = System.nanoTime();
+                        try {
+                            return taskClient.getSnapshot(snapshotId);
+                        } finally {
+                            latency.record(System.nanoTime() - start);
+                        }
+                    }
+                }));
+            }
+
+            for (Future<GetSnapshotTaskResult> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ContentStoreException) {
+                throw (ContentStoreException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException("Unable to retrieve snapshot details due to: " +
+                                       cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while retrieving snapshot details");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the time taken by each getSnapshot call made so far
+     */
+    public LatencyStats getLatency() {
+        return latency;
+    }
+
+}
@@ -1,8 +1,21 @@
 package org.duracloud.tools;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.LinkedList;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -17,6 +30,7 @@ import org.duracloud.client.ContentStoreManagerImpl;
 import org.duracloud.client.task.SnapshotTaskClient;
 import org.duracloud.client.task.SnapshotTaskClientImpl;
 import org.duracloud.common.model.Credential;
+import org.duracloud.common.util.EncryptionUtil;
 import org.duracloud.error.ContentStoreException;
 import org.duracloud.snapshot.dto.SnapshotSummary;
 import org.duracloud.snapshot.dto.task.GetSnapshotListTaskResult;
@@ -25,7 +39,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /*
- * SnapshotReportTool - Provides simple report on an account's snapshots
+ * SnapshotReportTool - Provides simple report on the snapshots of one or more
+ *                      accounts
  *
  * @author: Bill Branan
  * Date: Oct 29, 2018
@@ -33,58 +48,270 @@ import org.slf4j.LoggerFactory;
 public class SnapshotReportTool {
 
     private final Logger log = LoggerFactory.getLogger(SnapshotReportTool.class);
+    private static final int DEFAULT_THREADS = 8;
+    private static final int DEFAULT_ACCOUNT_THREADS = 4;
 
-    private String duracloudHost;
-    private String duracloudUsername;
-    private String duracloudPassword;
+    private List<AccountConfig> accounts;
+    private int threads = DEFAULT_THREADS;
+    private int accountThreads = DEFAULT_ACCOUNT_THREADS;
+    private ReportWriter.Format format = ReportWriter.Format.TEXT;
+    private File outputFile;
+    private File cacheDir;
+    private boolean breakdown = false;
+    private int topCount = SnapshotStats.DEFAULT_TOP_COUNT;
 
     private static Options cmdOptions;
 
     public SnapshotReportTool(String duracloudHost,
                               String duracloudUsername,
                               String duracloudPassword) {
-        this.duracloudHost = duracloudHost;
-        this.duracloudUsername = duracloudUsername;
-        this.duracloudPassword = duracloudPassword;
+        this(Collections.singletonList(new AccountConfig(duracloudHost,
+                                                         duracloudHost,
+                                                         AccountConfig.DEFAULT_PORT,
+                                                         duracloudUsername,
+                                                         duracloudPassword)));
+    }
+
+    /**
+     * @param accounts - the accounts to include in the report
+     */
+    public SnapshotReportTool(List<AccountConfig> accounts) {
+        this.accounts = accounts;
+    }
+
+    /**
+     * @param threads - the number of snapshots for which to retrieve details
+     *                  at once, in each account
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * @param accountThreads - the number of accounts to report on at once
+     */
+    public void setAccountThreads(int accountThreads) {
+        this.accountThreads = accountThreads;
     }
 
     /**
-     * Kicks off the execution of the tool
+     * @param format - the format of the report
+     */
+    public void setFormat(ReportWriter.Format format) {
+        this.format = format;
+    }
+
+    /**
+     * @param outputFile - the file to which the report is written, or null to
+     *                     print the report
+     */
+    public void setOutputFile(File outputFile) {
+        this.outputFile = outputFile;
+    }
+
+    /**
+     * @param cacheDir - the directory in which the details of completed
+     *                   snapshots are cached between runs, or null to
+     *                   retrieve the details of every snapshot
+     */
+    public void setCacheDir(File cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * @param breakdown - true to report the breakdown of snapshot sizes by
+     *                    month, percentile and largest snapshots, rather than
+     *                    the size of every snapshot
+     * @param topCount  - the number of largest snapshots in the breakdown
+     */
+    public void setBreakdown(boolean breakdown, int topCount) {
+        this.breakdown = breakdown;
+        this.topCount = topCount;
+    }
+
+    /**
+     * Kicks off the execution of the tool. The report is written even when
+     * some accounts cannot be reached, then the run fails if any of them
+     * could not be reported on.
      *
      * @throws IOException
      */
-    public void run() throws ContentStoreException {
-        ContentStoreManager storeManager = new ContentStoreManagerImpl(duracloudHost, "443");
-        Credential credential = new Credential(duracloudUsername, duracloudPassword);
+    public void run() throws IOException {
+        long start = System.currentTimeMillis();
+        List<AccountReport> reports = collectReports();
+        log.info("Collected snapshot reports of {} accounts in {} ms",
+                 reports.size(), System.currentTimeMillis() - start);
+
+        if (null == outputFile) {
+            writeReport(reports, System.out);
+        } else {
+            try (PrintStream out = new PrintStream(new FileOutputStream(outputFile), false,
+                                                   "UTF-8")) {
+                writeReport(reports, out);
+            }
+            log.info("Wrote snapshot report to {}", outputFile.getAbsolutePath());
+        }
+
+        int failures = 0;
+        for (AccountReport report : reports) {
+            if (null != report.getError()) {
+                failures++;
+            }
+        }
+        if (failures > 0) {
+            throw new RuntimeException("Unable to report on the snapshots of " + failures +
+                                       " of " + reports.size() + " accounts");
+        }
+    }
+
+    private void writeReport(List<AccountReport> reports, PrintStream out) {
+        if (breakdown) {
+            new StatsWriter(format, topCount).write(reports, out);
+        } else {
+            new ReportWriter(format).write(reports, out);
+        }
+    }
+
+    /**
+     * Reports on each account, several accounts at once. An account which
+     * cannot be reached is included in the results with the reason for the
+     * failure, rather than stopping the report.
+     *
+     * @return the report of each account, in the order of the accounts
+     */
+    protected List<AccountReport> collectReports() {
+        int poolSize = Math.max(1, Math.min(accountThreads, accounts.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize);
+        List<Future<AccountReport>> futures = new ArrayList<>();
+        for (final AccountConfig account : accounts) {
+            futures.add(executor.submit(new Callable<AccountReport>() {
+                @Override
+                public AccountReport call() throws Exception {
+                    return reportAccount(account, connect(account));
+                }
+            }));
+        }
+        executor.shutdown();
+
+        List<AccountReport> reports = new ArrayList<>();
+        try {
+            for (int i = 0; i < accounts.size(); i++) {
+                AccountConfig account = accounts.get(i);
+                try {
+                    reports.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    log.error("Unable to report on snapshots of account " + account.getName() +
+                              " due to: " + cause.getMessage(), cause);
+                    reports.add(new AccountReport(account, String.valueOf(cause.getMessage())));
+                }
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while collecting snapshot reports");
+        }
+        return reports;
+    }
+
+    /**
+     * Connects to the primary store of an account.
+     *
+     * @param account - the account
+     * @return the client used to retrieve snapshots
+     * @throws ContentStoreException
+     */
+    protected SnapshotTaskClient connect(AccountConfig account) throws ContentStoreException {
+        ContentStoreManager storeManager =
+            new ContentStoreManagerImpl(account.getHost(), account.getPort());
+        Credential credential = new Credential(account.getUsername(), account.getPassword());
         storeManager.login(credential);
 
         ContentStore store = storeManager.getPrimaryContentStore();
-        SnapshotTaskClient taskClient = new SnapshotTaskClientImpl(store);
-
-        List<Long> snapshotByteTotals = new LinkedList<>();
-        long totalSnapshotBytes = 0;
+        return new SnapshotTaskClientImpl(store);
+    }
 
+    /**
+     * Retrieves the details of all snapshots in an account, several at once.
+     * When a cache directory is set, the details of completed snapshots are
+     * read from the account's cache file, and only the remaining snapshots
+     * are retrieved.
+     *
+     * @param account    - the account
+     * @param taskClient - the client used to retrieve snapshots
+     * @return the report of the account
+     * @throws ContentStoreException
+     * @throws IOException if the cache cannot be read or written
+     */
+    protected AccountReport reportAccount(AccountConfig account, SnapshotTaskClient taskClient)
+        throws ContentStoreException, IOException {
         GetSnapshotListTaskResult snapshotListTaskResult = taskClient.getSnapshots();
-        for (SnapshotSummary snapshotSummary : snapshotListTaskResult.getSnapshots()) {
-            String snapshotId = snapshotSummary.getSnapshotId();
-            GetSnapshotTaskResult snapshotTaskResult = taskClient.getSnapshot(snapshotId);
-            long snapshotByteSize = snapshotTaskResult.getTotalSizeInBytes();
-            snapshotByteTotals.add(snapshotByteSize);
-            totalSnapshotBytes += snapshotByteSize;
+        List<SnapshotSummary> snapshots = snapshotListTaskResult.getSnapshots();
+
+        SnapshotCache cache = null;
+        List<SnapshotSummary> uncached = snapshots;
+        if (null != cacheDir) {
+            cache = SnapshotCache.load(getCacheFile(account));
+            uncached = new ArrayList<>();
+            for (SnapshotSummary snapshot : snapshots) {
+                if (null == cache.get(snapshot.getSnapshotId())) {
+                    uncached.add(snapshot);
+                }
+            }
         }
 
-        int allSnapshotsCount = snapshotListTaskResult.getSnapshots().size();
-        double allSnapshotsBytes = (double) totalSnapshotBytes / 1000000000;
+        SnapshotDetailFetcher fetcher = new SnapshotDetailFetcher(taskClient, threads);
+        List<GetSnapshotTaskResult> retrieved = fetcher.fetch(uncached);
+        log.info("Retrieved {} of {} snapshots of account {}, requests: {}",
+                 retrieved.size(), snapshots.size(), account.getName(), fetcher.getLatency());
+        if (null == cache) {
+            return new AccountReport(account, retrieved, fetcher.getLatency());
+        }
 
-        System.out.println("Snapshots for: " + duracloudHost);
-        System.out.println("  Number of snapshots: " + allSnapshotsCount);
-        System.out.println("  Total size of all snapshots: " +
-                           String.format("%.02f", allSnapshotsBytes) + " GB");
-        System.out.println("  Individual snapshot size (in GB):");
-        for (Long snapshotByteTotal : snapshotByteTotals) {
-            double snapshotBytes =  (double) snapshotByteTotal / 1000000000;
-            System.out.println(String.format("%.02f", snapshotBytes));
+        // Combine cached and retrieved details in listing order
+        List<GetSnapshotTaskResult> snapshotTaskResults = new ArrayList<>(snapshots.size());
+        List<String> snapshotIds = new ArrayList<>(snapshots.size());
+        int next = 0;
+        for (SnapshotSummary snapshot : snapshots) {
+            GetSnapshotTaskResult result = cache.get(snapshot.getSnapshotId());
+            if (null == result) {
+                result = retrieved.get(next++);
+                cache.put(result);
+            }
+            snapshotTaskResults.add(result);
+            snapshotIds.add(snapshot.getSnapshotId());
         }
+        cache.retainAll(snapshotIds);
+        cache.save();
+
+        AccountReport report =
+            new AccountReport(account, snapshotTaskResults, fetcher.getLatency());
+        report.setCachedCount(snapshots.size() - retrieved.size());
+        return report;
+    }
+
+    /*
+     * Each account has its own cache file, named for the account. Characters
+     * which are not safe in a file name are replaced, so the name also
+     * includes a hash of the account name to keep the files of accounts
+     * such as "a b" and "a_b" apart.
+     */
+    protected File getCacheFile(AccountConfig account) {
+        String name = account.getName();
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Unable to create cache file name due to: " +
+                                       e.getMessage());
+        }
+        byte[] hash = digest.digest(name.getBytes(StandardCharsets.UTF_8));
+        StringBuilder hashHex = new StringBuilder();
+        for (int i = 0; i < 4; i++) {
+            hashHex.append(String.format("%02x", hash[i]));
+        }
+        return new File(cacheDir, name.replaceAll("[^A-Za-z0-9._-]", "_") + "-" + hashHex +
+                                  "-snapshots.tsv");
     }
 
     /**
@@ -98,22 +325,99 @@ public class SnapshotReportTool {
 
         Option duracloudHostOption =
             new Option("h", "duracloud-host", true,
-                       "the host at which the duracloud app can be found");
-        duracloudHostOption.setRequired(true);
+                       "the host at which the duracloud app can be found " +
+                       "(required unless an account config file is used)");
+        duracloudHostOption.setRequired(false);
         cmdOptions.addOption(duracloudHostOption);
 
+        Option portOption =
+            new Option("r", "duracloud-port", true,
+                       "the port at which the duracloud app can be found (optional, " +
+                       "default value is " + AccountConfig.DEFAULT_PORT + ")");
+        portOption.setRequired(false);
+        cmdOptions.addOption(portOption);
+
         Option usernameOption =
             new Option("u", "duracloud-username", true,
-                       "the username necessary to read from duracloud");
-        usernameOption.setRequired(true);
+                       "the username necessary to read from duracloud " +
+                       "(required unless an account config file is used)");
+        usernameOption.setRequired(false);
         cmdOptions.addOption(usernameOption);
 
         Option passwordOption =
             new Option("p", "duracloud-password", true,
-                       "the password necessary to read from duracloud");
-        passwordOption.setRequired(true);
+                       "the password necessary to read from duracloud " +
+                       "(required unless an account config file is used)");
+        passwordOption.setRequired(false);
         cmdOptions.addOption(passwordOption);
 
+        Option configOption =
+            new Option("c", "account-config", true,
+                       "the path to a properties file listing the host and credentials " +
+                       "of each account to report on, in place of the host, port, " +
+                       "username and password options (optional)");
+        configOption.setRequired(false);
+        cmdOptions.addOption(configOption);
+
+        Option writeAccountOption =
+            new Option("w", "write-account", true,
+                       "the name of an account to add to the account config file, " +
+                       "using the host, port, username and password options; the " +
+                       "credentials are stored encrypted and no report is run (optional)");
+        writeAccountOption.setRequired(false);
+        cmdOptions.addOption(writeAccountOption);
+
+        Option threadsOption =
+            new Option("t", "threads", true,
+                       "the number of snapshots for which to retrieve details at once " +
+                       "(optional, default value is " + DEFAULT_THREADS + ")");
+        threadsOption.setRequired(false);
+        cmdOptions.addOption(threadsOption);
+
+        Option accountThreadsOption =
+            new Option("a", "account-threads", true,
+                       "the number of accounts to report on at once (optional, " +
+                       "default value is " + DEFAULT_ACCOUNT_THREADS + ")");
+        accountThreadsOption.setRequired(false);
+        cmdOptions.addOption(accountThreadsOption);
+
+        Option formatOption =
+            new Option("f", "format", true,
+                       "the format of the report: text, csv or json (optional, " +
+                       "default value is text)");
+        formatOption.setRequired(false);
+        cmdOptions.addOption(formatOption);
+
+        Option cacheDirOption =
+            new Option("d", "cache-dir", true,
+                       "the directory in which to cache the details of completed " +
+                       "snapshots, so that later runs retrieve only new snapshots " +
+                       "(optional)");
+        cacheDirOption.setRequired(false);
+        cmdOptions.addOption(cacheDirOption);
+
+        Option breakdownOption =
+            new Option("s", "size-breakdown", false,
+                       "report totals by month with their growth, size percentiles and " +
+                       "the largest snapshots, rather than the size of every snapshot " +
+                       "(optional)");
+        breakdownOption.setRequired(false);
+        cmdOptions.addOption(breakdownOption);
+
+        Option topOption =
+            new Option("n", "largest-count", true,
+                       "the number of largest snapshots listed in the size breakdown " +
+                       "(optional, default value is " + SnapshotStats.DEFAULT_TOP_COUNT + ")");
+        topOption.setRequired(false);
+        cmdOptions.addOption(topOption);
+
+        Option outputOption =
+            new Option("o", "output-file", true,
+                       "the file to which the report is written (optional, by " +
+                       "default the report is printed)");
+        outputOption.setRequired(false);
+        cmdOptions.addOption(outputOption);
+
         CommandLine cmd = null;
         try {
             CommandLineParser parser = new PosixParser();
@@ -122,14 +426,112 @@ public class SnapshotReportTool {
             usage();
         }
 
+        EncryptionUtil enc = new EncryptionUtil();
+        if (cmd.hasOption("w")) {
+            writeAccount(cmd, enc);
+            return;
+        }
+
+        List<AccountConfig> accounts;
+        if (cmd.hasOption("c")) {
+            if (cmd.hasOption("h") || cmd.hasOption("u") || cmd.hasOption("p")) {
+                System.out.println("An account config file cannot be used with the " +
+                                   "host, username or password options");
+                usage();
+            }
+            accounts = AccountConfig.load(new File(cmd.getOptionValue("c")), enc);
+        } else {
+            String duracloudHost = cmd.getOptionValue("h");
+            String duracloudUsername = cmd.getOptionValue("u");
+            String duracloudPassword = cmd.getOptionValue("p");
+            if (null == duracloudHost || null == duracloudUsername ||
+                null == duracloudPassword) {
+                System.out.println("Either an account config file or the host, username " +
+                                   "and password must be provided");
+                usage();
+            }
+            String duracloudPort = cmd.getOptionValue("r", AccountConfig.DEFAULT_PORT);
+            accounts = Collections.singletonList(
+                new AccountConfig(duracloudHost, duracloudHost, duracloudPort,
+                                  duracloudUsername, duracloudPassword));
+        }
+
+        ReportWriter.Format format = ReportWriter.Format.TEXT;
+        if (cmd.hasOption("f")) {
+            try {
+                format = ReportWriter.Format.valueOf(cmd.getOptionValue("f").toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.out.println("Unknown report format: " + cmd.getOptionValue("f"));
+                usage();
+            }
+        }
+
+        SnapshotReportTool tool = new SnapshotReportTool(accounts);
+        tool.setThreads(parseCount(cmd, "t", DEFAULT_THREADS));
+        tool.setAccountThreads(parseCount(cmd, "a", DEFAULT_ACCOUNT_THREADS));
+        tool.setFormat(format);
+        tool.setBreakdown(cmd.hasOption("s"),
+                          parseCount(cmd, "n", SnapshotStats.DEFAULT_TOP_COUNT));
+        if (cmd.hasOption("d")) {
+            tool.setCacheDir(new File(cmd.getOptionValue("d")));
+        }
+        if (cmd.hasOption("o")) {
+            tool.setOutputFile(new File(cmd.getOptionValue("o")));
+        }
+        tool.run();
+    }
+
+    /*
+     * Adds an account to the account config file, creating the file if it
+     * does not exist, with the account's credentials encrypted
+     */
+    private static void writeAccount(CommandLine cmd, EncryptionUtil enc) throws IOException {
+        String configPath = cmd.getOptionValue("c");
         String duracloudHost = cmd.getOptionValue("h");
         String duracloudUsername = cmd.getOptionValue("u");
         String duracloudPassword = cmd.getOptionValue("p");
+        if (null == configPath || null == duracloudHost || null == duracloudUsername ||
+            null == duracloudPassword) {
+            System.out.println("To write an account to the account config file, the " +
+                               "config file, host, username and password are required");
+            usage();
+        }
 
-        SnapshotReportTool tool = new SnapshotReportTool(duracloudHost,
-                                                         duracloudUsername,
-                                                         duracloudPassword);
-        tool.run();
+        File configFile = new File(configPath);
+        Properties props = new Properties();
+        if (configFile.exists()) {
+            props = AccountConfig.readProps(configFile);
+        }
+        String duracloudPort = cmd.getOptionValue("r", AccountConfig.DEFAULT_PORT);
+        new AccountConfig(cmd.getOptionValue("w"), duracloudHost, duracloudPort,
+                          duracloudUsername, duracloudPassword).addTo(props, enc);
+
+        // Fails if the accounts could not be read back
+        AccountConfig.load(props, enc);
+        AccountConfig.writeProps(configFile, props);
+        System.out.println("Successfully wrote account config file to: " + configPath);
+    }
+
+    /*
+     * Reads a positive number from the command line, or returns the default
+     * value if the option is not present
+     */
+    private static int parseCount(CommandLine cmd, String option, int defaultValue) {
+        String value = cmd.getOptionValue(option);
+        if (null == value) {
+            return defaultValue;
+        }
+        int count = 0;
+        try {
+            count = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            count = 0;
+        }
+        if (count < 1) {
+            System.out.println("The value of option " + option + " must be a positive number");
+            usage();
+        }
+        return count;
     }
 
     /**
@@ -142,4 +544,4 @@ public class SnapshotReportTool {
         System.exit(1);
     }
 
-}
\ No newline at end of file
+}
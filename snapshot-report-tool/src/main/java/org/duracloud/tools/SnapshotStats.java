@@ -0,0 +1,380 @@
+package org.duracloud.tools;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import org.duracloud.snapshot.dto.SnapshotStatus;
+import org.duracloud.snapshot.dto.task.GetSnapshotTaskResult;
+
+/*
+ * Snapshot Stats - Aggregates snapshot sizes for capacity planning: totals
+ *                  per month with the growth they represent, the largest
+ *                  snapshots, and size percentiles.
+ *
+ *                  Snapshots are added one at a time. The count, total, mean,
+ *                  standard deviation, minimum and maximum are kept as running
+ *                  values, and the largest snapshots in a small heap. Sizes
+ *                  and months are held in primitive arrays, which are only
+ *                  sorted or summed when a breakdown is requested.
+ */
+public class SnapshotStats {
+
+    public static final int DEFAULT_TOP_COUNT = 10;
+    public static final double[] PERCENTILES = {50, 90, 95, 99};
+
+    private static final int NO_MONTH = -1;
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    // Running values
+    private int count = 0;
+    private long totalBytes = 0;
+    private long minBytes = 0;
+    private long maxBytes = 0;
+    private double mean = 0;
+    private double sumSquares = 0;
+    private int[] statusCounts = new int[SnapshotStatus.values().length];
+
+    // Size and month (months since year 0, or NO_MONTH) of each snapshot
+    private long[] sizes = new long[64];
+    private int[] months = new int[64];
+
+    // Min-heap of the largest snapshots
+    private final int topCount;
+    private long[] topSizes;
+    private String[] topIds;
+    private int topFilled = 0;
+
+    public SnapshotStats() {
+        this(DEFAULT_TOP_COUNT);
+    }
+
+    /**
+     * @param topCount - the number of largest snapshots to keep
+     */
+    public SnapshotStats(int topCount) {
+        this.topCount = topCount;
+        this.topSizes = new long[topCount];
+        this.topIds = new String[topCount];
+    }
+
+    /**
+     * Adds the snapshots of an account.
+     *
+     * @param report - the account report
+     */
+    public void addAll(AccountReport report) {
+        List<GetSnapshotTaskResult> snapshots = report.getSnapshots();
+        long[] reportSizes = report.getSizes();
+        for (int i = 0; i < reportSizes.length; i++) {
+            GetSnapshotTaskResult snapshot = snapshots.get(i);
+            add(snapshot.getSnapshotId(), snapshot.getStatus(),
+                reportSizes[i], snapshot.getSnapshotDate());
+        }
+    }
+
+    /**
+     * Adds one snapshot.
+     *
+     * @param snapshotId - the snapshot
+     * @param status     - the status of the snapshot, or null if not known
+     * @param size       - the size of the snapshot in bytes
+     * @param date       - the date of the snapshot, or null if not known
+     */
+    public void add(String snapshotId, SnapshotStatus status, long size, Date date) {
+        if (count == sizes.length) {
+            sizes = Arrays.copyOf(sizes, count * 2);
+            months = Arrays.copyOf(months, count * 2);
+        }
+        sizes[count] = size;
+        months[count] = toMonth(date);
+        count++;
+
+        totalBytes += size;
+        minBytes = (count == 1) ? size : Math.min(minBytes, size);
+        maxBytes = (count == 1) ? size : Math.max(maxBytes, size);
+        double delta = size - mean;
+        mean += delta / count;
+        sumSquares += delta * (size - mean);
+        if (null != status) {
+            statusCounts[status.ordinal()]++;
+        }
+        addTop(snapshotId, size);
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public long getMinBytes() {
+        return minBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public double getMeanBytes() {
+        return mean;
+    }
+
+    /**
+     * @return the population standard deviation of snapshot sizes
+     */
+    public double getStdDevBytes() {
+        return count == 0 ? 0 : Math.sqrt(sumSquares / count);
+    }
+
+    /**
+     * @param status - a snapshot status
+     * @return the number of snapshots with that status
+     */
+    public int getStatusCount(SnapshotStatus status) {
+        return statusCounts[status.ordinal()];
+    }
+
+    /**
+     * @param percentiles - percentiles from 0 to 100
+     * @return the size which each percentage of snapshots do not exceed,
+     *         using the nearest-rank method
+     */
+    public long[] getPercentiles(double... percentiles) {
+        long[] values = new long[percentiles.length];
+        if (count == 0) {
+            return values;
+        }
+        long[] sorted = Arrays.copyOf(sizes, count);
+        Arrays.sort(sorted);
+        for (int i = 0; i < percentiles.length; i++) {
+            int rank = (int) Math.ceil(percentiles[i] / 100 * count);
+            values[i] = sorted[Math.max(0, Math.min(count, rank) - 1)];
+        }
+        return values;
+    }
+
+    /**
+     * @return the IDs of the largest snapshots, largest first
+     */
+    public String[] getLargestIds() {
+        return getLargest().ids;
+    }
+
+    /**
+     * @return the sizes of the largest snapshots, largest first
+     */
+    public long[] getLargestSizes() {
+        return getLargest().sizes;
+    }
+
+    /**
+     * Totals snapshot sizes by the month in which snapshots were taken.
+     *
+     * @return the monthly totals, from the first month with a snapshot to the
+     *         last, including months without snapshots
+     */
+    public Monthly getMonthly() {
+        int first = Integer.MAX_VALUE;
+        int last = Integer.MIN_VALUE;
+        int undated = 0;
+        long undatedBytes = 0;
+        for (int i = 0; i < count; i++) {
+            if (months[i] == NO_MONTH) {
+                undated++;
+                undatedBytes += sizes[i];
+            } else {
+                first = Math.min(first, months[i]);
+                last = Math.max(last, months[i]);
+            }
+        }
+
+        int span = (first > last) ? 0 : last - first + 1;
+        Monthly monthly = new Monthly(first, span, undated, undatedBytes);
+        for (int i = 0; i < count; i++) {
+            if (months[i] != NO_MONTH) {
+                monthly.counts[months[i] - first]++;
+                monthly.bytes[months[i] - first] += sizes[i];
+            }
+        }
+        long cumulative = 0;
+        for (int m = 0; m < span; m++) {
+            cumulative += monthly.bytes[m];
+            monthly.cumulativeBytes[m] = cumulative;
+        }
+        return monthly;
+    }
+
+    private void addTop(String snapshotId, long size) {
+        if (topCount == 0) {
+            return;
+        }
+        if (topFilled < topCount) {
+            // Sift up
+            int i = topFilled++;
+            while (i > 0 && topSizes[(i - 1) / 2] > size) {
+                topSizes[i] = topSizes[(i - 1) / 2];
+                topIds[i] = topIds[(i - 1) / 2];
+                i = (i - 1) / 2;
+            }
+            topSizes[i] = size;
+            topIds[i] = snapshotId;
+        } else if (size > topSizes[0]) {
+            // Replace the smallest and sift down
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= topFilled) {
+                    break;
+                }
+                if (child + 1 < topFilled && topSizes[child + 1] < topSizes[child]) {
+                    child++;
+                }
+                if (topSizes[child] >= size) {
+                    break;
+                }
+                topSizes[i] = topSizes[child];
+                topIds[i] = topIds[child];
+                i = child;
+            }
+            topSizes[i] = size;
+            topIds[i] = snapshotId;
+        }
+    }
+
+    /*
+     * Orders the heap of largest snapshots, largest first
+     */
+    private Largest getLargest() {
+        Largest largest = new Largest(topFilled);
+        boolean[] taken = new boolean[topFilled];
+        for (int n = 0; n < topFilled; n++) {
+            int best = -1;
+            for (int i = 0; i < topFilled; i++) {
+                if (!taken[i] && (best < 0 || topSizes[i] > topSizes[best])) {
+                    best = i;
+                }
+            }
+            taken[best] = true;
+            largest.sizes[n] = topSizes[best];
+            largest.ids[n] = topIds[best];
+        }
+        return largest;
+    }
+
+    private static int toMonth(Date date) {
+        if (null == date) {
+            return NO_MONTH;
+        }
+        Calendar calendar = Calendar.getInstance(UTC);
+        calendar.setTime(date);
+        return calendar.get(Calendar.YEAR) * 12 + calendar.get(Calendar.MONTH);
+    }
+
+    private static class Largest {
+        private long[] sizes;
+        private String[] ids;
+
+        private Largest(int count) {
+            this.sizes = new long[count];
+            this.ids = new String[count];
+        }
+    }
+
+    /*
+     * Snapshot totals for a run of consecutive months
+     */
+    public static class Monthly {
+        private int firstMonth;
+        private int[] counts;
+        private long[] bytes;
+        private long[] cumulativeBytes;
+        private int undatedCount;
+        private long undatedBytes;
+
+        private Monthly(int firstMonth, int span, int undatedCount, long undatedBytes) {
+            this.firstMonth = firstMonth;
+            this.counts = new int[span];
+            this.bytes = new long[span];
+            this.cumulativeBytes = new long[span];
+            this.undatedCount = undatedCount;
+            this.undatedBytes = undatedBytes;
+        }
+
+        public int size() {
+            return counts.length;
+        }
+
+        /**
+         * @return the month as YYYY-MM
+         */
+        public String getMonth(int index) {
+            int month = firstMonth + index;
+            return String.format(Locale.ROOT, "%04d-%02d", month / 12, month % 12 + 1);
+        }
+
+        public int getCount(int index) {
+            return counts[index];
+        }
+
+        public long getBytes(int index) {
+            return bytes[index];
+        }
+
+        /**
+         * @return the bytes of all snapshots up to the end of the month
+         */
+        public long getCumulativeBytes(int index) {
+            return cumulativeBytes[index];
+        }
+
+        /**
+         * @return the bytes added in the month as a percentage of the bytes
+         *         at the end of the month before, or NaN for the first month
+         *         or when nothing preceded it
+         */
+        public double getGrowthPercent(int index) {
+            if (index == 0 || cumulativeBytes[index - 1] == 0) {
+                return Double.NaN;
+            }
+            return 100.0 * bytes[index] / cumulativeBytes[index - 1];
+        }
+
+        /**
+         * @return the average bytes added per month
+         */
+        public double getAverageMonthlyBytes() {
+            if (size() == 0) {
+                return 0;
+            }
+            return (double) cumulativeBytes[size() - 1] / size();
+        }
+
+        /**
+         * @return the compound monthly growth rate, as a percentage, from the
+         *         end of the first month to the end of the last, or NaN when
+         *         there are fewer than two months
+         */
+        public double getCompoundGrowthPercent() {
+            if (size() < 2 || cumulativeBytes[0] == 0) {
+                return Double.NaN;
+            }
+            double ratio = (double) cumulativeBytes[size() - 1] / cumulativeBytes[0];
+            return 100.0 * (Math.pow(ratio, 1.0 / (size() - 1)) - 1);
+        }
+
+        public int getUndatedCount() {
+            return undatedCount;
+        }
+
+        public long getUndatedBytes() {
+            return undatedBytes;
+        }
+    }
+
+}
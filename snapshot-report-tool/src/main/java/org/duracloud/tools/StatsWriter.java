@@ -0,0 +1,316 @@
+package org.duracloud.tools;
+
+import static org.duracloud.tools.ReportWriter.csv;
+import static org.duracloud.tools.ReportWriter.formatGb;
+import static org.duracloud.tools.ReportWriter.json;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.duracloud.snapshot.dto.SnapshotStatus;
+
+/*
+ * Stats Writer - Prints the breakdown of snapshot sizes across all accounts,
+ *                followed by that of each account when there are several.
+ *
+ *                The CSV breakdown has one row per value, with columns:
+ *                account,type,key,snapshots,bytes,cumulative-bytes,growth-percent
+ *                where type is one of summary, status, percentile, largest,
+ *                month or growth, and the account of the overall breakdown
+ *                is ALL. An account which could not be reported on has a
+ *                single error row, with the reason as its key.
+ */
+public class StatsWriter {
+
+    public static final String CSV_HEADER =
+        "account,type,key,snapshots,bytes,cumulative-bytes,growth-percent";
+    public static final String ALL_ACCOUNTS = "ALL";
+
+    private ReportWriter.Format format;
+    private int topCount;
+
+    /**
+     * @param format   - the format of the breakdown
+     * @param topCount - the number of largest snapshots to list
+     */
+    public StatsWriter(ReportWriter.Format format, int topCount) {
+        this.format = format;
+        this.topCount = topCount;
+    }
+
+    /**
+     * Aggregates and prints the snapshots of all accounts. Accounts which
+     * could not be reported on are listed with the reason, and the overall
+     * breakdown notes how many accounts it leaves out.
+     *
+     * @param reports - the account reports
+     * @param out     - the stream to which the breakdown is printed
+     */
+    public void write(List<AccountReport> reports, PrintStream out) {
+        List<String> names = new ArrayList<>();
+        List<SnapshotStats> stats = new ArrayList<>();
+        // The reason each account failed, or null for the breakdowns
+        List<String> errors = new ArrayList<>();
+
+        SnapshotStats all = new SnapshotStats(topCount);
+        int failedCount = 0;
+        for (AccountReport report : reports) {
+            if (null == report.getError()) {
+                all.addAll(report);
+            } else {
+                failedCount++;
+            }
+        }
+        names.add(ALL_ACCOUNTS);
+        stats.add(all);
+        errors.add(null);
+        for (AccountReport report : reports) {
+            if (null != report.getError()) {
+                names.add(report.getAccount().getName());
+                stats.add(null);
+                errors.add(report.getError());
+            } else if (reports.size() > 1) {
+                SnapshotStats accountStats = new SnapshotStats(topCount);
+                accountStats.addAll(report);
+                names.add(report.getAccount().getName());
+                stats.add(accountStats);
+                errors.add(null);
+            }
+        }
+
+        switch (format) {
+            case CSV:
+                out.println(CSV_HEADER);
+                if (failedCount > 0) {
+                    out.println(ALL_ACCOUNTS + ",summary,failed-accounts," + failedCount +
+                                ",,,");
+                }
+                for (int i = 0; i < stats.size(); i++) {
+                    if (null != errors.get(i)) {
+                        out.println(csv(names.get(i)) + ",error," + csv(errors.get(i)) + ",,,,");
+                    } else {
+                        writeCsv(names.get(i), stats.get(i), out);
+                    }
+                }
+                break;
+            case JSON:
+                out.println("[");
+                for (int i = 0; i < stats.size(); i++) {
+                    if (null != errors.get(i)) {
+                        out.println("  {");
+                        out.println("    \"account\": " + json(names.get(i)) + ",");
+                        out.println("    \"error\": " + json(errors.get(i)));
+                    } else {
+                        writeJson(names.get(i), stats.get(i),
+                                  i == 0 ? failedCount : -1, out);
+                    }
+                    out.println(i < stats.size() - 1 ? "  }," : "  }");
+                }
+                out.println("]");
+                break;
+            default:
+                for (int i = 0; i < stats.size(); i++) {
+                    if (null != errors.get(i)) {
+                        out.println("Snapshot statistics for: " + names.get(i));
+                        out.println("  Snapshots could not be retrieved due to: " +
+                                    errors.get(i));
+                    } else {
+                        writeText(names.get(i), stats.get(i), i == 0 ? failedCount : -1,
+                                  reports.size(), out);
+                    }
+                }
+        }
+        out.flush();
+    }
+
+    /*
+     * Writes the breakdown as text. When some accounts are left out of the
+     * overall breakdown, it is marked as partial; failedCount is -1 for the
+     * breakdown of an account.
+     */
+    private void writeText(String name,
+                           SnapshotStats stats,
+                           int failedCount,
+                           int accountCount,
+                           PrintStream out) {
+        out.println("Snapshot statistics for: " + (failedCount >= 0 ? "all accounts" : name));
+        if (failedCount > 0) {
+            out.println("  Partial totals, " + failedCount + " of " + accountCount +
+                        " accounts could not be reported on");
+        }
+        out.println("  Number of snapshots: " + stats.getCount());
+        for (SnapshotStatus status : SnapshotStatus.values()) {
+            if (stats.getStatusCount(status) > 0) {
+                out.println("    " + status + ": " + stats.getStatusCount(status));
+            }
+        }
+        out.println("  Total size: " + formatGb(stats.getTotalBytes()) + " GB");
+        out.println("  Snapshot size (in GB): min " + formatGb(stats.getMinBytes()) +
+                    ", mean " + formatGb(Math.round(stats.getMeanBytes())) +
+                    ", std dev " + formatGb(Math.round(stats.getStdDevBytes())) +
+                    ", max " + formatGb(stats.getMaxBytes()));
+
+        long[] percentiles = stats.getPercentiles(SnapshotStats.PERCENTILES);
+        StringBuilder line = new StringBuilder("  Snapshot size percentiles (in GB):");
+        for (int i = 0; i < percentiles.length; i++) {
+            line.append(i == 0 ? " " : ", ").append(percentileKey(SnapshotStats.PERCENTILES[i]))
+                .append(' ').append(formatGb(percentiles[i]));
+        }
+        out.println(line);
+
+        String[] largestIds = stats.getLargestIds();
+        long[] largestSizes = stats.getLargestSizes();
+        out.println("  Largest snapshots (in GB):");
+        for (int i = 0; i < largestIds.length; i++) {
+            out.println("    " + formatGb(largestSizes[i]) + "  " + largestIds[i]);
+        }
+
+        SnapshotStats.Monthly monthly = stats.getMonthly();
+        out.println("  Monthly totals (in GB):");
+        for (int m = 0; m < monthly.size(); m++) {
+            out.println("    " + monthly.getMonth(m) + "  snapshots " + monthly.getCount(m) +
+                        ", added " + formatGb(monthly.getBytes(m)) +
+                        ", cumulative " + formatGb(monthly.getCumulativeBytes(m)) +
+                        formatGrowth(", growth ", monthly.getGrowthPercent(m), "%"));
+        }
+        if (monthly.getUndatedCount() > 0) {
+            out.println("    undated  snapshots " + monthly.getUndatedCount() +
+                        ", " + formatGb(monthly.getUndatedBytes()));
+        }
+        out.println("  Average added per month: " +
+                    formatGb(Math.round(monthly.getAverageMonthlyBytes())) + " GB" +
+                    formatGrowth(", compound monthly growth: ",
+                                 monthly.getCompoundGrowthPercent(), "%"));
+    }
+
+    private void writeCsv(String name, SnapshotStats stats, PrintStream out) {
+        String account = csv(name);
+        out.println(account + ",summary,total," + stats.getCount() + "," +
+                    stats.getTotalBytes() + ",,");
+        out.println(account + ",summary,min,," + stats.getMinBytes() + ",,");
+        out.println(account + ",summary,mean,," + Math.round(stats.getMeanBytes()) + ",,");
+        out.println(account + ",summary,stddev,," + Math.round(stats.getStdDevBytes()) + ",,");
+        out.println(account + ",summary,max,," + stats.getMaxBytes() + ",,");
+        for (SnapshotStatus status : SnapshotStatus.values()) {
+            if (stats.getStatusCount(status) > 0) {
+                out.println(account + ",status," + status + "," +
+                            stats.getStatusCount(status) + ",,,");
+            }
+        }
+
+        long[] percentiles = stats.getPercentiles(SnapshotStats.PERCENTILES);
+        for (int i = 0; i < percentiles.length; i++) {
+            out.println(account + ",percentile," + percentileKey(SnapshotStats.PERCENTILES[i]) +
+                        ",," + percentiles[i] + ",,");
+        }
+
+        String[] largestIds = stats.getLargestIds();
+        long[] largestSizes = stats.getLargestSizes();
+        for (int i = 0; i < largestIds.length; i++) {
+            out.println(account + ",largest," + csv(largestIds[i]) + ",," +
+                        largestSizes[i] + ",,");
+        }
+
+        SnapshotStats.Monthly monthly = stats.getMonthly();
+        for (int m = 0; m < monthly.size(); m++) {
+            out.println(account + ",month," + monthly.getMonth(m) + "," +
+                        monthly.getCount(m) + "," + monthly.getBytes(m) + "," +
+                        monthly.getCumulativeBytes(m) + "," +
+                        formatGrowth("", monthly.getGrowthPercent(m), ""));
+        }
+        if (monthly.getUndatedCount() > 0) {
+            out.println(account + ",month,undated," + monthly.getUndatedCount() + "," +
+                        monthly.getUndatedBytes() + ",,");
+        }
+        out.println(account + ",growth,average-monthly,," +
+                    Math.round(monthly.getAverageMonthlyBytes()) + ",,");
+        out.println(account + ",growth,compound-monthly,,,," +
+                    formatGrowth("", monthly.getCompoundGrowthPercent(), ""));
+    }
+
+    /*
+     * Writes the breakdown as a JSON object, leaving the object open. The
+     * overall breakdown includes the number of accounts it leaves out, which
+     * is -1 for the breakdown of an account.
+     */
+    private void writeJson(String name, SnapshotStats stats, int failedCount,
+                           PrintStream out) {
+        out.println("  {");
+        out.println("    \"account\": " + json(name) + ",");
+        if (failedCount >= 0) {
+            out.println("    \"failedAccountCount\": " + failedCount + ",");
+        }
+        out.println("    \"snapshotCount\": " + stats.getCount() + ",");
+        out.println("    \"totalBytes\": " + stats.getTotalBytes() + ",");
+        out.println("    \"minBytes\": " + stats.getMinBytes() + ",");
+        out.println("    \"meanBytes\": " + Math.round(stats.getMeanBytes()) + ",");
+        out.println("    \"stdDevBytes\": " + Math.round(stats.getStdDevBytes()) + ",");
+        out.println("    \"maxBytes\": " + stats.getMaxBytes() + ",");
+
+        StringBuilder statuses = new StringBuilder();
+        for (SnapshotStatus status : SnapshotStatus.values()) {
+            if (stats.getStatusCount(status) > 0) {
+                statuses.append(statuses.length() == 0 ? "" : ", ")
+                        .append(json(status.name())).append(": ")
+                        .append(stats.getStatusCount(status));
+            }
+        }
+        out.println("    \"statusCounts\": {" + statuses + "},");
+
+        long[] percentiles = stats.getPercentiles(SnapshotStats.PERCENTILES);
+        StringBuilder percentileValues = new StringBuilder();
+        for (int i = 0; i < percentiles.length; i++) {
+            percentileValues.append(i == 0 ? "" : ", ")
+                            .append(json(percentileKey(SnapshotStats.PERCENTILES[i])))
+                            .append(": ").append(percentiles[i]);
+        }
+        out.println("    \"percentileBytes\": {" + percentileValues + "},");
+
+        String[] largestIds = stats.getLargestIds();
+        long[] largestSizes = stats.getLargestSizes();
+        out.println("    \"largest\": [");
+        for (int i = 0; i < largestIds.length; i++) {
+            out.println("      {\"snapshotId\": " + json(largestIds[i]) +
+                        ", \"totalBytes\": " + largestSizes[i] + "}" +
+                        (i < largestIds.length - 1 ? "," : ""));
+        }
+        out.println("    ],");
+
+        SnapshotStats.Monthly monthly = stats.getMonthly();
+        out.println("    \"months\": [");
+        for (int m = 0; m < monthly.size(); m++) {
+            double growth = monthly.getGrowthPercent(m);
+            out.println("      {\"month\": " + json(monthly.getMonth(m)) +
+                        ", \"snapshotCount\": " + monthly.getCount(m) +
+                        ", \"bytes\": " + monthly.getBytes(m) +
+                        ", \"cumulativeBytes\": " + monthly.getCumulativeBytes(m) +
+                        ", \"growthPercent\": " + formatJsonGrowth(growth) + "}" +
+                        (m < monthly.size() - 1 ? "," : ""));
+        }
+        out.println("    ],");
+        out.println("    \"undatedSnapshotCount\": " + monthly.getUndatedCount() + ",");
+        out.println("    \"undatedBytes\": " + monthly.getUndatedBytes() + ",");
+        out.println("    \"averageMonthlyBytes\": " +
+                    Math.round(monthly.getAverageMonthlyBytes()) + ",");
+        out.println("    \"compoundMonthlyGrowthPercent\": " +
+                    formatJsonGrowth(monthly.getCompoundGrowthPercent()));
+    }
+
+    private static String percentileKey(double percentile) {
+        return "p" + (int) percentile;
+    }
+
+    private static String formatGrowth(String prefix, double percent, String suffix) {
+        if (Double.isNaN(percent)) {
+            return "";
+        }
+        return prefix + String.format(Locale.ROOT, "%.2f", percent) + suffix;
+    }
+
+    private static String formatJsonGrowth(double percent) {
+        return Double.isNaN(percent) ? "null" : formatGrowth("", percent, "");
+    }
+
+}
@@ -0,0 +1,404 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.duracloud.client.task.SnapshotTaskClient;
+import org.duracloud.common.util.EncryptionUtil;
+import org.duracloud.error.ContentStoreException;
+import org.duracloud.snapshot.dto.SnapshotStatus;
+import org.duracloud.snapshot.dto.SnapshotSummary;
+import org.duracloud.snapshot.dto.task.GetSnapshotListTaskResult;
+import org.duracloud.snapshot.dto.task.GetSnapshotTaskResult;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Performs tests on the snapshot report tool.
+ */
+public class SnapshotReportToolTest {
+
+    private static final int SNAPSHOTS = 40;
+    private static final long LATENCY_MILLIS = 25;
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    // The threads from which snapshot details were requested
+    private final Set<String> callingThreads =
+        Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private List<SnapshotSummary> createSummaries(int count) {
+        List<SnapshotSummary> summaries = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            summaries.add(new SnapshotSummary("snapshot-" + i, SnapshotStatus.SNAPSHOT_COMPLETE,
+                                              "description", "store-id", "space-" + i));
+        }
+        return summaries;
+    }
+
+    private GetSnapshotTaskResult createResult(String snapshotId, long size) {
+        GetSnapshotTaskResult result = new GetSnapshotTaskResult();
+        result.setSnapshotId(snapshotId);
+        result.setStatus(SnapshotStatus.SNAPSHOT_COMPLETE);
+        result.setTotalSizeInBytes(size);
+        return result;
+    }
+
+    /*
+     * Creates a task client on which each getSnapshot call takes a while,
+     * and each snapshot is one GB larger than the one before. The mock
+     * answers one call at a time, so the latency keeps every worker busy
+     * waiting on it.
+     */
+    private SnapshotTaskClient createTaskClient(List<SnapshotSummary> summaries)
+        throws ContentStoreException {
+        GetSnapshotListTaskResult listResult = new GetSnapshotListTaskResult();
+        listResult.setSnapshots(summaries);
+
+        SnapshotTaskClient taskClient = EasyMock.createMock(SnapshotTaskClient.class);
+        EasyMock.makeThreadSafe(taskClient, true);
+        EasyMock.expect(taskClient.getSnapshots()).andReturn(listResult).anyTimes();
+        EasyMock.expect(taskClient.getSnapshot(EasyMock.<String>anyObject()))
+                .andAnswer(new IAnswer<GetSnapshotTaskResult>() {
+                    @Override
+                    public GetSnapshotTaskResult answer() throws Throwable {
+                        callingThreads.add(Thread.currentThread().getName());
+                        Thread.sleep(LATENCY_MILLIS);
+                        String snapshotId = (String) EasyMock.getCurrentArguments()[0];
+                        int index = Integer.parseInt(snapshotId.substring("snapshot-".length()));
+                        return createResult(snapshotId, (index + 1) * 1000000000L);
+                    }
+                }).anyTimes();
+        EasyMock.replay(taskClient);
+        return taskClient;
+    }
+
+    private AccountConfig createAccount(String name) {
+        return new AccountConfig(name, name + ".duracloud.org", "443", "user", "pass");
+    }
+
+    /*
+     * Creates a tool which connects each account to a task client which
+     * lists the given number of snapshots, or fails to connect when the
+     * count is negative
+     */
+    private SnapshotReportTool createTool(List<AccountConfig> accounts,
+                                          final Map<String, Integer> snapshotCounts) {
+        return new SnapshotReportTool(accounts) {
+            @Override
+            protected SnapshotTaskClient connect(AccountConfig account)
+                throws ContentStoreException {
+                int count = snapshotCounts.get(account.getName());
+                if (count < 0) {
+                    throw new ContentStoreException("Unable to connect to " + account.getHost());
+                }
+                return createTaskClient(createSummaries(count));
+            }
+        };
+    }
+
+    private List<String> writeReport(List<AccountReport> reports, ReportWriter.Format format)
+        throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new ReportWriter(format).write(reports, new PrintStream(bytes, true, "UTF-8"));
+        List<String> lines = new ArrayList<>();
+        for (String line : bytes.toString("UTF-8").split("\\r?\\n")) {
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    /**
+     * Verifies that snapshot details retrieved concurrently are reported in
+     * listing order, and that they are requested by several workers.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testConcurrentReport() throws Exception {
+        List<SnapshotSummary> summaries = createSummaries(SNAPSHOTS);
+        SnapshotTaskClient taskClient = createTaskClient(summaries);
+
+        SnapshotReportTool tool = new SnapshotReportTool("host", "user", "pass");
+        tool.setThreads(10);
+        AccountReport report = tool.reportAccount(createAccount("host"), taskClient);
+        List<String> lines = writeReport(Collections.singletonList(report),
+                                         ReportWriter.Format.TEXT);
+        assertEquals("Snapshots for: host.duracloud.org", lines.get(0));
+        assertEquals("  Number of snapshots: " + SNAPSHOTS, lines.get(1));
+        assertEquals("  Total size of all snapshots: " +
+                     String.format("%.02f", 820.0) + " GB", lines.get(2));
+        for (int i = 0; i < SNAPSHOTS; i++) {
+            assertEquals(String.format("%.02f", (double) (i + 1)), lines.get(4 + i));
+        }
+        assertTrue(lines.get(4 + SNAPSHOTS).contains(SNAPSHOTS + " calls"));
+
+        assertTrue("Calls made from " + callingThreads, callingThreads.size() > 1);
+        assertTrue("Calls made from " + callingThreads, callingThreads.size() <= 10);
+    }
+
+    /**
+     * Verifies that several accounts are reported on at once, that an
+     * account which cannot be reached is reported as failed, that the CSV
+     * and JSON reports include the totals of each account, and that the run
+     * fails after writing the report.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMultipleAccounts() throws Exception {
+        List<AccountConfig> accounts =
+            Arrays.asList(createAccount("a"), createAccount("b"), createAccount("c"));
+        Map<String, Integer> snapshotCounts = new HashMap<>();
+        snapshotCounts.put("a", 3);
+        snapshotCounts.put("b", -1);
+        snapshotCounts.put("c", 5);
+
+        SnapshotReportTool tool = createTool(accounts, snapshotCounts);
+        tool.setAccountThreads(3);
+        List<AccountReport> reports = tool.collectReports();
+        assertEquals(3, reports.size());
+        assertEquals(6000000000L, reports.get(0).getTotalBytes());
+        assertEquals("Unable to connect to b.duracloud.org", reports.get(1).getError());
+        assertEquals(15000000000L, reports.get(2).getTotalBytes());
+
+        List<String> csv = writeReport(reports, ReportWriter.Format.CSV);
+        assertEquals(ReportWriter.CSV_HEADER, csv.get(0));
+        assertTrue(csv.get(1).startsWith("a,a.duracloud.org,3,6000000000,6.00,"));
+        assertEquals("b,b.duracloud.org,0,0,0.00,0.0,Unable to connect to b.duracloud.org",
+                     csv.get(2));
+        assertTrue(csv.get(3).startsWith("c,c.duracloud.org,5,15000000000,15.00,"));
+        assertEquals("TOTAL,,8,21000000000,21.00,,", csv.get(4));
+
+        StringBuilder json = new StringBuilder();
+        for (String line : writeReport(reports, ReportWriter.Format.JSON)) {
+            json.append(line.trim());
+        }
+        assertTrue(json.toString().startsWith(
+            "{\"accountCount\": 3,\"snapshotCount\": 8,\"totalBytes\": 21000000000,"));
+        assertTrue(json.toString().contains(
+            "\"error\": \"Unable to connect to b.duracloud.org\""));
+        assertTrue(json.toString().contains(
+            "{\"snapshotId\": \"snapshot-4\", \"status\": \"SNAPSHOT_COMPLETE\", " +
+            "\"totalBytes\": 5000000000}]"));
+
+        // The report is still written, then the run fails
+        File outputFile = new File(tempDir.getRoot(), "report.txt");
+        tool.setOutputFile(outputFile);
+        try {
+            tool.run();
+            fail("Exception expected");
+        } catch (RuntimeException e) {
+            assertEquals("Unable to report on the snapshots of 1 of 3 accounts",
+                         e.getMessage());
+        }
+        assertTrue(outputFile.length() > 0);
+    }
+
+    /**
+     * Verifies that only new and incomplete snapshots are retrieved when
+     * their details are cached, and that snapshots which are no longer
+     * listed are removed from the cache.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCachedReport() throws Exception {
+        final List<SnapshotSummary> summaries = createSummaries(10);
+        final Set<String> incomplete = new HashSet<>(Arrays.asList("snapshot-8", "snapshot-9"));
+        final AtomicInteger calls = new AtomicInteger();
+        SnapshotTaskClient taskClient = EasyMock.createMock(SnapshotTaskClient.class);
+        EasyMock.makeThreadSafe(taskClient, true);
+        EasyMock.expect(taskClient.getSnapshots()).andAnswer(
+            new IAnswer<GetSnapshotListTaskResult>() {
+                @Override
+                public GetSnapshotListTaskResult answer() {
+                    GetSnapshotListTaskResult listResult = new GetSnapshotListTaskResult();
+                    listResult.setSnapshots(new ArrayList<>(summaries));
+                    return listResult;
+                }
+            }).anyTimes();
+        EasyMock.expect(taskClient.getSnapshot(EasyMock.<String>anyObject()))
+                .andAnswer(new IAnswer<GetSnapshotTaskResult>() {
+                    @Override
+                    public GetSnapshotTaskResult answer() {
+                        calls.incrementAndGet();
+                        String snapshotId = (String) EasyMock.getCurrentArguments()[0];
+                        GetSnapshotTaskResult result = createResult(snapshotId, 1000000000L);
+                        if (incomplete.contains(snapshotId)) {
+                            result.setStatus(SnapshotStatus.TRANSFERRING_FROM_DURACLOUD);
+                            result.setTotalSizeInBytes(null);
+                        }
+                        return result;
+                    }
+                }).anyTimes();
+        EasyMock.replay(taskClient);
+
+        AccountConfig account = createAccount("acct");
+        SnapshotReportTool tool = new SnapshotReportTool(Collections.singletonList(account));
+        tool.setCacheDir(tempDir.getRoot());
+
+        AccountReport report = tool.reportAccount(account, taskClient);
+        assertEquals(10, calls.get());
+        assertEquals(0, report.getCachedCount());
+        assertEquals(8000000000L, report.getTotalBytes());
+        File cacheFile = tool.getCacheFile(account);
+        assertEquals(tempDir.getRoot(), cacheFile.getParentFile());
+        assertTrue(cacheFile.getName().startsWith("acct-"));
+        assertTrue(cacheFile.exists());
+        assertEquals(9, Files.readAllLines(cacheFile.toPath(), StandardCharsets.UTF_8).size());
+
+        // Snapshot 8 completes, snapshot 0 is removed and snapshot 10 is new
+        incomplete.remove("snapshot-8");
+        summaries.remove(0);
+        summaries.addAll(createSummaries(11).subList(10, 11));
+        calls.set(0);
+        report = tool.reportAccount(account, taskClient);
+        assertEquals(3, calls.get());
+        assertEquals(7, report.getCachedCount());
+        assertEquals(10, report.getSnapshotCount());
+        assertEquals(9000000000L, report.getTotalBytes());
+        for (int i = 0; i < 10; i++) {
+            assertEquals("snapshot-" + (i + 1), report.getSnapshots().get(i).getSnapshotId());
+        }
+        List<String> cached = Files.readAllLines(cacheFile.toPath(), StandardCharsets.UTF_8);
+        assertEquals(SnapshotCache.HEADER, cached.get(0));
+        assertEquals(10, cached.size());
+        for (String row : cached) {
+            assertTrue(!row.startsWith("snapshot-0\t") && !row.startsWith("snapshot-9\t"));
+        }
+        assertEquals(1, tempDir.getRoot().list().length);
+
+        // An unreadable cache row is retrieved again
+        Files.write(cacheFile.toPath(), Arrays.asList(SnapshotCache.HEADER, "garbage"),
+                    StandardCharsets.UTF_8);
+        calls.set(0);
+        report = tool.reportAccount(account, taskClient);
+        assertEquals(10, calls.get());
+        assertEquals(9000000000L, report.getTotalBytes());
+
+        // Account names which are the same once made safe for a file name
+        // still have their own cache files
+        File spaceCacheFile = tool.getCacheFile(createAccount("a b"));
+        File underscoreCacheFile = tool.getCacheFile(createAccount("a_b"));
+        assertTrue(spaceCacheFile.getName().startsWith("a_b-"));
+        assertTrue(!spaceCacheFile.equals(underscoreCacheFile));
+    }
+
+    /**
+     * Verifies that accounts are read from a config file with their
+     * credentials decrypted, and that accounts are added to a config file
+     * with their credentials encrypted.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testAccountConfig() throws Exception {
+        EncryptionUtil enc = new EncryptionUtil();
+        Properties props = new Properties();
+        props.setProperty("account-names", "one, two");
+        props.setProperty("account.one.host", "one.duracloud.org");
+        props.setProperty("account.one.username", enc.encrypt("user-one"));
+        props.setProperty("account.one.password", enc.encrypt("pass-one"));
+        props.setProperty("account.two.host", "two.duracloud.org");
+        props.setProperty("account.two.port", "8443");
+        props.setProperty("account.two.username", enc.encrypt("user-two"));
+        props.setProperty("account.two.password", enc.encrypt("pass-two"));
+
+        List<AccountConfig> accounts = AccountConfig.load(props, enc);
+        assertEquals(2, accounts.size());
+        assertEquals("one", accounts.get(0).getName());
+        assertEquals("one.duracloud.org", accounts.get(0).getHost());
+        assertEquals("443", accounts.get(0).getPort());
+        assertEquals("user-one", accounts.get(0).getUsername());
+        assertEquals("pass-one", accounts.get(0).getPassword());
+        assertEquals("two", accounts.get(1).getName());
+        assertEquals("8443", accounts.get(1).getPort());
+
+        // Adding an account encrypts its credentials, re-adding replaces it
+        new AccountConfig("three", "three.duracloud.org", "443", "user-three", "pass-three")
+            .addTo(props, enc);
+        new AccountConfig("one", "one.duracloud.org", "8443", "user-one", "pass-one")
+            .addTo(props, enc);
+        assertEquals("one,two,three", props.getProperty("account-names"));
+        assertEquals(enc.encrypt("pass-three"), props.getProperty("account.three.password"));
+
+        File configFile = new File(tempDir.getRoot(), "accounts.properties");
+        AccountConfig.writeProps(configFile, props);
+        accounts = AccountConfig.load(configFile, enc);
+        assertEquals(3, accounts.size());
+        assertEquals("8443", accounts.get(0).getPort());
+        assertEquals("user-three", accounts.get(2).getUsername());
+        assertEquals("pass-three", accounts.get(2).getPassword());
+
+        props.remove("account.two.password");
+        try {
+            AccountConfig.load(props, enc);
+            fail("Exception expected");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().contains("account.two.password"));
+        }
+    }
+
+    /**
+     * Verifies that a failed getSnapshot call fails the report.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testFailedCall() throws Exception {
+        List<SnapshotSummary> summaries = createSummaries(3);
+        SnapshotTaskClient taskClient = EasyMock.createMock(SnapshotTaskClient.class);
+        EasyMock.makeThreadSafe(taskClient, true);
+        EasyMock.expect(taskClient.getSnapshot(EasyMock.<String>anyObject()))
+                .andReturn(createResult("snapshot", 1)).anyTimes();
+        EasyMock.replay(taskClient);
+
+        SnapshotTaskClient failingClient = EasyMock.createMock(SnapshotTaskClient.class);
+        EasyMock.makeThreadSafe(failingClient, true);
+        EasyMock.expect(failingClient.getSnapshot(EasyMock.<String>anyObject()))
+                .andThrow(new ContentStoreException("failed")).anyTimes();
+        EasyMock.replay(failingClient);
+
+        SnapshotDetailFetcher fetcher = new SnapshotDetailFetcher(taskClient, 2);
+        assertEquals(3, fetcher.fetch(summaries).size());
+        assertEquals(3, fetcher.getLatency().getCount());
+
+        try {
+            new SnapshotDetailFetcher(failingClient, 2).fetch(summaries);
+            fail("Exception expected");
+        } catch (ContentStoreException e) {
+            assertEquals("failed", e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,234 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.tools;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.duracloud.snapshot.dto.SnapshotStatus;
+import org.duracloud.snapshot.dto.task.GetSnapshotTaskResult;
+import org.junit.Test;
+
+/**
+ * Performs tests on the aggregation of snapshot sizes.
+ */
+public class SnapshotStatsTest {
+
+    private static final long GB = 1000000000L;
+
+    private Date date(int year, int month, int day) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        calendar.clear();
+        calendar.set(year, month - 1, day);
+        return calendar.getTime();
+    }
+
+    private GetSnapshotTaskResult snapshot(String snapshotId, long size, Date date) {
+        GetSnapshotTaskResult snapshot = new GetSnapshotTaskResult();
+        snapshot.setSnapshotId(snapshotId);
+        snapshot.setStatus(SnapshotStatus.SNAPSHOT_COMPLETE);
+        snapshot.setTotalSizeInBytes(size);
+        snapshot.setSnapshotDate(date);
+        return snapshot;
+    }
+
+    /*
+     * Snapshots of 10, 20 and 30 GB in January, none in February, 40 GB in
+     * March, and an undated 5 GB snapshot
+     */
+    private AccountReport createReport() {
+        List<GetSnapshotTaskResult> snapshots = new ArrayList<>();
+        snapshots.add(snapshot("jan-1", 10 * GB, date(2024, 1, 5)));
+        snapshots.add(snapshot("jan-2", 20 * GB, date(2024, 1, 15)));
+        snapshots.add(snapshot("jan-3", 30 * GB, date(2024, 1, 31)));
+        snapshots.add(snapshot("mar-1", 40 * GB, date(2024, 3, 1)));
+        GetSnapshotTaskResult undated = snapshot("undated", 5 * GB, null);
+        undated.setStatus(SnapshotStatus.WAITING_FOR_DPN);
+        snapshots.add(undated);
+        return new AccountReport(new AccountConfig("acct", "host", "443", "u", "p"),
+                                 snapshots, new LatencyStats());
+    }
+
+    /**
+     * Verifies the summary values, percentiles and largest snapshots.
+     */
+    @Test
+    public void testSummary() {
+        SnapshotStats stats = new SnapshotStats(3);
+        stats.addAll(createReport());
+
+        assertEquals(5, stats.getCount());
+        assertEquals(105 * GB, stats.getTotalBytes());
+        assertEquals(5 * GB, stats.getMinBytes());
+        assertEquals(40 * GB, stats.getMaxBytes());
+        assertEquals(21 * GB, stats.getMeanBytes(), 1);
+        assertEquals(Math.sqrt((121 + 1 + 81 + 361 + 256) / 5.0) * GB, stats.getStdDevBytes(), 1);
+        assertEquals(4, stats.getStatusCount(SnapshotStatus.SNAPSHOT_COMPLETE));
+        assertEquals(1, stats.getStatusCount(SnapshotStatus.WAITING_FOR_DPN));
+
+        assertArrayEquals(new long[] {20 * GB, 40 * GB, 5 * GB},
+                          stats.getPercentiles(50, 100, 0));
+        assertArrayEquals(new String[] {"mar-1", "jan-3", "jan-2"}, stats.getLargestIds());
+        assertArrayEquals(new long[] {40 * GB, 30 * GB, 20 * GB}, stats.getLargestSizes());
+    }
+
+    /**
+     * Verifies monthly totals, including a month without snapshots, and the
+     * growth they represent.
+     */
+    @Test
+    public void testMonthly() {
+        SnapshotStats stats = new SnapshotStats();
+        stats.addAll(createReport());
+        SnapshotStats.Monthly monthly = stats.getMonthly();
+
+        assertEquals(3, monthly.size());
+        assertEquals("2024-01", monthly.getMonth(0));
+        assertEquals("2024-02", monthly.getMonth(1));
+        assertEquals("2024-03", monthly.getMonth(2));
+        assertEquals(3, monthly.getCount(0));
+        assertEquals(0, monthly.getCount(1));
+        assertEquals(1, monthly.getCount(2));
+        assertEquals(60 * GB, monthly.getBytes(0));
+        assertEquals(60 * GB, monthly.getCumulativeBytes(1));
+        assertEquals(100 * GB, monthly.getCumulativeBytes(2));
+        assertTrue(Double.isNaN(monthly.getGrowthPercent(0)));
+        assertEquals(0, monthly.getGrowthPercent(1), 0.001);
+        assertEquals(66.667, monthly.getGrowthPercent(2), 0.001);
+        assertEquals(100.0 / 3 * GB, monthly.getAverageMonthlyBytes(), 1);
+        assertEquals(100 * (Math.sqrt(100.0 / 60) - 1), monthly.getCompoundGrowthPercent(), 0.001);
+        assertEquals(1, monthly.getUndatedCount());
+        assertEquals(5 * GB, monthly.getUndatedBytes());
+    }
+
+    /**
+     * Verifies that the running values match those computed directly from
+     * many snapshots.
+     */
+    @Test
+    public void testManySnapshots() {
+        Random random = new Random(42);
+        SnapshotStats stats = new SnapshotStats(5);
+        long[] sizes = new long[100000];
+        double sum = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = (long) (random.nextDouble() * 1000 * GB);
+            sum += sizes[i];
+            stats.add("snapshot-" + i, SnapshotStatus.SNAPSHOT_COMPLETE, sizes[i],
+                      date(2015 + i % 10, 1 + i % 12, 1));
+        }
+        double mean = sum / sizes.length;
+        double squares = 0;
+        for (long size : sizes) {
+            squares += (size - mean) * (size - mean);
+        }
+
+        long[] sorted = Arrays.copyOf(sizes, sizes.length);
+        Arrays.sort(sorted);
+        assertEquals(mean, stats.getMeanBytes(), GB / 1000.0);
+        assertEquals(Math.sqrt(squares / sizes.length), stats.getStdDevBytes(), GB / 1000.0);
+        assertEquals(sorted[0], stats.getMinBytes());
+        assertEquals(sorted[sorted.length - 1], stats.getMaxBytes());
+        assertArrayEquals(new long[] {sorted[49999], sorted[98999]}, stats.getPercentiles(50, 99));
+        assertArrayEquals(new long[] {sorted[99999], sorted[99998], sorted[99997],
+                                      sorted[99996], sorted[99995]},
+                          stats.getLargestSizes());
+        assertEquals(120, stats.getMonthly().size());
+    }
+
+    /**
+     * Verifies the CSV and JSON breakdowns.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testWriter() throws Exception {
+        List<AccountReport> reports = Arrays.asList(createReport());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new StatsWriter(ReportWriter.Format.CSV, 2)
+            .write(reports, new PrintStream(bytes, true, "UTF-8"));
+        List<String> csv = Arrays.asList(bytes.toString("UTF-8").split("\\r?\\n"));
+        assertEquals(StatsWriter.CSV_HEADER, csv.get(0));
+        assertTrue(csv.contains("ALL,summary,total,5,105000000000,,"));
+        assertTrue(csv.contains("ALL,status,WAITING_FOR_DPN,1,,,"));
+        assertTrue(csv.contains("ALL,percentile,p50,,20000000000,,"));
+        assertTrue(csv.contains("ALL,largest,mar-1,,40000000000,,"));
+        assertTrue(csv.contains("ALL,month,2024-01,3,60000000000,60000000000,"));
+        assertTrue(csv.contains("ALL,month,2024-03,1,40000000000,100000000000,66.67"));
+        assertTrue(csv.contains("ALL,month,undated,1,5000000000,,"));
+
+        bytes = new ByteArrayOutputStream();
+        new StatsWriter(ReportWriter.Format.JSON, 2)
+            .write(reports, new PrintStream(bytes, true, "UTF-8"));
+        String json = bytes.toString("UTF-8");
+        assertTrue(json.contains("\"totalBytes\": 105000000000,"));
+        assertTrue(json.contains("\"percentileBytes\": {\"p50\": 20000000000, "));
+        assertTrue(json.contains("{\"month\": \"2024-02\", \"snapshotCount\": 0, " +
+                                 "\"bytes\": 0, \"cumulativeBytes\": 60000000000, " +
+                                 "\"growthPercent\": 0.00}"));
+        assertTrue(json.contains("\"growthPercent\": null"));
+    }
+
+    /**
+     * Verifies that an account which could not be reported on is listed with
+     * the reason in each breakdown, and that the overall totals are marked
+     * as partial.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testWriterFailedAccount() throws Exception {
+        AccountReport failed =
+            new AccountReport(new AccountConfig("down", "host", "443", "u", "p"),
+                              "Unable to connect");
+        List<AccountReport> reports = Arrays.asList(createReport(), failed);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new StatsWriter(ReportWriter.Format.TEXT, 2)
+            .write(reports, new PrintStream(bytes, true, "UTF-8"));
+        List<String> text = Arrays.asList(bytes.toString("UTF-8").split("\\r?\\n"));
+        int all = text.indexOf("Snapshot statistics for: all accounts");
+        assertEquals("  Partial totals, 1 of 2 accounts could not be reported on",
+                     text.get(all + 1));
+        assertEquals("  Number of snapshots: 5", text.get(all + 2));
+        int down = text.indexOf("Snapshot statistics for: down");
+        assertEquals("  Snapshots could not be retrieved due to: Unable to connect",
+                     text.get(down + 1));
+
+        bytes = new ByteArrayOutputStream();
+        new StatsWriter(ReportWriter.Format.CSV, 2)
+            .write(reports, new PrintStream(bytes, true, "UTF-8"));
+        List<String> csv = Arrays.asList(bytes.toString("UTF-8").split("\\r?\\n"));
+        assertEquals("ALL,summary,failed-accounts,1,,,", csv.get(1));
+        assertTrue(csv.contains("ALL,summary,total,5,105000000000,,"));
+        assertTrue(csv.contains("acct,summary,total,5,105000000000,,"));
+        assertTrue(csv.contains("down,error,Unable to connect,,,,"));
+
+        bytes = new ByteArrayOutputStream();
+        new StatsWriter(ReportWriter.Format.JSON, 2)
+            .write(reports, new PrintStream(bytes, true, "UTF-8"));
+        List<String> json = Arrays.asList(bytes.toString("UTF-8").split("\\r?\\n"));
+        int allJson = json.indexOf("    \"account\": \"ALL\",");
+        assertEquals("    \"failedAccountCount\": 1,", json.get(allJson + 1));
+        int downJson = json.indexOf("    \"account\": \"down\",");
+        assertEquals("    \"error\": \"Unable to connect\"", json.get(downJson + 1));
+    }
+
+}